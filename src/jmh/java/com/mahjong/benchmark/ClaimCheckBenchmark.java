@@ -0,0 +1,107 @@
+package com.mahjong.benchmark;
+
+import com.mahjong.logic.ActionProcessor;
+import com.mahjong.logic.ClaimMasks;
+import com.mahjong.logic.HandValidator;
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.logic.Tile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 打出一張牌後的宣告判定：
+ * - HandValidator 的單項檢查（碰 / 槓 / 吃 / 胡）
+ * - ActionProcessor.checkPossibleActions（手牌版與 ClaimMasks 版）
+ *
+ * 四家手牌為 16 張隨機牌，其中一家是聽牌手牌，打出的牌依序輪替。
+ * checkPossibleActionsByMasks 的手牌不變，只量到位元判斷（版本檢查永遠命中）；
+ * checkPossibleActionsByMasksAfterChange 每次先改動一家會被查詢的手牌（拿掉一張再放回，內容不變、版本改變），
+ * 與實際對局中每次摸牌 / 出牌後一樣要重算該家的遮罩（34 次胡牌判斷）。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClaimCheckBenchmark {
+
+    private final HandValidator validator = new HandValidator();
+    private final ActionProcessor processor = new ActionProcessor();
+
+    private List<PlayerHand> hands;
+    private List<ClaimMasks> masks;
+    private Tile[] discards;
+    // 每家手牌的第一張，AfterChange 拿掉再放回
+    private Tile[] firstTiles;
+    private int next;
+
+    @Setup
+    public void setup() {
+        HandGenerator generator = new HandGenerator(99L);
+        hands = new ArrayList<>();
+        masks = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            PlayerHand hand = p == 1 ? generator.oneAwayHand(17) : generator.randomHand(16);
+            hands.add(hand);
+            masks.add(new ClaimMasks(hand));
+        }
+        discards = new Tile[256];
+        for (int i = 0; i < discards.length; i++) {
+            discards[i] = generator.randomTile();
+        }
+        firstTiles = new Tile[hands.size()];
+        for (int p = 0; p < hands.size(); p++) {
+            firstTiles[p] = hands.get(p).getStandingTiles().get(0);
+        }
+    }
+
+    private Tile nextDiscard() {
+        next = (next + 1) & (discards.length - 1);
+        return discards[next];
+    }
+
+    @Benchmark
+    public void handValidatorChecks(Blackhole bh) {
+        Tile discard = nextDiscard();
+        PlayerHand hand = hands.get(1);
+        bh.consume(validator.canPong(hand, discard));
+        bh.consume(validator.canKong(hand, discard));
+        bh.consume(validator.canChow(hand, discard));
+        bh.consume(validator.canHu(hand, discard));
+    }
+
+    @Benchmark
+    public List<ActionProcessor.Action> checkPossibleActionsByHands() {
+        return processor.checkPossibleActions(hands, nextDiscard(), 0, 0);
+    }
+
+    @Benchmark
+    public List<ActionProcessor.Action> checkPossibleActionsByMasks() {
+        return processor.checkPossibleActions(masks, nextDiscard(), 0);
+    }
+
+    @Benchmark
+    public List<ActionProcessor.Action> checkPossibleActionsByMasksAfterChange() {
+        Tile discard = nextDiscard();
+        // 出牌的是 0 號，改動其他三家之一（0 號的遮罩不會被查詢）
+        int seat = 1 + next % 3;
+        PlayerHand hand = hands.get(seat);
+        hand.removeTile(firstTiles[seat]);
+        hand.addTile(firstTiles[seat]);
+        return processor.checkPossibleActions(masks, discard, 0);
+    }
+}
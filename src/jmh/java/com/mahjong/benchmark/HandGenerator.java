@@ -0,0 +1,99 @@
+package com.mahjong.benchmark;
+
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.logic.Tile;
+
+import java.util.Random;
+
+/**
+ * 以固定種子產生效能量測用的手牌
+ *
+ * - randomHand：從一副牌隨機抽出的手牌（每種牌最多 4 張）
+ * - winningHand：N 個面子（刻子或順子）+ 1 對眼，一定是胡牌
+ * - oneAwayHand：胡牌手牌拿掉一張，一定聽牌（用於聽牌 / 胡牌宣告）
+ */
+public final class HandGenerator {
+
+    private final Random random;
+
+    public HandGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public PlayerHand randomHand(int size) {
+        PlayerHand hand = new PlayerHand();
+        while (hand.getTileCount() < size) {
+            Tile t = Tile.fromIndex(random.nextInt(34));
+            if (hand.getCount(t) < 4) {
+                hand.addTile(t);
+            }
+        }
+        return hand;
+    }
+
+    /**
+     * @param size 14 或 17（面子數 = size / 3）
+     */
+    public PlayerHand winningHand(int size) {
+        if (size % 3 != 2) {
+            throw new IllegalArgumentException("Winning hand size must be 3n+2, got " + size);
+        }
+        while (true) {
+            int[] counts = new int[34];
+            if (fill(counts, size / 3)) {
+                PlayerHand hand = new PlayerHand();
+                for (int i = 0; i < 34; i++) {
+                    for (int n = 0; n < counts[i]; n++) {
+                        hand.addTile(Tile.fromIndex(i));
+                    }
+                }
+                return hand;
+            }
+        }
+    }
+
+    /**
+     * 胡牌手牌隨機拿掉一張（13 或 16 張）
+     */
+    public PlayerHand oneAwayHand(int winningSize) {
+        PlayerHand hand = winningHand(winningSize);
+        java.util.List<Tile> tiles = hand.getStandingTiles();
+        hand.removeTile(tiles.get(random.nextInt(tiles.size())));
+        return hand;
+    }
+
+    public Tile randomTile() {
+        return Tile.fromIndex(random.nextInt(34));
+    }
+
+    public Random getRandom() {
+        return random;
+    }
+
+    private boolean fill(int[] counts, int sets) {
+        int pair = random.nextInt(34);
+        counts[pair] += 2;
+        for (int s = 0; s < sets; s++) {
+            boolean placed = false;
+            for (int attempt = 0; attempt < 20 && !placed; attempt++) {
+                int i = random.nextInt(34);
+                boolean chow = i < 27 && i % 9 <= 6 && random.nextInt(3) > 0;
+                if (chow) {
+                    if (counts[i] < 4 && counts[i + 1] < 4 && counts[i + 2] < 4) {
+                        counts[i]++;
+                        counts[i + 1]++;
+                        counts[i + 2]++;
+                        placed = true;
+                    }
+                } else if (counts[i] <= 1) {
+                    counts[i] += 3;
+                    placed = true;
+                }
+            }
+            if (!placed) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,108 @@
+package com.mahjong.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.model.BinaryPacketCodec;
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packet 編碼 / 解碼：Jackson JSON 與 BinaryPacketCodec
+ *
+ * - snapshot：完整 STATE_UPDATE（海底 60 張、四家面子與張數、17 張手牌）
+ * - delta：一次出牌的 STATE_DELTA
+ *
+ * 每種 payload 的位元組數在 setup 時印出；CPU 比較看 ops/us，配置量加上 -prof gc 看 B/op。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PacketCodecBenchmark {
+
+    @Param({"snapshot", "delta"})
+    public String payload;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Packet packet;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setup() throws Exception {
+        HandGenerator generator = new HandGenerator(17L);
+        Map<String, Object> data = new HashMap<>();
+        if ("snapshot".equals(payload)) {
+            List<String> sea = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                sea.add(generator.randomTile().toString());
+            }
+            List<List<String>> melds = new ArrayList<>();
+            List<Integer> counts = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                PlayerHand h = generator.randomHand(13);
+                melds.add(p % 2 == 0 ? List.of() : List.of("RED", "RED", "RED"));
+                counts.add(h.getTileCount());
+            }
+            data.put("action", "STATE_UPDATE");
+            data.put("version", 120);
+            data.put("myIndex", 1);
+            data.put("turnIndex", 2);
+            data.put("sea", sea);
+            data.put("myHand", generator.randomHand(17).getTilesStr());
+            data.put("allMelds", melds);
+            data.put("handCounts", counts);
+            data.put("nicknames", List.of("Alice", "Bob", "Carol", "Dave"));
+        } else {
+            data.put("action", "STATE_DELTA");
+            data.put("version", 121);
+            data.put("base", 120);
+            data.put("seaAdd", List.of(generator.randomTile().toString()));
+            data.put("handCounts", Map.of("2", 16));
+            data.put("myIndex", 1);
+        }
+        packet = new Packet(Command.GAME_UPDATE, data);
+        json = mapper.writeValueAsBytes(packet);
+        binary = BinaryPacketCodec.encode(packet);
+        System.out.printf("%n%s: json=%d B, binary=%d B%n", payload, json.length, binary.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws Exception {
+        return mapper.writeValueAsBytes(packet);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return BinaryPacketCodec.encode(packet);
+    }
+
+    @Benchmark
+    public Packet decodeJson() throws Exception {
+        return mapper.readValue(json, Packet.class);
+    }
+
+    @Benchmark
+    public Packet decodeBinary() {
+        return BinaryPacketCodec.decode(binary);
+    }
+}
@@ -0,0 +1,65 @@
+package com.mahjong.benchmark;
+
+import com.mahjong.logic.MahjongRuleEngine;
+import com.mahjong.logic.PlayerHand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MahjongRuleEngine：每局開始的 重置 + 洗牌 + 發牌，以及摸完整副牌
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RuleEngineBenchmark {
+
+    private MahjongRuleEngine engine;
+    private List<PlayerHand> players;
+
+    @Setup
+    public void setup() {
+        engine = new MahjongRuleEngine(new Random(42L));
+        players = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            players.add(new PlayerHand());
+        }
+    }
+
+    @Benchmark
+    public int shuffleAndDeal() {
+        engine.reset();
+        for (PlayerHand p : players) {
+            p.clear();
+        }
+        engine.shuffle();
+        engine.dealInitialHands(players);
+        return engine.getRemainingTiles();
+    }
+
+    @Benchmark
+    public int shuffleAndDrawAll() {
+        engine.reset();
+        engine.shuffle();
+        int sum = 0;
+        while (engine.getRemainingTiles() > 0) {
+            sum += engine.drawTile().getIndex();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,60 @@
+package com.mahjong.benchmark;
+
+import com.mahjong.logic.EvaluationCache;
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.logic.ScoringCalculator;
+import com.mahjong.logic.Tile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScoringCalculator.calculateTai：14 / 17 張胡牌手牌
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScoringCalculatorBenchmark {
+
+    private static final int POOL = 1024;
+
+    @Param({"14", "17"})
+    int size;
+
+    @Param({"on", "off"})
+    String cache;
+
+    private PlayerHand[] hands;
+    private ScoringCalculator calculator;
+    private int next;
+
+    @Setup
+    public void setup() {
+        HandGenerator generator = new HandGenerator(31L + size);
+        hands = new PlayerHand[POOL];
+        for (int i = 0; i < POOL; i++) {
+            hands[i] = generator.winningHand(size);
+        }
+        calculator = new ScoringCalculator("on".equals(cache)
+                ? new EvaluationCache(EvaluationCache.DEFAULT_CAPACITY) : new EvaluationCache(1));
+    }
+
+    @Benchmark
+    public int calculateTai() {
+        next = (next + 1) & (POOL - 1);
+        return calculator.calculateTai(hands[next], (next & 1) == 0, Tile.EAST, Tile.SOUTH);
+    }
+}
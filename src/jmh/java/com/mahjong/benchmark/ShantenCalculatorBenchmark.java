@@ -0,0 +1,62 @@
+package com.mahjong.benchmark;
+
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.logic.ShantenCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShantenCalculator.calculateShanten：隨機 14 / 17 張手牌
+ *
+ * - warm：1024 手輪流計算，用到的查表都在快取裡
+ * - cold：262144 手輪流計算，大部分 key 的查表都不在 CPU 快取裡（表在類別載入時已建好，不再有首次計算）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShantenCalculatorBenchmark {
+
+    @Param({"14", "17"})
+    int size;
+
+    @Param({"warm", "cold"})
+    String keys;
+
+    private int[][] hands;
+    private int mask;
+    private ShantenCalculator calculator;
+    private int next;
+
+    @Setup
+    public void setup() {
+        int pool = "warm".equals(keys) ? 1 << 10 : 1 << 18;
+        HandGenerator generator = new HandGenerator(12345L + size);
+        hands = new int[pool][34];
+        for (int[] counts : hands) {
+            PlayerHand hand = generator.randomHand(size);
+            hand.copyCounts(counts);
+        }
+        mask = pool - 1;
+        calculator = new ShantenCalculator();
+    }
+
+    @Benchmark
+    public int calculateShanten() {
+        next = (next + 1) & mask;
+        return calculator.calculateShanten(hands[next], size);
+    }
+}
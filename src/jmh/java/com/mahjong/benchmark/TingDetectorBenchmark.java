@@ -0,0 +1,59 @@
+package com.mahjong.benchmark;
+
+import com.mahjong.logic.EvaluationCache;
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.logic.TingDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TingDetector.detectTing：聽牌手牌（胡牌拿掉一張）與隨機 13 張手牌
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TingDetectorBenchmark {
+
+    private static final int POOL = 1024;
+
+    @Param({"oneAway", "random"})
+    String kind;
+
+    @Param({"on", "off"})
+    String cache;
+
+    private PlayerHand[] hands;
+    private TingDetector detector;
+    private int next;
+
+    @Setup
+    public void setup() {
+        HandGenerator generator = new HandGenerator(7L);
+        hands = new PlayerHand[POOL];
+        for (int i = 0; i < POOL; i++) {
+            hands[i] = "oneAway".equals(kind) ? generator.oneAwayHand(14) : generator.randomHand(13);
+        }
+        detector = new TingDetector("on".equals(cache) ? new EvaluationCache(EvaluationCache.DEFAULT_CAPACITY)
+                : new EvaluationCache(1));
+    }
+
+    @Benchmark
+    public TingDetector.TingResult detectTing() {
+        next = (next + 1) & (POOL - 1);
+        return detector.detectTing(hands[next]);
+    }
+}
@@ -0,0 +1,78 @@
+package com.mahjong.benchmark;
+
+import com.mahjong.logic.EvaluationCache;
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.logic.WinStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WinStrategy 的胡牌判定：標準型 / 七對子 / 十三么
+ *
+ * cache=off 時使用只有 1 格的快取，輪流判定不同手牌，等同每次都重新計算。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WinStrategyBenchmark {
+
+    private static final int POOL = 1024;
+
+    @Param({"14", "17"})
+    int size;
+
+    @Param({"winning", "random"})
+    String kind;
+
+    @Param({"on", "off"})
+    String cache;
+
+    private PlayerHand[] hands;
+    private WinStrategy strategy;
+    private int next;
+
+    @Setup
+    public void setup() {
+        HandGenerator generator = new HandGenerator(20240101L + size);
+        hands = new PlayerHand[POOL];
+        for (int i = 0; i < POOL; i++) {
+            hands[i] = "winning".equals(kind) ? generator.winningHand(size) : generator.randomHand(size);
+        }
+        strategy = new WinStrategy("on".equals(cache) ? new EvaluationCache(EvaluationCache.DEFAULT_CAPACITY)
+                : new EvaluationCache(1));
+    }
+
+    private PlayerHand nextHand() {
+        next = (next + 1) & (POOL - 1);
+        return hands[next];
+    }
+
+    @Benchmark
+    public boolean isWinningHand() {
+        return strategy.isWinningHand(nextHand());
+    }
+
+    @Benchmark
+    public boolean isSevenPairs() {
+        return strategy.isSevenPairs(nextHand());
+    }
+
+    @Benchmark
+    public boolean isThirteenOrphans() {
+        return strategy.isThirteenOrphans(nextHand());
+    }
+}
@@ -142,6 +142,54 @@ public class ActionProcessor {
         return actions;
     }
 
+    /**
+     * 使用各座位維護的位元遮罩檢查所有玩家可以執行的動作
+     * 結果與 {@link #checkPossibleActions(List, Tile, int, int)} 相同，
+     * 但每個座位只需要幾個 bit 測試（遮罩只在手牌改變時重算）
+     *
+     * @param seatMasks          每個座位的 ClaimMasks（索引即座位）
+     * @param discardedTile      被打出的牌
+     * @param discardPlayerIndex 打牌的玩家索引
+     * @return 可執行的動作列表，已按優先級排序
+     */
+    public List<Action> checkPossibleActions(
+            List<ClaimMasks> seatMasks,
+            Tile discardedTile,
+            int discardPlayerIndex) {
+
+        List<Action> actions = new ArrayList<>();
+        int playerCount = seatMasks.size();
+        int nextPlayer = (discardPlayerIndex + 1) % playerCount;
+
+        for (int i = 0; i < playerCount; i++) {
+            if (i == discardPlayerIndex)
+                continue;
+
+            ClaimMasks masks = seatMasks.get(i);
+            if (masks.canHu(discardedTile)) {
+                actions.add(new Action(ActionType.HU, i, discardedTile));
+            }
+            if (masks.canKong(discardedTile)) {
+                actions.add(new Action(ActionType.KONG, i, discardedTile));
+            }
+            if (masks.canPong(discardedTile)) {
+                actions.add(new Action(ActionType.PONG, i, discardedTile));
+            }
+            if (i == nextPlayer && masks.canChow(discardedTile)) {
+                for (List<Tile> option : getChowOptions(masks.getHand(), discardedTile)) {
+                    Action chowAction = new Action(ActionType.CHOW, i, discardedTile);
+                    chowAction.setInvolvedTiles(option);
+                    actions.add(chowAction);
+                }
+            }
+        }
+
+        // 按優先級排序
+        actions.sort(Comparator.comparingInt(a -> a.getType().getPriority()));
+
+        return actions;
+    }
+
     /**
      * 檢查自摸胡牌
      */
@@ -153,13 +201,10 @@ public class ActionProcessor {
      * 檢查點炮胡牌
      */
     private boolean canHu(PlayerHand hand, Tile discardedTile) {
-        // 創建臨時手牌加入被打出的牌
-        PlayerHand tempHand = cloneHand(hand);
-        tempHand.addTile(discardedTile);
-
-        return winStrategy.isWinningHand(tempHand) ||
-                winStrategy.isSevenPairs(tempHand) ||
-                winStrategy.isThirteenOrphans(tempHand);
+        // 直接以數量陣列檢查「手牌 + 被打出的牌」，不複製手牌
+        return winStrategy.isWinningHand(hand, discardedTile) ||
+                winStrategy.isSevenPairs(hand, discardedTile) ||
+                winStrategy.isThirteenOrphans(hand, discardedTile);
     }
 
     /**
@@ -172,15 +217,14 @@ public class ActionProcessor {
             return options; // 字牌不能吃
         }
 
-        List<Tile> tiles = hand.getStandingTiles();
         Tile.Suit suit = targetTile.getSuit();
         int rank = targetTile.getRank();
 
         // 三種可能的順子：
         // 1. (rank-2, rank-1, rank) 例如：目標是3，手上有1,2
         if (rank >= 3) {
-            Tile tile1 = findTile(tiles, suit, rank - 2);
-            Tile tile2 = findTile(tiles, suit, rank - 1);
+            Tile tile1 = findTile(hand, suit, rank - 2);
+            Tile tile2 = findTile(hand, suit, rank - 1);
             if (tile1 != null && tile2 != null) {
                 options.add(Arrays.asList(tile1, tile2, targetTile));
             }
@@ -188,8 +232,8 @@ public class ActionProcessor {
 
         // 2. (rank-1, rank, rank+1) 例如：目標是3，手上有2,4
         if (rank >= 2 && rank <= 8) {
-            Tile tile1 = findTile(tiles, suit, rank - 1);
-            Tile tile2 = findTile(tiles, suit, rank + 1);
+            Tile tile1 = findTile(hand, suit, rank - 1);
+            Tile tile2 = findTile(hand, suit, rank + 1);
             if (tile1 != null && tile2 != null) {
                 options.add(Arrays.asList(tile1, targetTile, tile2));
             }
@@ -197,8 +241,8 @@ public class ActionProcessor {
 
         // 3. (rank, rank+1, rank+2) 例如：目標是3，手上有4,5
         if (rank <= 7) {
-            Tile tile1 = findTile(tiles, suit, rank + 1);
-            Tile tile2 = findTile(tiles, suit, rank + 2);
+            Tile tile1 = findTile(hand, suit, rank + 1);
+            Tile tile2 = findTile(hand, suit, rank + 2);
             if (tile1 != null && tile2 != null) {
                 options.add(Arrays.asList(targetTile, tile1, tile2));
             }
@@ -208,45 +252,11 @@ public class ActionProcessor {
     }
 
     /**
-     * 在手牌中尋找指定花色和數字的牌
-     */
-    private Tile findTile(List<Tile> tiles, Tile.Suit suit, int rank) {
-        for (Tile tile : tiles) {
-            if (tile.getSuit() == suit && tile.getRank() == rank) {
-                return tile;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * 複製手牌（用於胡牌檢查）
+     * 在手牌中尋找指定花色和數字的牌（O(1) 查數量陣列）
      */
-    private PlayerHand cloneHand(PlayerHand original) {
-        PlayerHand clone = new PlayerHand();
-        for (Tile tile : original.getStandingTiles()) {
-            clone.addTile(tile);
-        }
-        // Assuming addMeld(Meld) exists or adapting if it doesn't
-        // Original PlayerHand has addMeld(Meld), waiting for verification or I might
-        // need to fix it.
-        // Looking at ActionProcessor instructions, it calls addMeld(Meld), so
-        // PlayerHand needs it.
-        // My previous view of PlayerHand showed a method "addMeld(Type type, String
-        // tileName)".
-        // I might need to add "addMeld(Meld meld)" back or ensure compatibility.
-        // The previous tool call output for PlayerHand showed "addMeld(Meld m) {
-        // openMelds.add(m); }" logic was replaced or existed?
-        // Ah, I modified `addMeld(String tileName)` to `addMeld(Type, String)`.
-        // Let's assume `addMeld(Meld)` exists or I'll fix it if compilation fails.
-        // For safe measure, I'll check PlayerHand again or just rely on ActionProcessor
-        // calling internal mechanics?
-        // Actually ActionProcessor `cloneHand` calls `clone.addMeld(meld)`.
-        // `PlayerHand.java` has `openMelds` list. I can just access it or add a method.
-        for (Meld meld : original.getOpenMelds()) {
-            clone.addMeld(meld);
-        }
-        return clone;
+    private Tile findTile(PlayerHand hand, Tile.Suit suit, int rank) {
+        int index = suit.ordinal() * 9 + rank - 1;
+        return hand.getCount(index) > 0 ? Tile.fromIndex(index) : null;
     }
 
     /**
@@ -286,12 +296,8 @@ public class ActionProcessor {
     public void executePong(PlayerHand hand, Tile targetTile) {
         // 從手牌移除兩張相同的牌
         int removed = 0;
-        List<Tile> tiles = new ArrayList<>(hand.getStandingTiles());
-        for (Tile tile : tiles) {
-            if (tile.equals(targetTile) && removed < 2) {
-                hand.removeTile(tile); // 使用 Tile 物件而非 String
-                removed++;
-            }
+        while (removed < 2 && hand.removeTile(targetTile)) {
+            removed++;
         }
 
         if (removed != 2) {
@@ -309,12 +315,8 @@ public class ActionProcessor {
     public void executeKong(PlayerHand hand, Tile targetTile) {
         // 從手牌移除三張相同的牌
         int removed = 0;
-        List<Tile> tiles = new ArrayList<>(hand.getStandingTiles());
-        for (Tile tile : tiles) {
-            if (tile.equals(targetTile) && removed < 3) {
-                hand.removeTile(tile); // 使用 Tile 物件而非 String
-                removed++;
-            }
+        while (removed < 3 && hand.removeTile(targetTile)) {
+            removed++;
         }
 
         if (removed != 3) {
@@ -333,20 +335,14 @@ public class ActionProcessor {
      */
     public List<Tile> getConcealedKongOptions(PlayerHand hand) {
         List<Tile> options = new ArrayList<>();
-        Map<Tile, Integer> counts = new HashMap<>();
-        
-        // 計算每種牌的數量
-        for (Tile tile : hand.getStandingTiles()) {
-            counts.put(tile, counts.getOrDefault(tile, 0) + 1);
-        }
-        
+
         // 找出數量為 4 的牌
-        for (Map.Entry<Tile, Integer> entry : counts.entrySet()) {
-            if (entry.getValue() == 4) {
-                options.add(entry.getKey());
+        for (int i = 0; i < 34; i++) {
+            if (hand.getCount(i) == 4) {
+                options.add(Tile.fromIndex(i));
             }
         }
-        
+
         return options;
     }
 
@@ -358,12 +354,8 @@ public class ActionProcessor {
     public void executeConcealedKong(PlayerHand hand, Tile tile) {
         // 移除 4 張牌
         int removed = 0;
-        List<Tile> tiles = new ArrayList<>(hand.getStandingTiles());
-        for (Tile t : tiles) {
-            if (t.equals(tile) && removed < 4) {
-                hand.removeTile(t);
-                removed++;
-            }
+        while (removed < 4 && hand.removeTile(tile)) {
+            removed++;
         }
         
         if (removed != 4) {
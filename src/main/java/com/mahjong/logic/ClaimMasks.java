@@ -0,0 +1,133 @@
+package com.mahjong.logic;
+
+/**
+ * 單一座位的「可宣告」位元遮罩
+ *
+ * 每種牌 (0-33) 對應 long 的一個 bit：
+ * - huMask：別人打出這張牌時可以胡（標準型 / 七對子 / 十三么，與 ActionProcessor 一致）
+ * - pongMask：手上至少 2 張
+ * - kongMask：手上至少 3 張
+ * - chowMask：手上有兩張可以和這張組成順子（是否為下家由呼叫者判斷）
+ *
+ * 遮罩只在手牌版本 ({@link PlayerHand#getVersion()}) 改變時重算，
+ * 打牌時的判定因此只剩下幾個 bit 測試。
+ */
+public class ClaimMasks {
+
+    private final PlayerHand hand;
+    private final WinStrategy winStrategy;
+    private final int[] counts = new int[34];
+
+    private int computedVersion;
+    private boolean computed;
+    private long huMask;
+    private long pongMask;
+    private long kongMask;
+    private long chowMask;
+
+    public ClaimMasks(PlayerHand hand) {
+        this(hand, new WinStrategy());
+    }
+
+    public ClaimMasks(PlayerHand hand, WinStrategy winStrategy) {
+        this.hand = hand;
+        this.winStrategy = winStrategy;
+    }
+
+    public PlayerHand getHand() {
+        return hand;
+    }
+
+    public boolean canHu(Tile tile) {
+        refresh();
+        return (huMask & bit(tile)) != 0;
+    }
+
+    public boolean canPong(Tile tile) {
+        refresh();
+        return (pongMask & bit(tile)) != 0;
+    }
+
+    public boolean canKong(Tile tile) {
+        refresh();
+        return (kongMask & bit(tile)) != 0;
+    }
+
+    public boolean canChow(Tile tile) {
+        refresh();
+        return (chowMask & bit(tile)) != 0;
+    }
+
+    public long getHuMask() {
+        refresh();
+        return huMask;
+    }
+
+    public long getPongMask() {
+        refresh();
+        return pongMask;
+    }
+
+    public long getKongMask() {
+        refresh();
+        return kongMask;
+    }
+
+    public long getChowMask() {
+        refresh();
+        return chowMask;
+    }
+
+    private static long bit(Tile tile) {
+        return 1L << tile.getIndex();
+    }
+
+    /**
+     * 手牌版本改變時才重算四個遮罩
+     */
+    private void refresh() {
+        int version = hand.getVersion();
+        if (computed && version == computedVersion) {
+            return;
+        }
+        hand.copyCounts(counts);
+        int standing = hand.getTileCount();
+        int meldTiles = hand.getConnectionCount() - standing;
+
+        long hu = 0;
+        long pong = 0;
+        long kong = 0;
+        long chow = 0;
+        for (int i = 0; i < 34; i++) {
+            int c = counts[i];
+            if (c >= 2) pong |= 1L << i;
+            if (c >= 3) kong |= 1L << i;
+            if (i < 27 && canChowAt(i)) chow |= 1L << i;
+
+            counts[i]++;
+            if (winStrategy.isWinningCounts(counts, standing + 1, meldTiles)
+                    || winStrategy.isSevenPairsCounts(counts, standing + 1)
+                    || winStrategy.isThirteenOrphansCounts(counts, standing + 1)) {
+                hu |= 1L << i;
+            }
+            counts[i]--;
+        }
+
+        huMask = hu;
+        pongMask = pong;
+        kongMask = kong;
+        chowMask = chow;
+        computedVersion = version;
+        computed = true;
+    }
+
+    /**
+     * 與 HandValidator.getChowCombinations 相同的三種組合：(r-2,r-1) / (r-1,r+1) / (r+1,r+2)
+     */
+    private boolean canChowAt(int index) {
+        int rank = index % 9; // 0-8
+        return (rank >= 2 && counts[index - 2] > 0 && counts[index - 1] > 0)
+                || (rank >= 1 && rank <= 7 && counts[index - 1] > 0 && counts[index + 1] > 0)
+                || (rank <= 6 && counts[index + 1] > 0 && counts[index + 2] > 0);
+    }
+}
@@ -0,0 +1,143 @@
+package com.mahjong.logic;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 以手牌 Zobrist hash 為 key 的分析結果快取（胡牌 / 聽牌 / 台數）
+ *
+ * - 固定容量（2 的次方），不會無限成長
+ * - 取代策略：direct-mapped，同一格的新結果覆蓋舊結果
+ * - 執行緒安全：每一格是不可變的 Entry，透過 AtomicReferenceArray 發布，不需要鎖
+ * - 提供命中/未命中/覆蓋次數統計
+ *
+ * 不同種類的結果以 {@link Kind} 的 salt 混入 key，避免互相干擾。
+ */
+public final class EvaluationCache {
+
+    /**
+     * 快取的結果種類
+     */
+    public enum Kind {
+        WIN, SEVEN_PAIRS, THIRTEEN_ORPHANS, TING, TAI;
+
+        private final long salt = mix(0x9E3779B97F4A7C15L * (ordinal() + 1));
+    }
+
+    /** 預設容量：65536 格 */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final EvaluationCache DEFAULT = new EvaluationCache(DEFAULT_CAPACITY);
+
+    private static final class Entry {
+        final long key;
+        final long value;
+
+        Entry(long key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity 容量（會向上取到 2 的次方）
+     */
+    public EvaluationCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * 所有 WinStrategy / TingDetector / ScoringCalculator 預設共用的快取
+     */
+    public static EvaluationCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 組合種類與 hash 成為快取 key
+     */
+    public static long key(Kind kind, long hash) {
+        return mix(hash ^ kind.salt);
+    }
+
+    /**
+     * @return 快取的值；沒有時回傳 missing
+     */
+    public long get(long key, long missing) {
+        Entry e = slots.get(index(key));
+        if (e != null && e.key == key) {
+            hits.increment();
+            return e.value;
+        }
+        misses.increment();
+        return missing;
+    }
+
+    public void put(long key, long value) {
+        Entry old = slots.getAndSet(index(key), new Entry(key, value));
+        if (old != null && old.key != key) {
+            evictions.increment();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 清空內容與統計
+     */
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            slots.set(i, null);
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    private int index(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    /**
+     * SplitMix64 finalizer：把輸入打散成均勻分布的 64-bit 值
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
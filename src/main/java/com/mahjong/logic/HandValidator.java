@@ -1,7 +1,5 @@
 package com.mahjong.logic;
 
-import java.util.List;
-
 /**
  * Validates player actions like Chow, Pong, Kong.
  */
@@ -12,13 +10,7 @@ public class HandValidator {
      * Requirement: Player has at least 2 consecutive copies of the target tile.
      */
     public boolean canPong(PlayerHand hand, Tile discard) {
-        int count = 0;
-        for (Tile t : hand.getStandingTiles()) {
-            if (t == discard) {
-                count++;
-            }
-        }
-        return count >= 2;
+        return discard != null && hand.getCount(discard) >= 2;
     }
 
     /**
@@ -26,13 +18,7 @@ public class HandValidator {
      * Requirement: Player has 3 consecutive copies of the target tile.
      */
     public boolean canKong(PlayerHand hand, Tile discard) {
-        int count = 0;
-        for (Tile t : hand.getStandingTiles()) {
-            if (t == discard) {
-                count++;
-            }
-        }
-        return count >= 3;
+        return discard != null && hand.getCount(discard) >= 3;
     }
 
     /**
@@ -57,26 +43,25 @@ public class HandValidator {
             return options;
         }
 
-        List<Tile> tiles = hand.getStandingTiles();
         Tile.Suit suit = discard.getSuit();
         int rank = discard.getRank();
 
         // 1. Check (r-2, r-1)
-        if (contains(tiles, suit, rank - 2) && contains(tiles, suit, rank - 1)) {
+        if (contains(hand, suit, rank - 2) && contains(hand, suit, rank - 1)) {
             String c1 = tileStr(suit, rank - 2);
             String c2 = tileStr(suit, rank - 1);
             options.add("CHOW " + c1 + "," + c2);
         }
 
         // 2. Check (r-1, r+1)
-        if (contains(tiles, suit, rank - 1) && contains(tiles, suit, rank + 1)) {
+        if (contains(hand, suit, rank - 1) && contains(hand, suit, rank + 1)) {
             String c1 = tileStr(suit, rank - 1);
             String c2 = tileStr(suit, rank + 1);
             options.add("CHOW " + c1 + "," + c2);
         }
 
         // 3. Check (r+1, r+2)
-        if (contains(tiles, suit, rank + 1) && contains(tiles, suit, rank + 2)) {
+        if (contains(hand, suit, rank + 1) && contains(hand, suit, rank + 2)) {
             String c1 = tileStr(suit, rank + 1);
             String c2 = tileStr(suit, rank + 2);
             options.add("CHOW " + c1 + "," + c2);
@@ -115,40 +100,16 @@ public class HandValidator {
 
     /**
      * Checks if a player can Hu (Win) on a discarded tile.
-     * Uses clone to avoid modifying the original hand.
+     * Evaluates hand + discard directly on counts; the original hand is not modified.
      */
     public boolean canHu(PlayerHand hand, Tile discard) {
-        // Clone the hand to avoid modifying the original
-        PlayerHand tempHand = cloneHand(hand);
-        tempHand.addTile(discard);
-        return winStrategy.isWinningHand(tempHand);
-    }
-    
-    /**
-     * Clone a PlayerHand for safe testing without modifying the original.
-     */
-    private PlayerHand cloneHand(PlayerHand original) {
-        PlayerHand clone = new PlayerHand();
-        // Copy all standing tiles
-        for (Tile tile : original.getStandingTiles()) {
-            clone.addTile(tile);
-        }
-        // Copy all open melds
-        for (Meld meld : original.getOpenMelds()) {
-            clone.addMeld(meld);
-        }
-        return clone;
+        return winStrategy.isWinningHand(hand, discard);
     }
 
-    // Helper to check containment
-    private boolean contains(List<Tile> tiles, Tile.Suit suit, int rank) {
+    // Helper to check containment (O(1) on the hand's count vector)
+    private boolean contains(PlayerHand hand, Tile.Suit suit, int rank) {
         if (rank < 1 || rank > 9)
             return false;
-        for (Tile t : tiles) {
-            if (t.getSuit() == suit && t.getRank() == rank) {
-                return true;
-            }
-        }
-        return false;
+        return hand.getCount(suit.ordinal() * 9 + rank - 1) > 0;
     }
 }
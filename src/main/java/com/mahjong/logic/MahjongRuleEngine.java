@@ -1,51 +1,108 @@
 package com.mahjong.logic;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
 /**
  * Core game engine.
  * Manages the wall, dealing, and turn flow.
+ *
+ * 牌牆以 byte 陣列（牌的 index）加上頭尾兩個指標表示：
+ * - drawTile：從牌頭摸牌，O(1)
+ * - drawReplacementTile：槓牌後從牌尾補牌，O(1)
+ * - 牌尾保留 deadWallSize 張（不會被一般摸牌摸到，預設 0）
+ * - reset：下一局重用同一個陣列，不重新建立
  */
 public class MahjongRuleEngine {
-    private final List<Tile> wall;
+    private static final int COPIES = 4;
+    private static final int WALL_SIZE = Tile.values().length * COPIES;
+
+    private final byte[] wall = new byte[WALL_SIZE];
     private final Random random;
+    private final int deadWallSize;
+    private int head;
+    private int tail;
 
     // Dependency Injection for Random to allow test seeding
     public MahjongRuleEngine(Random random) {
+        this(random, 0);
+    }
+
+    /**
+     * @param random       洗牌用的亂數來源
+     * @param deadWallSize 牌尾保留不摸的張數
+     */
+    public MahjongRuleEngine(Random random, int deadWallSize) {
+        if (deadWallSize < 0 || deadWallSize >= WALL_SIZE) {
+            throw new IllegalArgumentException("Invalid dead wall size: " + deadWallSize);
+        }
         this.random = random;
-        this.wall = new ArrayList<>();
+        this.deadWallSize = deadWallSize;
         initializeWall();
     }
 
     private void initializeWall() {
-        wall.clear();
-        for (Tile tile : Tile.values()) {
-            // Taiwan Mahjong: 144 tiles (4 of each)
-            // Flowers are ignored per scope limitation
-            for (int i = 0; i < 4; i++) {
-                wall.add(tile);
+        // Taiwan Mahjong: 144 tiles (4 of each)
+        // Flowers are ignored per scope limitation
+        int n = 0;
+        for (int index = 0; index < Tile.values().length; index++) {
+            for (int i = 0; i < COPIES; i++) {
+                wall[n++] = (byte) index;
             }
         }
+        head = 0;
+        tail = WALL_SIZE;
+    }
+
+    /**
+     * 重新排好整副牌（重用同一個陣列），之後需要再呼叫 {@link #shuffle()}
+     */
+    public void reset() {
+        initializeWall();
     }
 
+    /**
+     * 對還沒摸走的牌做原地 Fisher–Yates 洗牌
+     */
     public void shuffle() {
-        Collections.shuffle(wall, random);
+        for (int i = tail - 1; i > head; i--) {
+            int j = head + random.nextInt(i - head + 1);
+            byte tmp = wall[i];
+            wall[i] = wall[j];
+            wall[j] = tmp;
+        }
     }
 
     public Tile drawTile() {
-        if (wall.isEmpty()) {
+        if (getRemainingTiles() <= 0) {
             return null; // Wall exhausted (Draw game)
         }
-        return wall.remove(0);
+        return Tile.fromIndex(wall[head++]);
+    }
+
+    /**
+     * 槓牌後從牌尾補牌
+     *
+     * @return 補到的牌；整副牌都摸完時回傳 null
+     */
+    public Tile drawReplacementTile() {
+        if (tail == head) {
+            return null;
+        }
+        return Tile.fromIndex(wall[--tail]);
     }
 
+    /**
+     * @return 一般摸牌還能摸的張數（不含保留的牌尾）
+     */
     public int getRemainingTiles() {
-        return wall.size();
+        return Math.max(0, tail - head - deadWallSize);
     }
-    
+
+    public int getDeadWallSize() {
+        return deadWallSize;
+    }
+
     // Helper to deal initial hands (16 tiles each)
     public void dealInitialHands(List<PlayerHand> players) {
         for (int i = 0; i < 16; i++) {
@@ -56,6 +113,6 @@ public class MahjongRuleEngine {
                 }
             }
         }
-        players.forEach(PlayerHand::sort);
+        // PlayerHand 以數量陣列儲存，永遠是排序狀態，不需要再 sort
     }
 }
@@ -1,7 +1,7 @@
 package com.mahjong.logic;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -12,8 +12,11 @@ import java.util.Objects;
  * 重構說明：
  * - 移除舊建構子 Meld(Type, Tile)，統一使用 Meld(Type, List<Tile>)
  * - 提供便利方法 createPong(), createKong(), createChow() 簡化創建
+ *
+ * Meld 是不可變的值物件：便利方法回傳共用的實例（每種 型態/牌/暗槓 一個，
+ * 每種順子一個），getTiles() 回傳唯讀視圖，不會複製。
  */
-public class Meld {
+public final class Meld {
     public enum Type {
         CHOW, PONG, KONG, EYES
     }
@@ -21,6 +24,7 @@ public class Meld {
     private final Type type;
     private final List<Tile> tiles;
     private final boolean concealed; // ✅ P1-1: 是否暗的（用於暗槓）
+    private final long zobristKey; // 用於 PlayerHand 的 Zobrist hash（與牌的順序無關）
 
     /**
      * 主要建構子：使用完整的牌列表
@@ -42,11 +46,27 @@ public class Meld {
             throw new IllegalArgumentException("Tiles list cannot be null or empty");
         }
         this.type = type;
-        this.tiles = new ArrayList<>(tiles);
+        this.tiles = Collections.unmodifiableList(new ArrayList<>(tiles));
         this.concealed = concealed;
         
         // 驗證牌數是否符合類型
         validateTileCount();
+        this.zobristKey = computeZobristKey();
+    }
+
+    private long computeZobristKey() {
+        long h = type.ordinal() * 0x100L + (concealed ? 1 : 0);
+        for (Tile t : tiles) {
+            h += EvaluationCache.mix(0x6D656C64L + t.getIndex());
+        }
+        return EvaluationCache.mix(h);
+    }
+
+    /**
+     * Zobrist key（型態、牌、是否暗槓），PlayerHand 以 XOR 併入手牌 hash
+     */
+    long getZobristKey() {
+        return zobristKey;
     }
 
     /**
@@ -78,31 +98,52 @@ public class Meld {
         }
     }
 
+    private static final Tile[] TILES = Tile.values();
+    private static final Meld[] PONGS = new Meld[TILES.length];
+    private static final Meld[] KONGS = new Meld[TILES.length];
+    private static final Meld[] CONCEALED_KONGS = new Meld[TILES.length];
+    private static final Meld[] EYES_MELDS = new Meld[TILES.length];
+    /** 以順子最小那張牌的 index 索引（只有數字牌 rank 1-7 有值） */
+    private static final Meld[] CHOWS = new Meld[27];
+
+    static {
+        for (Tile t : TILES) {
+            int i = t.getIndex();
+            PONGS[i] = new Meld(Type.PONG, List.of(t, t, t), false);
+            KONGS[i] = new Meld(Type.KONG, List.of(t, t, t, t), false);
+            CONCEALED_KONGS[i] = new Meld(Type.KONG, List.of(t, t, t, t), true);
+            EYES_MELDS[i] = new Meld(Type.EYES, List.of(t, t), false);
+            if (i < 27 && i % 9 <= 6) {
+                CHOWS[i] = new Meld(Type.CHOW, List.of(t, TILES[i + 1], TILES[i + 2]), false);
+            }
+        }
+    }
+
     /**
      * 便利方法：創建碰牌（Pong）
      * @param tile 要碰的牌（會自動複製 3 次）
-     * @return 新的 Meld 物件
+     * @return 共用的 Meld 物件
      */
     public static Meld createPong(Tile tile) {
-        return new Meld(Type.PONG, Arrays.asList(tile, tile, tile));
+        return PONGS[tile.getIndex()];
     }
 
     /**
      * 便利方法：創建槓牌（Kong - 明槓）
      * @param tile 要槓的牌（會自動複製 4 次）
-     * @return 新的 Meld 物件
+     * @return 共用的 Meld 物件
      */
     public static Meld createKong(Tile tile) {
-        return new Meld(Type.KONG, Arrays.asList(tile, tile, tile, tile), false);
+        return KONGS[tile.getIndex()];
     }
 
     /**
      * ✅ P1-1: 便利方法：創建暗槓（Concealed Kong）
      * @param tile 要暗槓的牌（會自動複製 4 次）
-     * @return 新的 Meld 物件（concealed = true）
+     * @return 共用的 Meld 物件（concealed = true）
      */
     public static Meld createConcealedKong(Tile tile) {
-        return new Meld(Type.KONG, Arrays.asList(tile, tile, tile, tile), true);
+        return CONCEALED_KONGS[tile.getIndex()];
     }
 
     /**
@@ -110,19 +151,23 @@ public class Meld {
      * @param t1 第一張牌
      * @param t2 第二張牌
      * @param t3 第三張牌
-     * @return 新的 Meld 物件
+     * @return 依序相連的順子回傳共用的 Meld 物件，其他順序則建立新物件（保留傳入順序）
      */
     public static Meld createChow(Tile t1, Tile t2, Tile t3) {
-        return new Meld(Type.CHOW, Arrays.asList(t1, t2, t3));
+        int i = t1.getIndex();
+        if (i < 27 && i % 9 <= 6 && t2.getIndex() == i + 1 && t3.getIndex() == i + 2) {
+            return CHOWS[i];
+        }
+        return new Meld(Type.CHOW, List.of(t1, t2, t3));
     }
 
     /**
      * 便利方法：創建對眼（Eyes/Pair）
      * @param tile 對眼的牌（會自動複製 2 次）
-     * @return 新的 Meld 物件
+     * @return 共用的 Meld 物件
      */
     public static Meld createEyes(Tile tile) {
-        return new Meld(Type.EYES, Arrays.asList(tile, tile));
+        return EYES_MELDS[tile.getIndex()];
     }
 
     public Type getType() {
@@ -139,10 +184,10 @@ public class Meld {
     }
 
     /**
-     * 獲取所有牌的列表（返回副本以避免外部修改）
+     * 獲取所有牌的列表（唯讀視圖，不複製）
      */
     public List<Tile> getTiles() {
-        return new ArrayList<>(tiles);
+        return tiles;
     }
 
     /**
@@ -1,49 +1,174 @@
 package com.mahjong.logic;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Manages the tiles in a player's hand.
  * Supports adding/removing tiles and managing exposed melds.
+ *
+ * 手牌以 34 格的數量陣列儲存（索引見 {@link Tile#getIndex()}），
+ * 新增/移除/計數都是 O(1)，排序後的列表直接由數量陣列依索引順序產生。
  */
 public class PlayerHand {
-    private final List<Tile> standingTiles; // Hand tiles (hidden)
+    private final int[] counts; // Hand tiles (hidden), count per tile index
+    private int standingCount;
     private final List<Meld> openMelds; // Exposed melds (Chow/Pong/Kong)
+    private final List<Meld> openMeldsView; // 唯讀視圖，getOpenMelds() 不複製
+    private int version; // 每次手牌或面子變動就 +1，供快取判斷是否需要重算
+    private long zobristHash; // 手牌 + 面子的 Zobrist hash，增量維護
 
     public PlayerHand() {
-        this.standingTiles = new ArrayList<>();
+        this.counts = new int[34];
         this.openMelds = new ArrayList<>();
+        this.openMeldsView = Collections.unmodifiableList(openMelds);
     }
 
     public void addTile(Tile tile) {
         if (tile == null)
             return;
-        standingTiles.add(tile);
-        sort();
+        int index = tile.getIndex();
+        zobristHash ^= tileKey(index, counts[index]);
+        counts[index]++;
+        standingCount++;
+        version++;
     }
 
     public boolean removeTile(Tile tile) {
-        return standingTiles.remove(tile);
+        if (tile == null || counts[tile.getIndex()] == 0)
+            return false;
+        int index = tile.getIndex();
+        counts[index]--;
+        zobristHash ^= tileKey(index, counts[index]);
+        standingCount--;
+        version++;
+        return true;
     }
 
     public void addMeld(Meld meld) {
+        appendMeld(meld);
+    }
+
+    private void appendMeld(Meld meld) {
+        zobristHash ^= meldKey(meld);
         openMelds.add(meld);
+        version++;
     }
 
     public List<Tile> getStandingTiles() {
-        return new ArrayList<>(standingTiles); // Return copy
+        // Return copy (sorted, derived from counts)
+        List<Tile> list = new ArrayList<>(standingCount);
+        for (int i = 0; i < counts.length; i++) {
+            Tile t = Tile.fromIndex(i);
+            for (int n = counts[i]; n > 0; n--)
+                list.add(t);
+        }
+        return list;
     }
 
     public List<Meld> getOpenMelds() {
-        return new ArrayList<>(openMelds); // Return copy
+        return openMeldsView; // Read-only view (Meld is immutable)
+    }
+
+    /**
+     * 手牌中指定牌的張數 (O(1))
+     */
+    public int getCount(Tile tile) {
+        return counts[tile.getIndex()];
+    }
+
+    /**
+     * 手牌中指定索引 (0-33) 的張數 (O(1))
+     */
+    public int getCount(int tileIndex) {
+        return counts[tileIndex];
+    }
+
+    /**
+     * 將數量陣列複製到呼叫者提供的 34 格陣列（可重複使用，避免每次配置）
+     */
+    public void copyCounts(int[] target) {
+        System.arraycopy(counts, 0, target, 0, counts.length);
+    }
+
+    /**
+     * 複製一份獨立的手牌（含面子、版本與 hash），之後雙方的變動互不影響；
+     * 用來把分析交給其他執行緒，不需要鎖住原本的手牌
+     */
+    public PlayerHand copy() {
+        PlayerHand copy = new PlayerHand();
+        System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+        copy.standingCount = standingCount;
+        copy.openMelds.addAll(openMelds);
+        copy.version = version;
+        copy.zobristHash = zobristHash;
+        return copy;
+    }
+
+    /**
+     * 清空手牌與面子（新局重用同一個物件）
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        standingCount = 0;
+        openMelds.clear();
+        zobristHash = 0;
+        version++;
+    }
+
+    /**
+     * 手牌（含面子）的 64-bit Zobrist hash，新增/移除時增量更新。
+     * 相同的手牌內容一定得到相同的 hash，可作為分析結果快取的 key。
+     */
+    public long getZobristHash() {
+        return zobristHash;
+    }
+
+    /**
+     * 假設加入 extra 這張牌之後的 Zobrist hash（不修改手牌）
+     */
+    public long getZobristHashWith(Tile extra) {
+        if (extra == null)
+            return zobristHash;
+        int index = extra.getIndex();
+        return zobristHash ^ tileKey(index, counts[index]);
+    }
+
+    /**
+     * 第 copy+1 張 index 牌的 Zobrist key
+     */
+    private static long tileKey(int index, int copy) {
+        return EvaluationCache.mix(((long) index << 8 | copy) + 0x7A6F6272L);
+    }
+
+    /**
+     * 下一個 meld 的 Zobrist key：與 tileKey 相同，以「第幾個相同的面子」區分，
+     * 兩個一模一樣的面子（例如兩組 1-2-3 萬）XOR 後不會互相抵銷
+     */
+    private long meldKey(Meld meld) {
+        long key = meld.getZobristKey();
+        int copy = 0;
+        for (Meld m : openMelds) {
+            if (m.getZobristKey() == key) {
+                copy++;
+            }
+        }
+        return EvaluationCache.mix(key + copy);
+    }
+
+    /**
+     * 手牌版本號：每次新增/移除牌或面子都會改變，可用來判斷快取的分析結果是否過期
+     */
+    public int getVersion() {
+        return version;
     }
 
     public int getConnectionCount() {
         // Taiwan Mahjong: 16 tiles standard hand size
         // Total count = standing + melds
-        int count = standingTiles.size();
+        int count = standingCount;
         for (Meld meld : openMelds) {
             // 使用 Meld 的實際牌數
             count += meld.getTileCount();
@@ -51,30 +176,37 @@ public class PlayerHand {
         return count;
     }
 
+    /**
+     * 手牌永遠依數量陣列的索引順序產生，已經是排序狀態；保留此方法以向後兼容
+     */
     public void sort() {
-        standingTiles.sort(Comparator.comparing(Tile::getSuit).thenComparingInt(Tile::getRank));
+        // no-op: iteration order is always sorted
     }
 
     public boolean removeTile(String tileName) {
-        // Use index to avoid ConcurrentModificationException if iterator logic fails
-        for (int i = 0; i < standingTiles.size(); i++) {
-            if (standingTiles.get(i).toString().equals(tileName)) {
-                standingTiles.remove(i);
-                return true;
-            }
+        if (tileName == null)
+            return false;
+        Tile tile;
+        try {
+            tile = Tile.valueOf(tileName);
+        } catch (IllegalArgumentException e) {
+            return false;
         }
-        return false;
+        return removeTile(tile);
     }
 
     public List<String> getTilesStr() {
-        List<String> list = new ArrayList<>();
-        for (Tile t : standingTiles)
-            list.add(t.toString());
+        List<String> list = new ArrayList<>(standingCount);
+        for (int i = 0; i < counts.length; i++) {
+            String name = Tile.fromIndex(i).toString();
+            for (int n = counts[i]; n > 0; n--)
+                list.add(name);
+        }
         return list;
     }
 
     public int getTileCount() {
-        return standingTiles.size();
+        return standingCount;
     }
 
     /**
@@ -106,7 +238,7 @@ public class PlayerHand {
                 throw new IllegalArgumentException("Unknown meld type: " + type);
         }
         
-        openMelds.add(m);
+        appendMeld(m);
     }
 
     public List<String> getMeldsStr() {
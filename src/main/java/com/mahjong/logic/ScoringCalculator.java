@@ -1,157 +1,300 @@
 package com.mahjong.logic;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Calculates the score (Tai/Fan) for a winning hand.
  * Supports basic Taiwan 16-tile patterns.
+ *
+ * 計算方式：
+ * 1. 一次掃過頻率陣列與副露，取得花色 / 字牌 / 副露刻子等旗標
+ * 2. 把手牌拆解成「面子 + 1 對眼」的所有合法組合只列舉一次，
+ *    每種拆法算出成立的牌型，取台數最高的那一種
+ *    （暗刻來自真正的拆解，而不是「同牌 >= 3 張」的猜測）
+ * 3. 無法拆解的手牌（七對子、測試用的部分手牌）退回以張數判斷的規則
+ *
+ * 結果以牌型 bit mask 記錄在 {@link EvaluationCache}，
+ * {@link #calculateTai} 只需要加總，{@link #calculateTaiBreakdown} 則還原成明細。
  */
 public class ScoringCalculator {
 
+    /**
+     * 計分牌型與台數
+     */
+    public enum Pattern {
+        SELF_DRAW(1),
+        RED_DRAGON(1),
+        GREEN_DRAGON(1),
+        WHITE_DRAGON(1),
+        ROUND_WIND(1),
+        SEAT_WIND(1),
+        FULL_FLUSH(8),
+        HALF_FLUSH(4),
+        ALL_PONGS(4);
+
+        private static final Pattern[] VALUES = values();
+
+        private final int tai;
+
+        Pattern(int tai) {
+            this.tai = tai;
+        }
+
+        public int getTai() {
+            return tai;
+        }
+
+        private int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    private static final int HONOR_START = 27;
+
+    private final EvaluationCache cache;
+
+    public ScoringCalculator() {
+        this(EvaluationCache.getDefault());
+    }
+
+    public ScoringCalculator(EvaluationCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * calculates the total Tai (Fan) for the hand.
      * Assumes the hand is already a winning hand.
+     * 結果依（手牌 hash, 自摸, 圈風, 門風）記錄在 {@link EvaluationCache}。
      */
     public int calculateTai(PlayerHand hand, boolean isSelfDraw, Tile roundWind, Tile seatWind) {
-        int tai = 0;
-        
-        // Base Tai for Self Draw
-        if (isSelfDraw) {
-            tai += 1;
-        }
-
-        // Check for Dragon Pongs (Red, Green, White) - 1 Tai each
-        if (hasPongOrKong(hand, Tile.RED)) tai++;
-        if (hasPongOrKong(hand, Tile.GREEN)) tai++;
-        if (hasPongOrKong(hand, Tile.WHITE)) tai++;
+        return totalOf(patternMask(hand, isSelfDraw, roundWind, seatWind));
+    }
 
-        // Check for Round Wind and Seat Wind
-        if (roundWind != null && hasPongOrKong(hand, roundWind)) tai++;
-        if (seatWind != null && hasPongOrKong(hand, seatWind)) tai++;
+    /**
+     * 與 {@link #calculateTai} 相同的計算，但回傳每個成立牌型的台數明細
+     */
+    public TaiBreakdown calculateTaiBreakdown(PlayerHand hand, boolean isSelfDraw, Tile roundWind, Tile seatWind) {
+        return new TaiBreakdown(patternMask(hand, isSelfDraw, roundWind, seatWind));
+    }
 
-        // Check for Flush (Pure or Mixed)
-        if (isFullFlush(hand)) {
-            tai += 8; // Qing Yi Se
-        } else if (isHalfFlush(hand)) {
-            tai += 4; // Hun Yi Se
+    private int patternMask(PlayerHand hand, boolean isSelfDraw, Tile roundWind, Tile seatWind) {
+        long params = (isSelfDraw ? 1L : 0L)
+                | (roundWind == null ? 0L : roundWind.getIndex() + 1L) << 1
+                | (seatWind == null ? 0L : seatWind.getIndex() + 1L) << 7;
+        long key = EvaluationCache.key(EvaluationCache.Kind.TAI,
+                hand.getZobristHash() ^ EvaluationCache.mix(params));
+        long cached = cache.get(key, -1);
+        if (cached >= 0) {
+            return (int) cached;
         }
 
-        // Check for All Pongs (Pong Pong Hu)
-        if (isAllPongs(hand)) {
-            tai += 4;
-        }
+        int mask = computePatternMask(hand, isSelfDraw, roundWind, seatWind);
+        cache.put(key, mask);
+        return mask;
+    }
 
+    private static int totalOf(int mask) {
+        int tai = 0;
+        for (Pattern p : Pattern.VALUES) {
+            if ((mask & p.bit()) != 0) {
+                tai += p.tai;
+            }
+        }
         return tai;
     }
 
-    private boolean hasPongOrKong(PlayerHand hand, Tile target) {
-        // Check open melds
+    private int computePatternMask(PlayerHand hand, boolean isSelfDraw, Tile roundWind, Tile seatWind) {
+        int[] counts = new int[34];
+        hand.copyCounts(counts);
+
+        // 一次掃過頻率陣列與副露：花色、字牌、副露刻子、是否有吃
+        int suitBits = 0;
+        boolean hasHonors = false;
+        for (int i = 0; i < 34; i++) {
+            if (counts[i] == 0) continue;
+            if (i >= HONOR_START) hasHonors = true;
+            else suitBits |= 1 << (i / 9);
+        }
+
+        long meldTriplets = 0;
+        boolean hasChowMeld = false;
         for (Meld meld : hand.getOpenMelds()) {
-            if ((meld.getType() == Meld.Type.PONG || meld.getType() == Meld.Type.KONG)) {
-                // 檢查 Meld 中是否包含目標牌
-                if (meld.getTiles().contains(target)) {
-                    return true;
-                }
+            boolean triplet = meld.getType() == Meld.Type.PONG || meld.getType() == Meld.Type.KONG;
+            if (meld.getType() == Meld.Type.CHOW) hasChowMeld = true;
+            for (Tile t : meld.getTiles()) {
+                int i = t.getIndex();
+                if (i >= HONOR_START) hasHonors = true;
+                else suitBits |= 1 << (i / 9);
+                if (triplet) meldTriplets |= 1L << i;
             }
         }
-        // Check standing tiles (hidden pongs/kongs are hard to detect without full decomposition)
-        // For simplicity in this simplified rule engine, we might check if count >= 3
-        int count = 0;
-        for (Tile t : hand.getStandingTiles()) {
-            if (t == target) count++;
+
+        int base = isSelfDraw ? Pattern.SELF_DRAW.bit() : 0;
+        int suitCount = Integer.bitCount(suitBits);
+        if (!hasHonors && suitCount <= 1) {
+            base |= Pattern.FULL_FLUSH.bit();      // Qing Yi Se
+        } else if (hasHonors && suitCount == 1) {
+            base |= Pattern.HALF_FLUSH.bit();      // Hun Yi Se
+        }
+
+        Scorer scorer = new Scorer(counts, base, meldTriplets, hasChowMeld, roundWind, seatWind);
+        int standing = hand.getTileCount();
+        if (standing % 3 == 2) {
+            scorer.search(0, false, 0L, 0);
+        }
+        if (scorer.best >= 0) {
+            return scorer.best;
         }
-        return count >= 3;
+
+        // 無法拆成面子 + 眼：退回以張數判斷（同牌 >= 3 張視為刻子）
+        long standingTriplets = 0;
+        for (int i = 0; i < 34; i++) {
+            if (counts[i] >= 3) standingTriplets |= 1L << i;
+        }
+        int mask = base | scorer.tripletPatterns(meldTriplets | standingTriplets);
+        if (!hasChowMeld && isPongsAndOnePair(counts)) {
+            mask |= Pattern.ALL_PONGS.bit();
+        }
+        return mask;
     }
 
-    private boolean isFullFlush(PlayerHand hand) {
-        Tile.Suit firstSuit = null;
-        
-        // Check standing
-        for (Tile t : hand.getStandingTiles()) {
-            if (t.getSuit() == Tile.Suit.DRAGON || t.getSuit() == Tile.Suit.WIND) return false;
-            if (firstSuit == null) firstSuit = t.getSuit();
-            else if (firstSuit != t.getSuit()) return false;
-        }
-        
-        // Check melds
-        for (Meld m : hand.getOpenMelds()) {
-            // 對於清一色檢查，我們檢查 Meld 中所有牌的花色
-            for (Tile t : m.getTiles()) {
-                if (t.getSuit() == Tile.Suit.DRAGON || t.getSuit() == Tile.Suit.WIND) return false;
-                if (firstSuit == null) firstSuit = t.getSuit();
-                else if (firstSuit != t.getSuit()) return false;
-            }
+    /**
+     * 只有 2 張或 3 張的牌，且恰好一組 2 張
+     */
+    private static boolean isPongsAndOnePair(int[] counts) {
+        boolean foundPair = false;
+        for (int c : counts) {
+            if (c == 0 || c == 3) continue;
+            if (c != 2 || foundPair) return false;
+            foundPair = true;
         }
-        
-        return true;
+        return foundPair;
     }
 
-    private boolean isHalfFlush(PlayerHand hand) {
-        Tile.Suit suit = null;
-        boolean hasHonors = false;
+    /**
+     * 列舉手牌所有「面子 + 1 對眼」的拆法，保留台數最高的牌型 mask
+     */
+    private static final class Scorer {
+        private final int[] counts;
+        private final int base;
+        private final long meldTriplets;
+        private final boolean hasChowMeld;
+        private final Tile roundWind;
+        private final Tile seatWind;
+
+        private int best = -1;
+        private int bestTai = -1;
 
-        java.util.List<Tile> allTiles = new java.util.ArrayList<>(hand.getStandingTiles());
-        for (Meld m : hand.getOpenMelds()) {
-            // 添加 Meld 中的所有牌（對於半清一色檢查，我們需要所有牌）
-            allTiles.addAll(m.getTiles());
+        Scorer(int[] counts, int base, long meldTriplets, boolean hasChowMeld, Tile roundWind, Tile seatWind) {
+            this.counts = counts;
+            this.base = base;
+            this.meldTriplets = meldTriplets;
+            this.hasChowMeld = hasChowMeld;
+            this.roundWind = roundWind;
+            this.seatWind = seatWind;
         }
 
-        for (Tile t : allTiles) {
-            if (t.getSuit() == Tile.Suit.DRAGON || t.getSuit() == Tile.Suit.WIND) {
-                hasHonors = true;
-            } else {
-                if (suit == null) suit = t.getSuit();
-                else if (suit != t.getSuit()) return false; // Mixed numeric suits
+        /**
+         * 從 index 開始，找第一張還有剩的牌，嘗試 眼 / 刻子 / 順子
+         */
+        void search(int index, boolean hasPair, long triplets, int chows) {
+            while (index < 34 && counts[index] == 0) {
+                index++;
+            }
+            if (index == 34) {
+                if (hasPair) record(triplets, chows);
+                return;
+            }
+
+            if (!hasPair && counts[index] >= 2) {
+                counts[index] -= 2;
+                search(index, true, triplets, chows);
+                counts[index] += 2;
+            }
+            if (counts[index] >= 3) {
+                counts[index] -= 3;
+                search(index, hasPair, triplets | 1L << index, chows);
+                counts[index] += 3;
+            }
+            if (index < HONOR_START && index % 9 <= 6
+                    && counts[index + 1] > 0 && counts[index + 2] > 0) {
+                counts[index]--;
+                counts[index + 1]--;
+                counts[index + 2]--;
+                search(index, hasPair, triplets, chows + 1);
+                counts[index]++;
+                counts[index + 1]++;
+                counts[index + 2]++;
             }
         }
-        return hasHonors && suit != null;
+
+        private void record(long concealedTriplets, int chows) {
+            int mask = base | tripletPatterns(meldTriplets | concealedTriplets);
+            if (chows == 0 && !hasChowMeld) {
+                mask |= Pattern.ALL_PONGS.bit();
+            }
+            int tai = totalOf(mask);
+            if (tai > bestTai) {
+                bestTai = tai;
+                best = mask;
+            }
+        }
+
+        int tripletPatterns(long triplets) {
+            int mask = 0;
+            if (has(triplets, Tile.RED)) mask |= Pattern.RED_DRAGON.bit();
+            if (has(triplets, Tile.GREEN)) mask |= Pattern.GREEN_DRAGON.bit();
+            if (has(triplets, Tile.WHITE)) mask |= Pattern.WHITE_DRAGON.bit();
+            if (roundWind != null && has(triplets, roundWind)) mask |= Pattern.ROUND_WIND.bit();
+            if (seatWind != null && has(triplets, seatWind)) mask |= Pattern.SEAT_WIND.bit();
+            return mask;
+        }
+
+        private static boolean has(long triplets, Tile tile) {
+            return (triplets & 1L << tile.getIndex()) != 0;
+        }
     }
 
-    private boolean isAllPongs(PlayerHand hand) {
-        // Check Open Melds: Must not contain Chow
-        for (Meld m : hand.getOpenMelds()) {
-            if (m.getType() == Meld.Type.CHOW) return false;
+    /**
+     * 台數明細：成立的牌型與總台數
+     */
+    public static class TaiBreakdown {
+        private final int mask;
+
+        TaiBreakdown(int mask) {
+            this.mask = mask;
         }
-        
-        // Check Standing Tiles: Must be decomposable into Triplet(3) and Pair(2).
-        int[] counts = new int[34];
-        for (Tile t : hand.getStandingTiles()) {
-            counts[getActionIndex(t)]++;
+
+        public int getTotal() {
+            return totalOf(mask);
         }
-        
-        boolean foundPair = false;
-        for (int c : counts) {
-            if (c == 0) continue;
-            
-            if (c == 2) {
-                if (foundPair) return false; // Two pairs -> not PongPongHu (unless 7 pairs, but that is disjoint)
-                foundPair = true;
-            } else if (c == 3) {
-                // OK
-            } else if (c == 4) {
-                 // 4 tiles in hand? Could be AAA + A? No.
-                 // Could be pair + pair? yes.
-                 // But for PongPongHu, usually we declare Kong if we have 4.
-                 // If 4 in hand, it's 7 pairs or Kong.
-                 // Let's conservative fail or assume Kong?
-                 // Simple logic: strictly 2 or 3.
-                 return false; 
-            } else {
-                return false; // 1, or > 4
+
+        public boolean has(Pattern pattern) {
+            return (mask & pattern.bit()) != 0;
+        }
+
+        /**
+         * @return 成立的牌型（依 {@link Pattern} 宣告順序）
+         */
+        public List<Pattern> getPatterns() {
+            List<Pattern> patterns = new ArrayList<>();
+            for (Pattern p : Pattern.VALUES) {
+                if (has(p)) patterns.add(p);
             }
+            return Collections.unmodifiableList(patterns);
         }
-        
-        return foundPair;
-    }
 
-    private int getActionIndex(Tile tile) {
-        switch (tile.getSuit()) {
-            case MAN: return tile.getRank() - 1;       // 0-8
-            case PIN: return 9 + (tile.getRank() - 1); // 9-17
-            case SOU: return 18 + (tile.getRank() - 1);// 18-26
-            case WIND: return 27 + (tile.getRank() - 1);// 27-30
-            case DRAGON: return 31 + (tile.getRank() - 1);// 31-33
-            default: throw new IllegalArgumentException("Unknown tile suit");
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Tai ").append(getTotal()).append(": ");
+            List<Pattern> patterns = getPatterns();
+            for (int i = 0; i < patterns.size(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(patterns.get(i)).append('=').append(patterns.get(i).getTai());
+            }
+            return sb.toString();
         }
     }
 }
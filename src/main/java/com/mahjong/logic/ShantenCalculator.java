@@ -0,0 +1,383 @@
+package com.mahjong.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 向聽數計算器（距離聽牌還差幾張）
+ *
+ * 回傳值：-1 = 已胡牌，0 = 聽牌，1 = 一向聽，依此類推。
+ * 涵蓋 WinStrategy 支援的三種牌型，取最小值：
+ * 1. 標準型 N 個面子 + 1 對眼（14 張或 17 張）
+ * 2. 七對子（手牌 13/14 張時，與 WinStrategy.isSevenPairs 一致，4 張同牌算 2 對）
+ * 3. 十三么（手牌 13/14 張時）
+ *
+ * 標準型採用「距離」定義：最少還要換進幾張牌才能湊成 N 個面子 + 1 對眼，
+ * 向聽數 = 距離 - 1。每組牌（萬/筒/條/字）先查表取得
+ * 「湊成 m 個面子 + p 對眼最少缺幾張」的向量 (m = 0..5, p = 0..1)，
+ * 再把四組向量做 min-plus 合併，每手牌只需 4 次查表。
+ *
+ * 查表在類別載入時建好：所有 base-5 key 的向量只有數百種，表中每個 key 只存 1 byte 的向量編號
+ * （數牌 5^9 + 字牌 5^7 約 2 MB）。建表時前綴相同的 key 共用動態規劃的中間狀態，
+ * 每個「狀態 × 張數」的轉移只算一次。查表唯讀，可在多執行緒下共用。
+ */
+public class ShantenCalculator {
+
+    /** 17 張手牌最多 5 個面子 */
+    private static final int MAX_SETS = 5;
+
+    /** 每組向量 12 格 (m 0..5 × p 0..1)，每格 5 bits */
+    private static final int INF = 31;
+
+    private static final int HONOR_SIZE = 7;
+
+    /** 動態規劃每個 rank 的狀態：(前一張開始的順子數 × 前兩張開始的順子數) × (m × p) */
+    private static final int STRIDE = (MAX_SETS + 1) * 2;
+    private static final int STATE_SIZE = 25 * STRIDE;
+
+    private static final VectorTable SUIT;
+    private static final VectorTable HONOR;
+
+    static {
+        TableBuilder builder = new TableBuilder();
+        SUIT = builder.build(SuitDecompositionTable.SUIT_SIZE, true);
+        HONOR = builder.build(HONOR_SIZE, false);
+    }
+
+    /**
+     * 計算手牌的向聽數（三種牌型取最小）
+     *
+     * @param hand 玩家手牌（13/14 張或 16/17 張，含面子）
+     * @return 向聽數，-1 表示已胡牌
+     */
+    public int calculateShanten(PlayerHand hand) {
+        int[] counts = new int[34];
+        hand.copyCounts(counts);
+        return calculateShanten(counts, hand.getTileCount());
+    }
+
+    /**
+     * 以頻率陣列計算向聽數（三種牌型取最小）
+     *
+     * @param counts            手牌的頻率陣列（不會被修改）
+     * @param standingTileCount 手牌張數
+     * @return 向聽數，-1 表示已胡牌
+     */
+    public int calculateShanten(int[] counts, int standingTileCount) {
+        int shanten = calculateStandardShanten(counts, standingTileCount);
+        if (standingTileCount == 13 || standingTileCount == 14) {
+            shanten = Math.min(shanten, calculateSevenPairsShanten(counts));
+            shanten = Math.min(shanten, calculateThirteenOrphansShanten(counts));
+        }
+        return shanten;
+    }
+
+    /**
+     * 標準型（N 個面子 + 1 對眼）的向聽數，N = 手牌張數 / 3
+     */
+    public int calculateStandardShanten(int[] counts, int standingTileCount) {
+        if (standingTileCount < 1 || standingTileCount > 17) {
+            throw new IllegalArgumentException("Unsupported standing tile count: " + standingTileCount);
+        }
+        int setsNeeded = standingTileCount / 3;
+
+        // (萬+筒) 與 (條+字) 各自合併，最後只需要取 N 個面子 + 1 對眼那一格
+        long left = merge(suitVector(counts, 0), suitVector(counts, 9), setsNeeded);
+        long right = merge(suitVector(counts, 18), honorVector(counts), setsNeeded);
+
+        int best = INF;
+        for (int m = 0; m <= setsNeeded; m++) {
+            int d = Math.min(get(left, m, 0) + get(right, setsNeeded - m, 1),
+                    get(left, m, 1) + get(right, setsNeeded - m, 0));
+            if (d < best) {
+                best = d;
+            }
+        }
+        return best - 1;
+    }
+
+    /**
+     * 七對子向聽數：6 - 對子數（4 張同牌算 2 對，與 WinStrategy 一致）
+     */
+    public int calculateSevenPairsShanten(int[] counts) {
+        int pairs = 0;
+        for (int i = 0; i < 34; i++) {
+            pairs += counts[i] >> 1;
+        }
+        return 6 - Math.min(pairs, 7);
+    }
+
+    /**
+     * 十三么向聽數：13 - 么九牌種類數 - (有么九對子 ? 1 : 0)
+     */
+    public int calculateThirteenOrphansShanten(int[] counts) {
+        int kinds = 0;
+        boolean hasPair = false;
+        for (int idx : WinStrategy.ORPHAN_INDICES) {
+            if (counts[idx] > 0) {
+                kinds++;
+                if (counts[idx] >= 2) {
+                    hasPair = true;
+                }
+            }
+        }
+        return 13 - kinds - (hasPair ? 1 : 0);
+    }
+
+    // ---- 每組牌的距離向量 ----
+
+    private static long suitVector(int[] counts, int offset) {
+        int key = SuitDecompositionTable.encode(counts, offset);
+        if (key < 0) {
+            // 超過 4 張的不合法手牌：直接計算
+            return computeVector(counts, offset, SuitDecompositionTable.SUIT_SIZE, true);
+        }
+        return SUIT.get(key);
+    }
+
+    private static long honorVector(int[] counts) {
+        int key = 0;
+        for (int i = 27; i < 34; i++) {
+            int c = counts[i];
+            if (c > 4) {
+                return computeVector(counts, 27, HONOR_SIZE, false);
+            }
+            key = key * 5 + c;
+        }
+        return HONOR.get(key);
+    }
+
+    /**
+     * 動態規劃：逐一處理每個 rank，狀態 = (前一張開始的順子數, 前兩張開始的順子數, 面子數, 眼數)，
+     * 每個 rank 決定刻子 (0/1)、眼 (0/1)、從此開始的順子數，
+     * 成本 = 需要的張數超過現有張數的部分；同一張牌總需求不得超過 4 張。
+     *
+     * @return 打包後的距離向量（12 格 × 5 bits）
+     */
+    private static long computeVector(int[] counts, int offset, int size, boolean allowChow) {
+        int[] cur = initialState();
+        int[] next = new int[STATE_SIZE];
+        for (int r = 0; r < size; r++) {
+            step(cur, next, counts[offset + r], allowChow && r <= size - 3);
+            int[] tmp = cur;
+            cur = next;
+            next = tmp;
+        }
+        return pack(cur);
+    }
+
+    private static int[] initialState() {
+        int[] state = new int[STATE_SIZE];
+        Arrays.fill(state, INF);
+        state[0] = 0;
+        return state;
+    }
+
+    /**
+     * 處理一個 rank（現有 have 張）：cur → next
+     */
+    private static void step(int[] cur, int[] next, int have, boolean allowChow) {
+        Arrays.fill(next, INF);
+        int maxChow = allowChow ? 4 : 0;
+        for (int prev1 = 0; prev1 < 5; prev1++) {
+            for (int prev2 = 0; prev1 + prev2 < 5; prev2++) {
+                int base = (prev1 * 5 + prev2) * STRIDE;
+                for (int m = 0; m <= MAX_SETS; m++) {
+                    for (int p = 0; p < 2; p++) {
+                        int cost = cur[base + m * 2 + p];
+                        if (cost >= INF) {
+                            continue;
+                        }
+                        for (int pung = 0; pung < 2; pung++) {
+                            for (int pair = 0; pair + p < 2; pair++) {
+                                for (int chow = 0; chow <= maxChow; chow++) {
+                                    int m2 = m + pung + chow;
+                                    int need = prev1 + prev2 + chow + pung * 3 + pair * 2;
+                                    if (m2 > MAX_SETS || need > 4) {
+                                        break;
+                                    }
+                                    int c2 = cost + Math.max(0, need - have);
+                                    int idx = (chow * 5 + prev1) * STRIDE + m2 * 2 + p + pair;
+                                    if (c2 < next[idx]) {
+                                        next[idx] = c2;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 處理完所有 rank 後（沒有未完成的順子）打包成距離向量
+     */
+    private static long pack(int[] state) {
+        long packed = 0;
+        for (int m = 0; m <= MAX_SETS; m++) {
+            for (int p = 0; p < 2; p++) {
+                packed = set(packed, m, p, Math.min(INF, state[m * 2 + p]));
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * 兩組距離向量做 min-plus 合併（只算到 maxSets 個面子）
+     */
+    private static long merge(long a, long b, int maxSets) {
+        long result = 0;
+        for (int m = 0; m <= maxSets; m++) {
+            int best0 = INF;
+            int best1 = INF;
+            for (int m1 = 0; m1 <= m; m1++) {
+                int shiftA = m1 * 10;
+                int shiftB = (m - m1) * 10;
+                int a0 = (int) (a >>> shiftA) & INF;
+                int a1 = (int) (a >>> (shiftA + 5)) & INF;
+                int b0 = (int) (b >>> shiftB) & INF;
+                int b1 = (int) (b >>> (shiftB + 5)) & INF;
+                best0 = Math.min(best0, a0 + b0);
+                best1 = Math.min(best1, Math.min(a0 + b1, a1 + b0));
+            }
+            result |= ((long) Math.min(best0, INF) << (m * 10)) | ((long) Math.min(best1, INF) << (m * 10 + 5));
+        }
+        return result;
+    }
+
+    private static int get(long packed, int m, int p) {
+        return (int) (packed >>> ((m * 2 + p) * 5)) & INF;
+    }
+
+    private static long set(long packed, int m, int p, int value) {
+        int shift = (m * 2 + p) * 5;
+        return (packed & ~((long) INF << shift)) | ((long) value << shift);
+    }
+
+    /**
+     * 一組牌的查表：key → 向量編號 → 距離向量
+     */
+    private static final class VectorTable {
+        private final byte[] index;
+        private final long[] vectors;
+
+        VectorTable(byte[] index, long[] vectors) {
+            this.index = index;
+            this.vectors = vectors;
+        }
+
+        long get(int key) {
+            return vectors[index[key] & 0xFF];
+        }
+    }
+
+    /**
+     * 建表：依 rank 順序列舉所有 key，動態規劃的狀態去重後編號，
+     * 「狀態 × 張數」的轉移只計算一次（數牌約一萬多種狀態）
+     */
+    private static final class TableBuilder {
+        private final List<int[]> states = new ArrayList<>();
+        private final Map<StateKey, Integer> stateIds = new HashMap<>();
+        // 狀態編號 × 5 + 張數 → 下一個狀態編號（分成可 / 不可組順子）
+        private final Map<Integer, Integer> chowTransitions = new HashMap<>();
+        private final Map<Integer, Integer> plainTransitions = new HashMap<>();
+        private final Map<Integer, Integer> stateVector = new HashMap<>();
+        private Map<Long, Integer> vectorIds;
+        private List<Long> vectors;
+
+        VectorTable build(int size, boolean allowChow) {
+            // 向量編號每張表各自計算
+            vectorIds = new HashMap<>();
+            vectors = new ArrayList<>();
+            stateVector.clear();
+            int keySpace = 1;
+            for (int i = 0; i < size; i++) {
+                keySpace *= 5;
+            }
+            byte[] index = new byte[keySpace];
+            fill(index, size, allowChow, 0, 0, intern(initialState()));
+            long[] packed = new long[vectors.size()];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = vectors.get(i);
+            }
+            return new VectorTable(index, packed);
+        }
+
+        private void fill(byte[] index, int size, boolean allowChow, int r, int key, int state) {
+            if (r == size) {
+                index[key] = (byte) vectorId(state);
+                return;
+            }
+            boolean chow = allowChow && r <= size - 3;
+            for (int c = 0; c <= 4; c++) {
+                fill(index, size, allowChow, r + 1, key * 5 + c, next(state, c, chow));
+            }
+        }
+
+        private int next(int state, int have, boolean chow) {
+            Map<Integer, Integer> transitions = chow ? chowTransitions : plainTransitions;
+            Integer next = transitions.get(state * 5 + have);
+            if (next == null) {
+                int[] out = new int[STATE_SIZE];
+                step(states.get(state), out, have, chow);
+                next = intern(out);
+                transitions.put(state * 5 + have, next);
+            }
+            return next;
+        }
+
+        private int vectorId(int state) {
+            Integer cached = stateVector.get(state);
+            if (cached != null) {
+                return cached;
+            }
+            long packed = pack(states.get(state));
+            Integer id = vectorIds.get(packed);
+            if (id == null) {
+                id = vectors.size();
+                if (id > 0xFF) {
+                    throw new IllegalStateException("Too many distinct shanten vectors: " + id);
+                }
+                vectors.add(packed);
+                vectorIds.put(packed, id);
+            }
+            stateVector.put(state, id);
+            return id;
+        }
+
+        private int intern(int[] state) {
+            StateKey key = new StateKey(state);
+            Integer id = stateIds.get(key);
+            if (id == null) {
+                id = states.size();
+                states.add(state);
+                stateIds.put(key, id);
+            }
+            return id;
+        }
+    }
+
+    private static final class StateKey {
+        private final int[] state;
+        private final int hash;
+
+        StateKey(int[] state) {
+            this.state = state;
+            this.hash = Arrays.hashCode(state);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateKey && Arrays.equals(state, ((StateKey) o).state);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.mahjong.logic;
+
+/**
+ * 數牌花色的預先計算分解表（查表法胡牌判定）。
+ *
+ * 每個花色（萬/筒/條）的 9 種牌數量以 base-5 編碼成一個 key（每格 0-4），
+ * 表中記錄所有可以完整拆成「面子（順子/刻子）＋ 最多一對眼」的 key。
+ * 由於 key 的總張數決定了是否需要眼（張數 % 3 == 0 只有面子，== 2 則含一對眼），
+ * 一張 bitmap 就能同時回答兩種情況。
+ *
+ * 整手牌的判定 = 三個花色各查一次表 + 字牌規則（每種字牌只能是 0/2/3 張），
+ * 再確認全手恰好一對眼。
+ *
+ * 支援每個花色最多 5 個面子 + 1 對眼（17 張，莊家 16+1）。
+ */
+final class SuitDecompositionTable {
+
+    /** 每個花色的牌種數 */
+    static final int SUIT_SIZE = 9;
+
+    /** base-5 key 的空間大小 (5^9) */
+    static final int KEY_SPACE = 1_953_125;
+
+    /** 17 張手牌最多 5 個面子 */
+    private static final int MAX_SETS = 5;
+
+    private static final long[] DECOMPOSABLE = build();
+
+    private SuitDecompositionTable() {
+    }
+
+    /**
+     * 將 counts[offset .. offset+8] 編碼成 base-5 key
+     *
+     * @return key；若任何一格超過 4 張（不合法的手牌）回傳 -1
+     */
+    static int encode(int[] counts, int offset) {
+        int key = 0;
+        for (int i = 0; i < SUIT_SIZE; i++) {
+            int c = counts[offset + i];
+            if (c > 4) {
+                return -1;
+            }
+            key = key * 5 + c;
+        }
+        return key;
+    }
+
+    /**
+     * 查表：該花色是否能完整拆成面子（＋ 張數 % 3 == 2 時的一對眼）
+     */
+    static boolean isDecomposable(int key) {
+        return (DECOMPOSABLE[key >>> 6] & (1L << key)) != 0;
+    }
+
+    /**
+     * 整手牌是否為標準胡牌型：N 個面子 + 1 對眼
+     *
+     * @param counts 34 格的牌頻率陣列（不會被修改）
+     * @return 1 = 胡牌，0 = 不胡，-1 = 有超過 4 張的牌，無法查表（由呼叫者回退）
+     */
+    static int checkStandard(int[] counts) {
+        int pairs = 0;
+
+        // 數牌：每個花色查一次表
+        for (int offset = 0; offset < 27; offset += SUIT_SIZE) {
+            int sum = 0;
+            for (int i = 0; i < SUIT_SIZE; i++) {
+                sum += counts[offset + i];
+            }
+            if (sum == 0) {
+                continue;
+            }
+            int mod = sum % 3;
+            if (mod == 1) {
+                return 0;
+            }
+            int key = encode(counts, offset);
+            if (key < 0) {
+                return -1;
+            }
+            if (!isDecomposable(key)) {
+                return 0;
+            }
+            if (mod == 2) {
+                pairs++;
+            }
+        }
+
+        // 字牌：不能組成順子，只能是刻子 (3) 或眼 (2)
+        for (int i = 27; i < 34; i++) {
+            int c = counts[i];
+            if (c == 2) {
+                pairs++;
+            } else if (c > 4) {
+                return -1;
+            } else if (c != 0 && c != 3) {
+                return 0;
+            }
+        }
+
+        return pairs == 1 ? 1 : 0;
+    }
+
+    /**
+     * 列舉所有「最多 5 個面子 + 可選一對眼」的組合並標記對應 key
+     */
+    private static long[] build() {
+        long[] table = new long[(KEY_SPACE + 63) >>> 6];
+        int[] counts = new int[SUIT_SIZE];
+        enumerateSets(table, counts, 0, 0);
+        return table;
+    }
+
+    /**
+     * 面子編號：0-8 為刻子（rank 0-8），9-15 為順子（起點 rank 0-6）。
+     * 以非遞減順序放入，避免重複列舉。
+     */
+    private static void enumerateSets(long[] table, int[] counts, int firstShape, int sets) {
+        mark(table, counts);
+        for (int pair = 0; pair < SUIT_SIZE; pair++) {
+            if (counts[pair] <= 2) {
+                counts[pair] += 2;
+                mark(table, counts);
+                counts[pair] -= 2;
+            }
+        }
+
+        if (sets == MAX_SETS) {
+            return;
+        }
+
+        for (int shape = firstShape; shape < 16; shape++) {
+            if (shape < SUIT_SIZE) {
+                if (counts[shape] <= 1) {
+                    counts[shape] += 3;
+                    enumerateSets(table, counts, shape, sets + 1);
+                    counts[shape] -= 3;
+                }
+            } else {
+                int start = shape - SUIT_SIZE;
+                if (counts[start] < 4 && counts[start + 1] < 4 && counts[start + 2] < 4) {
+                    counts[start]++;
+                    counts[start + 1]++;
+                    counts[start + 2]++;
+                    enumerateSets(table, counts, shape, sets + 1);
+                    counts[start]--;
+                    counts[start + 1]--;
+                    counts[start + 2]--;
+                }
+            }
+        }
+    }
+
+    private static void mark(long[] table, int[] counts) {
+        int key = encode(counts, 0);
+        table[key >>> 6] |= 1L << key;
+    }
+}
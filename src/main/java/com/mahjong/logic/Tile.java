@@ -21,6 +21,8 @@ public enum Tile {
     EAST(Suit.WIND, 1), SOUTH(Suit.WIND, 2), WEST(Suit.WIND, 3), NORTH(Suit.WIND, 4),
     RED(Suit.DRAGON, 1), GREEN(Suit.DRAGON, 2), WHITE(Suit.DRAGON, 3);
 
+    private static final Tile[] VALUES = values();
+
     private final Suit suit;
     private final int rank;
 
@@ -37,6 +39,21 @@ public enum Tile {
         return rank;
     }
 
+    /**
+     * 牌的索引 (0-33)，與 WinStrategy 的頻率陣列順序一致
+     * Man: 0-8, Pin: 9-17, Sou: 18-26, Wind: 27-30, Dragon: 31-33
+     */
+    public int getIndex() {
+        return ordinal();
+    }
+
+    /**
+     * 由索引 (0-33) 取回牌，使用快取陣列避免 values() 每次複製
+     */
+    public static Tile fromIndex(int index) {
+        return VALUES[index];
+    }
+
     public boolean isNumberTile() {
         return suit == Suit.MAN || suit == Suit.PIN || suit == Suit.SOU;
     }
@@ -10,9 +10,15 @@ import java.util.List;
 public class TingDetector {
     
     private final WinStrategy winStrategy;
+    private final EvaluationCache cache;
     
     public TingDetector() {
-        this.winStrategy = new WinStrategy();
+        this(EvaluationCache.getDefault());
+    }
+    
+    public TingDetector(EvaluationCache cache) {
+        this.cache = cache;
+        this.winStrategy = new WinStrategy(cache);
     }
     
     /**
@@ -23,30 +29,64 @@ public class TingDetector {
     public TingResult detectTing(PlayerHand hand) {
         List<Tile> tingTiles = new ArrayList<>();
         
-        // 檢查手牌總數是否正確（13 張或 14 張）
-        int totalTiles = hand.getConnectionCount();
-        if (totalTiles != 13 && totalTiles != 14) {
+        // 檢查手牌總數是否正確（13 張或 14 張，台灣麻將 16 張；槓以 3 張計）
+        int meldTileCount = WinStrategy.meldTileCount(hand);
+        int totalTiles = hand.getTileCount() + meldTileCount;
+        if (totalTiles != 13 && totalTiles != 14 && totalTiles != 16) {
             return new TingResult(false, tingTiles);
         }
         
+        // 同樣的手牌（Zobrist hash 相同）直接取用快取的聽牌遮罩
+        long key = EvaluationCache.key(EvaluationCache.Kind.TING, hand.getZobristHash());
+        long cachedMask = cache.get(key, -1);
+        if (cachedMask >= 0) {
+            for (int i = 0; i < 34; i++) {
+                if ((cachedMask & (1L << i)) != 0) tingTiles.add(Tile.fromIndex(i));
+            }
+            return new TingResult(!tingTiles.isEmpty(), tingTiles);
+        }
+        
+        // 共用一個數量陣列，每個候選牌原地 +1 → 檢查 → -1，不複製手牌
+        long tingMask = 0;
+        int[] counts = new int[34];
+        hand.copyCounts(counts);
+        int standingTileCount = hand.getTileCount() + 1;
+        
         // 嘗試每一種可能的牌，看是否能胡牌
-        for (Tile tile : Tile.values()) {
-            // 跳過不存在的牌（如果 Tile enum 中有特殊值）
-            if (tile == null) continue;
-            
-            // 創建臨時手牌，加入這張牌
-            PlayerHand testHand = cloneHand(hand);
-            testHand.addTile(tile);
+        for (int i = 0; i < counts.length; i++) {
+            // 跳過與手牌完全無關的牌（不可能成為眼、刻子或順子的一部分）
+            if (!isConnected(counts, i)) continue;
             
-            // 檢查是否為胡牌
-            if (winStrategy.isWinningHand(testHand)) {
-                tingTiles.add(tile);
+            counts[i]++;
+            if (winStrategy.isWinningCounts(counts, standingTileCount, meldTileCount)) {
+                tingTiles.add(Tile.fromIndex(i));
+                tingMask |= 1L << i;
             }
+            counts[i]--;
         }
+        cache.put(key, tingMask);
         
         return new TingResult(!tingTiles.isEmpty(), tingTiles);
     }
     
+    /**
+     * 候選牌是否與手牌相連：手上已有同一張（眼/刻子），
+     * 或同花色 ±2 以內有牌（順子）。不相連的牌加入後必定是孤張，無法胡牌。
+     */
+    private boolean isConnected(int[] counts, int index) {
+        if (counts[index] > 0) return true;
+        if (index >= 27) return false; // 字牌只能組刻子或眼
+        
+        int rank = index % 9;
+        int suitStart = index - rank;
+        int from = Math.max(suitStart, index - 2);
+        int to = Math.min(suitStart + 8, index + 2);
+        for (int j = from; j <= to; j++) {
+            if (counts[j] > 0) return true;
+        }
+        return false;
+    }
+    
     /**
      * 檢查手牌是否已經可以胡牌（14 張或 17 張）
      * @param hand 玩家手牌
@@ -63,25 +103,7 @@ public class TingDetector {
      * @return true 如果可以胡牌
      */
     public boolean canWinWithTile(PlayerHand hand, Tile tile) {
-        PlayerHand testHand = cloneHand(hand);
-        testHand.addTile(tile);
-        return winStrategy.isWinningHand(testHand);
-    }
-    
-    /**
-     * 克隆手牌（避免修改原始手牌）
-     */
-    private PlayerHand cloneHand(PlayerHand original) {
-        PlayerHand clone = new PlayerHand();
-        // 複製所有手牌
-        for (Tile tile : original.getStandingTiles()) {
-            clone.addTile(tile);
-        }
-        // 複製所有明牌（Meld）
-        for (Meld meld : original.getOpenMelds()) {
-            clone.addMeld(meld);
-        }
-        return clone;
+        return winStrategy.isWinningHand(hand, tile);
     }
     
     /**
@@ -0,0 +1,429 @@
+package com.mahjong.model;
+
+import com.mahjong.logic.Tile;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packet 的二進位編碼，客戶端在 WebSocket 握手時選擇子協定 {@value #SUBPROTOCOL} 啟用
+ *
+ * <pre>
+ * frame := command(u8) ( NO_DATA | field* END )
+ * field := key value
+ * key   := 常用欄位代碼(u8, 1..) | KEY_STRING string
+ * value := NULL | FALSE | TRUE
+ *        | INT varint(zigzag) | DOUBLE 8 bytes | STRING string
+ *        | TILE u8               與牌名相同的字串都以 1 byte 的牌 index 編碼
+ *        | TILES varint u8*      全部是牌名的 list
+ *        | LIST varint value* | MAP varint (key value)*
+ * string := varint(長度) UTF-8
+ * </pre>
+ *
+ * command 以 {@link Command} 的 ordinal 編碼，新增指令只能加在最後。
+ * 解碼後 TILE 還原為牌名字串、整數為 Integer（超出範圍為 Long），與 JSON 解碼的 data 相同。
+ * LIST / MAP 最多巢狀 {@value #MAX_DEPTH} 層，超過視為格式錯誤。
+ */
+public final class BinaryPacketCodec {
+
+    public static final String SUBPROTOCOL = "mahjong.binary.v1";
+
+    /** 欄位結束 */
+    public static final byte END = 0;
+    private static final byte NO_DATA = (byte) 0xFE;
+    private static final byte KEY_STRING = (byte) 0xFF;
+
+    private static final byte NULL = 1;
+    private static final byte FALSE = 2;
+    private static final byte TRUE = 3;
+    private static final byte INT = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte TILE = 7;
+    private static final byte TILES = 8;
+    private static final byte LIST = 9;
+    private static final byte MAP = 10;
+
+    /** 欄位值 LIST / MAP 的最大巢狀層數：任何客戶端都能送二進位訊框，遞迴深度不能由對方決定 */
+    public static final int MAX_DEPTH = 8;
+
+    /** 常用欄位名稱（代碼 = index + 1），只能在最後新增 */
+    private static final String[] KEYS = {
+            "action", "version", "base", "myIndex", "myHand", "turnIndex",
+            "sea", "seaAdd", "seaSize", "melds", "allMelds", "handCounts",
+            "nicknames", "message", "tile", "type", "choices", "nickname"
+    };
+
+    private static final Command[] COMMANDS = Command.values();
+    private static final Tile[] TILE_VALUES = Tile.values();
+    private static final Map<String, Integer> KEY_CODES = new HashMap<>();
+    private static final Map<String, Integer> TILE_CODES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEY_CODES.put(KEYS[i], i + 1);
+        }
+        for (Tile t : TILE_VALUES) {
+            TILE_CODES.put(t.toString(), t.getIndex());
+        }
+    }
+
+    private BinaryPacketCodec() {
+    }
+
+    public static byte[] encode(Packet packet) {
+        Out out = new Out(256);
+        out.write(commandCode(packet.getCommand()));
+        if (packet.getData() == null) {
+            out.write(NO_DATA);
+        } else {
+            writeFields(out, packet.getData());
+            out.write(END);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 只編碼欄位（不含 command 與 END），用於拼接共用的部分
+     */
+    public static byte[] encodeFields(Map<String, ?> data) {
+        Out out = new Out(64);
+        writeFields(out, data);
+        return out.toByteArray();
+    }
+
+    /**
+     * 只編碼單一欄位，用於拼接
+     */
+    public static byte[] encodeField(String key, Object value) {
+        Out out = new Out(16);
+        writeKey(out, key);
+        writeValue(out, value);
+        return out.toByteArray();
+    }
+
+    public static byte commandCode(Command command) {
+        if (command == null) {
+            throw new IllegalArgumentException("Packet command cannot be null");
+        }
+        return (byte) command.ordinal();
+    }
+
+    /**
+     * @throws IllegalArgumentException 格式錯誤或資料不完整
+     */
+    public static Packet decode(ByteBuffer buf) {
+        try {
+            int code = buf.get() & 0xFF;
+            if (code >= COMMANDS.length) {
+                throw new IllegalArgumentException("Unknown command code: " + code);
+            }
+            Packet packet = new Packet(COMMANDS[code], null);
+            if (buf.get(buf.position()) == NO_DATA) {
+                buf.get();
+                return packet;
+            }
+            Map<String, Object> data = new LinkedHashMap<>();
+            byte b;
+            while ((b = buf.get()) != END) {
+                String key = readKey(buf, b);
+                data.put(key, readValue(buf, 1));
+            }
+            packet.setData(data);
+            return packet;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated binary packet", e);
+        }
+    }
+
+    public static Packet decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * 解碼一個訊框中串接的所有訊息（伺服器會把同一事件的多則訊息合併成一個訊框）
+     *
+     * @throws IllegalArgumentException 格式錯誤或資料不完整
+     */
+    public static List<Packet> decodeAll(ByteBuffer buf) {
+        List<Packet> packets = new ArrayList<>(1);
+        do {
+            packets.add(decode(buf));
+        } while (buf.hasRemaining());
+        return packets;
+    }
+
+    // ---- encode ----
+
+    private static void writeFields(Out out, Map<String, ?> data) {
+        for (Map.Entry<String, ?> e : data.entrySet()) {
+            writeKey(out, e.getKey());
+            writeValue(out, e.getValue());
+        }
+    }
+
+    private static void writeKey(Out out, String key) {
+        Integer code = KEY_CODES.get(key);
+        if (code != null) {
+            out.write(code.byteValue());
+        } else {
+            out.write(KEY_STRING);
+            writeString(out, key);
+        }
+    }
+
+    private static void writeValue(Out out, Object value) {
+        if (value == null) {
+            out.write(NULL);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            out.write(INT);
+            long v = ((Number) value).longValue();
+            out.writeVarint((v << 1) ^ (v >> 63));
+        } else if (value instanceof Double || value instanceof Float) {
+            out.write(DOUBLE);
+            out.writeLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof CharSequence || value instanceof Enum) {
+            int tile = tileCode(value);
+            if (tile >= 0) {
+                out.write(TILE);
+                out.write((byte) tile);
+            } else {
+                out.write(STRING);
+                writeString(out, value.toString());
+            }
+        } else if (value instanceof List) {
+            writeList(out, (List<?>) value);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.write(MAP);
+            out.writeVarint(map.size());
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                writeKey(out, String.valueOf(e.getKey()));
+                writeValue(out, e.getValue());
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getName());
+        }
+    }
+
+    private static void writeList(Out out, List<?> list) {
+        int n = list.size();
+        int start = out.len;
+        if (n > 0) {
+            // 先假設全部是牌，一次走過；遇到不是牌的元素再退回一般 list
+            out.write(TILES);
+            out.writeVarint(n);
+            out.ensure(n);
+            boolean tiles = true;
+            for (Object o : list) {
+                int code = tileCode(o);
+                if (code < 0) {
+                    tiles = false;
+                    break;
+                }
+                out.buf[out.len++] = (byte) code;
+            }
+            if (tiles) {
+                return;
+            }
+            out.len = start;
+        }
+        out.write(LIST);
+        out.writeVarint(n);
+        for (Object o : list) {
+            writeValue(out, o);
+        }
+    }
+
+    /**
+     * @return 牌的 index；不是牌（或不是牌名字串）時回傳 -1
+     */
+    private static int tileCode(Object o) {
+        if (o instanceof Tile) {
+            return ((Tile) o).getIndex();
+        }
+        if (o instanceof String) {
+            Integer code = TILE_CODES.get(o);
+            return code == null ? -1 : code;
+        }
+        return -1;
+    }
+
+    private static void writeString(Out out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeVarint(bytes.length);
+        out.write(bytes);
+    }
+
+    // ---- decode ----
+
+    private static String readKey(ByteBuffer buf, byte b) {
+        if (b == KEY_STRING) {
+            return readString(buf);
+        }
+        int code = b & 0xFF;
+        if (code < 1 || code > KEYS.length) {
+            throw new IllegalArgumentException("Unknown key code: " + code);
+        }
+        return KEYS[code - 1];
+    }
+
+    /**
+     * @param depth 這個值所在的巢狀層數（欄位值為 1）
+     */
+    private static Object readValue(ByteBuffer buf, int depth) {
+        byte tag = buf.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case INT: {
+                long z = readVarint(buf);
+                long v = (z >>> 1) ^ -(z & 1);
+                return v == (int) v ? (Object) (int) v : (Object) v;
+            }
+            case DOUBLE:
+                return Double.longBitsToDouble(buf.getLong());
+            case STRING:
+                return readString(buf);
+            case TILE:
+                return tileName(buf.get());
+            case TILES: {
+                int n = readLength(buf);
+                List<Object> list = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    list.add(tileName(buf.get()));
+                }
+                return list;
+            }
+            case LIST: {
+                checkDepth(depth);
+                int n = readLength(buf);
+                List<Object> list = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    list.add(readValue(buf, depth + 1));
+                }
+                return list;
+            }
+            case MAP: {
+                checkDepth(depth);
+                int n = readLength(buf);
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < n; i++) {
+                    map.put(readKey(buf, buf.get()), readValue(buf, depth + 1));
+                }
+                return map;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown value tag: " + tag);
+        }
+    }
+
+    private static void checkDepth(int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Binary packet nested deeper than " + MAX_DEPTH);
+        }
+    }
+
+    private static String tileName(byte code) {
+        int i = code & 0xFF;
+        if (i >= TILE_VALUES.length) {
+            throw new IllegalArgumentException("Unknown tile code: " + i);
+        }
+        return TILE_VALUES[i].toString();
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int n = readLength(buf);
+        if (buf.hasArray()) {
+            String s = new String(buf.array(), buf.arrayOffset() + buf.position(), n, StandardCharsets.UTF_8);
+            buf.position(buf.position() + n);
+            return s;
+        }
+        byte[] bytes = new byte[n];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readLength(ByteBuffer buf) {
+        long n = readVarint(buf);
+        if (n > buf.remaining()) {
+            throw new IllegalArgumentException("Length " + n + " exceeds remaining " + buf.remaining());
+        }
+        return (int) n;
+    }
+
+    private static long readVarint(ByteBuffer buf) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buf.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    /**
+     * 可成長的 byte 陣列
+     */
+    private static final class Out {
+        byte[] buf;
+        int len;
+
+        Out(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void write(byte b) {
+            ensure(1);
+            buf[len++] = b;
+        }
+
+        void write(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, len, bytes.length);
+            len += bytes.length;
+        }
+
+        void writeVarint(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[len++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[len++] = (byte) v;
+        }
+
+        void writeLong(long v) {
+            ensure(8);
+            for (int i = 7; i >= 0; i--) {
+                buf[len++] = (byte) (v >>> (i * 8));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, len);
+        }
+
+        void ensure(int extra) {
+            if (len + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+            }
+        }
+    }
+}
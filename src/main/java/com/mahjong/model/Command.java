@@ -9,6 +9,7 @@ public enum Command {
     PLAY_CARD,      // Discard a tile
     ACTION,         // Chow, Pong, Kong, Hu, Pass
     READY,          // Player is ready to start
+    RESYNC,         // Request a full state snapshot (version gap)
     
     // Server -> Client
     LOGIN_SUCCESS,  // Login confirmed
@@ -16,5 +17,8 @@ public enum Command {
     GAME_UPDATE,    // New turn, tile drawn, etc.
     ACTION_REQUEST, // Asking player if they want to Chow/Pong/Kong
     GAME_OVER,      // Game end with scores
-    ERROR           // Something went wrong
+    ERROR,          // Something went wrong
+
+    // Client -> Server（新增的指令接在最後：二進位協定以序號編碼）
+    PREFERENCES     // Standing claim preferences (never chow, always hu, ...)
 }
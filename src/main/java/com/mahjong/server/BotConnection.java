@@ -0,0 +1,158 @@
+package com.mahjong.server;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.enums.ReadyState;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.protocols.IProtocol;
+
+import javax.net.ssl.SSLSession;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * 機器人座位的連線替身：丟棄所有送出的訊息
+ *
+ * 機器人的決策由 session 完成（{@link WebSocketGameSession#setBot}），
+ * 這裡只讓座位、路由與送訊流程可以把它當成一般連線。
+ */
+final class BotConnection implements WebSocket {
+
+    private final String name;
+    private Object attachment;
+
+    BotConnection(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    @Override
+    public void close(int code, String message) {
+    }
+
+    @Override
+    public void close(int code) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void closeConnection(int code, String message) {
+    }
+
+    @Override
+    public void send(String text) {
+    }
+
+    @Override
+    public void send(ByteBuffer bytes) {
+    }
+
+    @Override
+    public void send(byte[] bytes) {
+    }
+
+    @Override
+    public void sendFrame(Framedata framedata) {
+    }
+
+    @Override
+    public void sendFrame(Collection<Framedata> frames) {
+    }
+
+    @Override
+    public void sendPing() {
+    }
+
+    @Override
+    public void sendFragmentedFrame(Opcode op, ByteBuffer buffer, boolean fin) {
+    }
+
+    @Override
+    public boolean hasBufferedData() {
+        return false;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteSocketAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return null;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public boolean isClosing() {
+        return false;
+    }
+
+    @Override
+    public boolean isFlushAndClose() {
+        return false;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return false;
+    }
+
+    @Override
+    public Draft getDraft() {
+        return null;
+    }
+
+    @Override
+    public ReadyState getReadyState() {
+        return ReadyState.OPEN;
+    }
+
+    @Override
+    public String getResourceDescriptor() {
+        return null;
+    }
+
+    @Override
+    public <T> void setAttachment(T attachment) {
+        this.attachment = attachment;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getAttachment() {
+        return (T) attachment;
+    }
+
+    @Override
+    public boolean hasSSLSupport() {
+        return false;
+    }
+
+    @Override
+    public SSLSession getSSLSession() {
+        throw new IllegalArgumentException("Bot connection has no SSL session");
+    }
+
+    @Override
+    public IProtocol getProtocol() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "Bot[" + name + "]";
+    }
+}
@@ -0,0 +1,103 @@
+package com.mahjong.server;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 送出訊框用的 ByteBuffer 池
+ *
+ * - 編碼時借出，送出（函式庫已把內容複製進訊框）後歸還
+ * - 最多保留 maxPooled 個；超過 maxRetainedCapacity 的大 buffer 不回收，避免佔住記憶體
+ * - 多個 session 的 worker 會同時使用，以無鎖佇列實作
+ */
+public final class ByteBufferPool {
+
+    private static final ByteBufferPool SHARED = new ByteBufferPool(256, 4096, 64 * 1024);
+
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final int maxPooled;
+    private final int initialCapacity;
+    private final int maxRetainedCapacity;
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder reuses = new LongAdder();
+
+    /**
+     * @param maxPooled           最多保留的 buffer 數
+     * @param initialCapacity     新 buffer 的最小容量
+     * @param maxRetainedCapacity 超過這個容量的 buffer 歸還時直接丟棄
+     */
+    public ByteBufferPool(int maxPooled, int initialCapacity, int maxRetainedCapacity) {
+        if (maxPooled < 0 || initialCapacity <= 0 || maxRetainedCapacity < initialCapacity) {
+            throw new IllegalArgumentException("Invalid pool sizes: " + maxPooled + ", "
+                    + initialCapacity + ", " + maxRetainedCapacity);
+        }
+        this.maxPooled = maxPooled;
+        this.initialCapacity = initialCapacity;
+        this.maxRetainedCapacity = maxRetainedCapacity;
+    }
+
+    /**
+     * 所有 session 共用的池
+     */
+    public static ByteBufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * 借出至少 minCapacity 的 buffer（已 clear，可直接寫入）
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        ByteBuffer buf = free.poll();
+        if (buf != null) {
+            pooled.decrementAndGet();
+            if (buf.capacity() >= minCapacity) {
+                reuses.increment();
+                buf.clear();
+                return buf;
+            }
+        }
+        allocations.increment();
+        return ByteBuffer.allocate(Math.max(initialCapacity, minCapacity));
+    }
+
+    /**
+     * 確保還能寫入 extra bytes；不夠時換成較大的 buffer（保留已寫入的內容），舊的歸還到池中
+     */
+    public ByteBuffer ensure(ByteBuffer buf, int extra) {
+        if (buf.remaining() >= extra) {
+            return buf;
+        }
+        ByteBuffer bigger = acquire(Math.max(buf.capacity() * 2, buf.position() + extra));
+        buf.flip();
+        bigger.put(buf);
+        release(buf);
+        return bigger;
+    }
+
+    public void release(ByteBuffer buf) {
+        if (buf == null || buf.capacity() > maxRetainedCapacity) {
+            return;
+        }
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+        free.offer(buf);
+    }
+
+    public int getPooledCount() {
+        return pooled.get();
+    }
+
+    public long getAllocations() {
+        return allocations.sum();
+    }
+
+    public long getReuses() {
+        return reuses.sum();
+    }
+}
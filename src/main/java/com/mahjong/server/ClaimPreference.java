@@ -0,0 +1,75 @@
+package com.mahjong.server;
+
+import com.mahjong.logic.Tile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 玩家（或機器人）向牌桌登記的常駐宣告偏好
+ *
+ * 大部分 ACTION_REQUEST 的回覆都是 SKIP，但每一次仍要等客戶端一個來回。
+ * 偏好能決定答案時 session 直接代為回覆，不送出詢問：
+ * - NEVER_CHOW / NEVER_PONG / NEVER_KONG / SKIP_CONCEALED_KONG：移除對應選項，沒有選項就等同 SKIP
+ * - ALWAYS_HU：可以胡就胡
+ * - AUTO_PONG_DRAGONS：三元牌可以碰就碰（有胡或槓的選項時仍然詢問）
+ */
+public enum ClaimPreference {
+    ALWAYS_HU,
+    AUTO_PONG_DRAGONS,
+    NEVER_CHOW,
+    NEVER_PONG,
+    NEVER_KONG,
+    SKIP_CONCEALED_KONG;
+
+    /**
+     * @return 偏好允許的選項（不含 SKIP，順序不變）
+     */
+    static List<String> allowed(Set<ClaimPreference> prefs, List<String> choices) {
+        List<String> allowed = new ArrayList<>(choices.size());
+        for (String choice : choices) {
+            if ("SKIP".equals(choice)
+                    || prefs.contains(NEVER_CHOW) && choice.startsWith("CHOW ")
+                    || prefs.contains(NEVER_PONG) && "PONG".equals(choice)
+                    || prefs.contains(NEVER_KONG) && "KONG".equals(choice)
+                    || prefs.contains(SKIP_CONCEALED_KONG) && choice.startsWith("CONCEALED_KONG ")) {
+                continue;
+            }
+            allowed.add(choice);
+        }
+        return allowed;
+    }
+
+    /**
+     * @param allowed {@link #allowed} 過濾後的選項
+     * @param tile    宣告的牌（棄牌或摸到的牌），可為 null
+     * @return 代為回覆的動作（可能是 SKIP）；需要詢問玩家時為 null
+     */
+    static String decide(Set<ClaimPreference> prefs, List<String> allowed, Tile tile) {
+        if (allowed.isEmpty()) {
+            return "SKIP";
+        }
+        if (allowed.contains("HU")) {
+            return prefs.contains(ALWAYS_HU) ? "HU" : null;
+        }
+        if (prefs.contains(AUTO_PONG_DRAGONS) && allowed.contains("PONG") && !allowed.contains("KONG")
+                && tile != null && tile.getSuit() == Tile.Suit.DRAGON) {
+            return "PONG";
+        }
+        return null;
+    }
+
+    /**
+     * 解析客戶端送來的偏好名稱
+     *
+     * @throws IllegalArgumentException 名稱不存在
+     */
+    static ClaimPreference parse(Object name) {
+        try {
+            return valueOf(String.valueOf(name));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown claim preference: " + name, e);
+        }
+    }
+}
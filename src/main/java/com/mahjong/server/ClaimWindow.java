@@ -0,0 +1,126 @@
+package com.mahjong.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一張棄牌的宣告視窗：所有優先層級（{@link ActionGroup}）同時詢問，平行收集回覆
+ *
+ * 優先順序與逐層詢問完全相同：
+ * - 依層級順序檢查，較高層級有人宣告就由它勝出；同一層級先到的宣告勝出
+ * - 較高層級還有座位沒有回覆時，較低層級的宣告先保留，等到較高層級全部放棄才生效
+ * - 選擇較低層級的動作（或 SKIP）等同放棄該座位在較高層級的選項
+ *
+ * 逐層詢問時一張被多人爭奪的棄牌最多要三次來回；這裡只要一次，且結果確定（例如收到胡牌）就立即結算。
+ * 只在 session 的 mailbox 執行緒上使用，不需要同步。
+ */
+final class ClaimWindow {
+
+    /**
+     * 結算結果：{@link #WAITING} 還要等待、{@link #PASSED} 全部放棄，否則為勝出的座位與動作
+     */
+    static final class Outcome {
+        static final Outcome WAITING = new Outcome(-1, null);
+        static final Outcome PASSED = new Outcome(-1, null);
+
+        final int seat;
+        final String action;
+
+        Outcome(int seat, String action) {
+            this.seat = seat;
+            this.action = action;
+        }
+    }
+
+    private final List<ActionGroup> tiers;
+    private final Set<Integer> seats = new LinkedHashSet<>();
+    private final Set<Integer> decided = new LinkedHashSet<>();
+    // 依到達順序記錄宣告：座位 → 動作
+    private final Map<Integer, String> claims = new LinkedHashMap<>();
+    private final Map<Integer, Integer> claimTiers = new HashMap<>();
+
+    /**
+     * @param tiers 依優先順序排列（HU → PONG/KONG → CHOW）的非空層級
+     */
+    ClaimWindow(List<ActionGroup> tiers) {
+        if (tiers.isEmpty()) {
+            throw new IllegalArgumentException("Claim window needs at least one tier");
+        }
+        this.tiers = new ArrayList<>(tiers);
+        for (ActionGroup tier : tiers) {
+            seats.addAll(tier.players);
+        }
+    }
+
+    List<ActionGroup> getTiers() {
+        return tiers;
+    }
+
+    /**
+     * @return 所有可以宣告的座位（依層級順序）
+     */
+    Set<Integer> getSeats() {
+        return seats;
+    }
+
+    /**
+     * @return 座位在所有層級的選項（依優先順序合併成一次詢問）
+     */
+    List<String> choicesFor(int seat) {
+        List<String> choices = new ArrayList<>();
+        for (ActionGroup tier : tiers) {
+            List<String> actions = tier.playerActions.get(seat);
+            if (actions != null) {
+                choices.addAll(actions);
+            }
+        }
+        return choices;
+    }
+
+    /**
+     * 記錄放棄
+     */
+    void pass(int seat) {
+        decided.add(seat);
+    }
+
+    /**
+     * 記錄宣告
+     *
+     * @return 座位沒有這個選項時為 false（不記錄）
+     */
+    boolean claim(int seat, String action) {
+        for (int t = 0; t < tiers.size(); t++) {
+            List<String> actions = tiers.get(t).playerActions.get(seat);
+            if (actions != null && actions.contains(action)) {
+                decided.add(seat);
+                claims.put(seat, action);
+                claimTiers.put(seat, t);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 依優先順序結算
+     */
+    Outcome resolve() {
+        for (int t = 0; t < tiers.size(); t++) {
+            for (Map.Entry<Integer, String> e : claims.entrySet()) {
+                if (claimTiers.get(e.getKey()) == t) {
+                    return new Outcome(e.getKey(), e.getValue());
+                }
+            }
+            if (!decided.containsAll(tiers.get(t).players)) {
+                return Outcome.WAITING;
+            }
+        }
+        return Outcome.PASSED;
+    }
+}
@@ -0,0 +1,86 @@
+package com.mahjong.server;
+
+import org.java_websocket.WebSocket;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一張牌桌：房間編號、四個座位的連線與對應的 WebSocketGameSession
+ *
+ * 生命週期：PLAYING（建立後開始）→ FINISHED（遊戲結束或所有玩家離線）→ 由 RoomRegistry 回收
+ */
+public final class GameRoom {
+
+    public enum State {
+        PLAYING, FINISHED
+    }
+
+    private final long id;
+    private final List<WebSocket> players;
+    private final WebSocketGameSession session;
+    private final SessionWorkerPool.Worker worker; // 執行這桌 mailbox 的 worker（可為 null）
+    private final long createdAt;
+    private volatile State state = State.PLAYING;
+    private int connectedSeats;
+
+    GameRoom(long id, List<WebSocket> players, WebSocketGameSession session) {
+        this(id, players, session, null);
+    }
+
+    GameRoom(long id, List<WebSocket> players, WebSocketGameSession session, SessionWorkerPool.Worker worker) {
+        this.id = id;
+        this.worker = worker;
+        this.players = Collections.unmodifiableList(players);
+        this.session = session;
+        this.createdAt = System.currentTimeMillis();
+        this.connectedSeats = players.size();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public List<WebSocket> getPlayers() {
+        return players;
+    }
+
+    public WebSocketGameSession getSession() {
+        return session;
+    }
+
+    public SessionWorkerPool.Worker getWorker() {
+        return worker;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return true 表示這次呼叫把房間從 PLAYING 改為 FINISHED
+     */
+    synchronized boolean finish() {
+        if (state == State.FINISHED) {
+            return false;
+        }
+        state = State.FINISHED;
+        return true;
+    }
+
+    /**
+     * @return 還連線中的座位數
+     */
+    synchronized int seatDisconnected() {
+        return --connectedSeats;
+    }
+
+    @Override
+    public String toString() {
+        return "GameRoom#" + id + "[" + state + "]";
+    }
+}
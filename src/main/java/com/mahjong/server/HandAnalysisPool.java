@@ -0,0 +1,231 @@
+package com.mahjong.server;
+
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.logic.Tile;
+import com.mahjong.logic.TingDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 在背景執行緒上做聽牌 / 出牌提示分析，讓牌桌的回合流程不必等待
+ *
+ * - 固定數量的執行緒與有上限的工作佇列；佇列滿時直接丟棄新的分析（只是提示，下一次摸牌會再分析）
+ * - 分析的是手牌的複本（{@link PlayerHand#copy}），不會與 session 的 mailbox 互相干擾
+ * - 結果交給回呼，由 session 排回自己的 mailbox 再送給該座位
+ * - 聽牌結果以 {@link com.mahjong.logic.EvaluationCache} 快取，所有執行緒共用
+ */
+public final class HandAnalysisPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(HandAnalysisPool.class);
+
+    /** 推送給客戶端的 GAME_UPDATE action */
+    public static final String ACTION = "HAND_ANALYSIS";
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private static final HandAnalysisPool SHARED = new HandAnalysisPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), DEFAULT_QUEUE_CAPACITY);
+
+    /**
+     * 一次分析的結果（不可變）
+     */
+    public static final class Analysis {
+        private final int version;
+        private final List<Tile> tingTiles;
+        private final Map<Tile, List<Tile>> discardHints;
+
+        Analysis(int version, List<Tile> tingTiles, Map<Tile, List<Tile>> discardHints) {
+            this.version = version;
+            this.tingTiles = tingTiles;
+            this.discardHints = discardHints;
+        }
+
+        /**
+         * @return 分析時的手牌版本，session 用來判斷結果是否已經過期
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * @return 等牌時聽的牌；不是等牌的手牌或沒有聽牌時為空
+         */
+        public List<Tile> getTingTiles() {
+            return tingTiles;
+        }
+
+        /**
+         * @return 該出牌時「打出這張 → 聽這些牌」；沒有任何一張能聽牌時為空
+         */
+        public Map<Tile, List<Tile>> getDiscardHints() {
+            return discardHints;
+        }
+
+        /**
+         * @return 沒有聽牌也沒有出牌提示（不推送）
+         */
+        public boolean isEmpty() {
+            return tingTiles.isEmpty() && discardHints.isEmpty();
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final TingDetector tingDetector = new TingDetector();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder analysisNanos = new LongAdder();
+
+    /**
+     * @param threads       背景執行緒數
+     * @param queueCapacity 等待中的分析上限
+     */
+    public HandAnalysisPool(int threads, int queueCapacity) {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Invalid analysis pool size: threads=" + threads
+                    + ", queue=" + queueCapacity);
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "mahjong-analysis-" + count.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 所有 session 共用的池（執行緒數 = 核心數的一半）
+     */
+    public static HandAnalysisPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * 排入一次分析，完成後在背景執行緒上呼叫 callback
+     *
+     * @param hand 手牌複本，呼叫後不可再修改
+     * @return 佇列已滿而丟棄時為 false
+     */
+    public boolean submit(PlayerHand hand, Consumer<Analysis> callback) {
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                Analysis analysis;
+                try {
+                    analysis = analyze(hand);
+                } finally {
+                    analysisNanos.add(System.nanoTime() - start);
+                }
+                completed.increment();
+                try {
+                    callback.accept(analysis);
+                } catch (Exception e) {
+                    logger.error("Hand analysis callback failed", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+            return false;
+        }
+        submitted.increment();
+        return true;
+    }
+
+    /**
+     * 同步分析（背景執行緒與測試使用）
+     *
+     * 以立牌張數判斷（面子與槓不影響餘數；{@link PlayerHand#getConnectionCount} 會把槓算成 4 張）：
+     * - 等牌的手牌（立牌 mod 3 = 1，例如 16 張）：聽哪些牌
+     * - 該出牌的手牌（立牌 mod 3 = 2，例如摸牌後 17 張）：每一種可以打出的牌，打出後聽哪些牌
+     */
+    public Analysis analyze(PlayerHand hand) {
+        int standing = hand.getTileCount();
+        List<Tile> ting = List.of();
+        Map<Tile, List<Tile>> hints = new LinkedHashMap<>();
+        if (standing % 3 == 1) {
+            ting = tingDetector.detectTing(hand).getTingTiles();
+        } else if (standing % 3 == 2) {
+            PlayerHand work = hand.copy();
+            for (int i = 0; i < 34; i++) {
+                if (hand.getCount(i) == 0) {
+                    continue;
+                }
+                Tile discard = Tile.fromIndex(i);
+                work.removeTile(discard);
+                TingDetector.TingResult result = tingDetector.detectTing(work);
+                if (result.isTing()) {
+                    hints.put(discard, result.getTingTiles());
+                }
+                work.addTile(discard);
+            }
+        }
+        return new Analysis(hand.getVersion(), List.copyOf(ting), hints);
+    }
+
+    /**
+     * 轉成推送給客戶端的資料：{action, version, ting: [...], hints: {出的牌: [聽的牌]}}
+     */
+    static Map<String, Object> toMessage(Analysis analysis) {
+        List<String> ting = new ArrayList<>(analysis.getTingTiles().size());
+        for (Tile t : analysis.getTingTiles()) {
+            ting.add(t.toString());
+        }
+        Map<String, Object> hints = new LinkedHashMap<>();
+        for (Map.Entry<Tile, List<Tile>> e : analysis.getDiscardHints().entrySet()) {
+            List<String> waits = new ArrayList<>(e.getValue().size());
+            for (Tile t : e.getValue()) {
+                waits.add(t.toString());
+            }
+            hints.put(e.getKey().toString(), waits);
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("action", ACTION);
+        data.put("version", analysis.getVersion());
+        data.put("ting", ting);
+        data.put("hints", hints);
+        return data;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @return 佇列已滿而丟棄的分析數
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return 背景執行緒花在分析上的總時間
+     */
+    public long getAnalysisNanos() {
+        return analysisNanos.sum();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+}
@@ -1,26 +1,106 @@
 package com.mahjong.server;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mahjong.model.BinaryPacketCodec;
 import com.mahjong.model.Command;
 import com.mahjong.model.Packet;
 import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.IExtension;
 import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
 import org.java_websocket.server.WebSocketServer;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class MahjongWebSocketServer extends WebSocketServer {
+    /** 吃碰槓胡宣告的等待時間，逾時自動 SKIP */
+    static final long CLAIM_TIMEOUT_MS = 15_000;
+    /** 出牌的等待時間，逾時自動打出剛摸到的牌 */
+    static final long TURN_TIMEOUT_MS = 30_000;
+
+    /** 排隊中的訊框補送間隔 */
+    static final long OUTBOUND_DRAIN_MS = 100;
+
+    /** 檢查是否有玩家等太久、需要補機器人的間隔 */
+    static final long MATCH_SWEEP_MS = 1_000;
+
     private final ObjectMapper mapper = new ObjectMapper();
+    // 每個連線的有上限輸出佇列，大廳訊息與所有牌桌共用
+    private final OutboundQueues outboundQueues;
+    private final PacketWriter writer;
+    // 伺服器訊息只送給關心的連線：大廳、各牌桌、各牌桌的觀戰者
+    private final TopicRegistry topics;
     // Map WebSocket connection to Nickname
     private final Map<WebSocket, String> players = new ConcurrentHashMap<>();
 
-    private final List<WebSocket> waitingQueue = new ArrayList<>();
-    private WebSocketGameSession currentSession;
+    // 排隊配對：依 bucket 分開的無鎖佇列，等太久的玩家補機器人開桌
+    private final Matchmaker matchmaker;
+    // 所有進行中的牌桌與 連線 → (房間, 座位) 路由；牌桌分散在每核心一個的 worker 上
+    private final RoomRegistry rooms = new RoomRegistry(new SessionWorkerPool());
+    // 所有牌桌共用一個時間輪管理座位逾時
+    private final TimingWheel timingWheel = new TimingWheel(100);
+
+    // 協商到 permessage-deflate 的連線共用的設定與統計；null 表示不壓縮
+    private final MeteredDeflateExtension deflate;
 
     public MahjongWebSocketServer(int port) {
-        super(new InetSocketAddress(port));
+        this(port, new MeteredDeflateExtension());
+    }
+
+    /**
+     * @param deflate permessage-deflate 設定，null 表示不提供壓縮
+     */
+    public MahjongWebSocketServer(int port, MeteredDeflateExtension deflate) {
+        this(port, deflate, new OutboundQueues());
+    }
+
+    /**
+     * @param deflate        permessage-deflate 設定，null 表示不提供壓縮
+     * @param outboundQueues 每個連線的輸出佇列上限
+     */
+    public MahjongWebSocketServer(int port, MeteredDeflateExtension deflate, OutboundQueues outboundQueues) {
+        this(port, deflate, outboundQueues, Matchmaker.DEFAULT_BOT_WAIT_MS);
+    }
+
+    /**
+     * @param botWaitMs 排隊多久之後補機器人開桌，0 表示不補
+     */
+    public MahjongWebSocketServer(int port, MeteredDeflateExtension deflate, OutboundQueues outboundQueues,
+                                  long botWaitMs) {
+        super(new InetSocketAddress(port), List.of(newDraft(deflate)));
+        this.deflate = deflate;
+        this.outboundQueues = outboundQueues;
+        this.writer = new PacketWriter(mapper, outboundQueues);
+        this.topics = new TopicRegistry(writer);
+        this.matchmaker = new Matchmaker(botWaitMs, this::startGame);
+        rooms.enableTimeouts(timingWheel, CLAIM_TIMEOUT_MS, TURN_TIMEOUT_MS);
+        rooms.setOutboundQueues(outboundQueues);
+        rooms.setRoomFinishedListener(room -> {
+            topics.removeTopic(TopicRegistry.room(room.getId()));
+            topics.removeTopic(TopicRegistry.spectators(room.getId()));
+            for (WebSocket ws : room.getPlayers()) {
+                if (ws instanceof BotConnection) {
+                    players.remove(ws);
+                    outboundQueues.remove(ws);
+                }
+            }
+        });
+    }
+
+    /**
+     * 客戶端可在握手時選擇二進位子協定；沒有指定子協定的客戶端（web/game.js）使用 JSON。
+     * 客戶端提出 permessage-deflate 時啟用壓縮，沒提出的照常連線。
+     */
+    private static Draft newDraft(MeteredDeflateExtension deflate) {
+        List<IExtension> extensions = deflate == null ? Collections.emptyList() : List.of(deflate);
+        List<IProtocol> protocols = List.of(new Protocol(BinaryPacketCodec.SUBPROTOCOL), new Protocol(""));
+        return new Draft_6455(extensions, protocols);
     }
 
     @Override
@@ -32,9 +112,18 @@ public class MahjongWebSocketServer extends WebSocketServer {
     public void onClose(WebSocket conn, int code, String reason, boolean remote) {
         System.out.println("Closed connection: " + conn.getRemoteSocketAddress());
         String nickname = players.remove(conn);
-        waitingQueue.remove(conn);
+        matchmaker.cancel(conn);
+        RoomRegistry.Seat seat = rooms.disconnect(conn);
+        outboundQueues.remove(conn);
+        topics.unsubscribeAll(conn);
         if (nickname != null) {
-            broadcastMessage("Server", nickname + " has left the game.");
+            // 牌桌上的玩家離開只通知同桌與觀戰者，大廳的玩家離開只通知大廳
+            Packet left = message("Server", nickname + " has left the game.");
+            if (seat != null) {
+                publishRoom(seat.getRoom().getId(), left);
+            } else {
+                publish(TopicRegistry.LOBBY, left);
+            }
         }
     }
 
@@ -49,6 +138,15 @@ public class MahjongWebSocketServer extends WebSocketServer {
         }
     }
 
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+        try {
+            handlePacket(conn, BinaryPacketCodec.decode(message));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
     @Override
     public void onError(WebSocket conn, Exception ex) {
         ex.printStackTrace();
@@ -57,6 +155,9 @@ public class MahjongWebSocketServer extends WebSocketServer {
     @Override
     public void onStart() {
         System.out.println("Mahjong WebSocket Server started on port: " + getPort());
+        timingWheel.start();
+        outboundQueues.scheduleDrain(timingWheel, OUTBOUND_DRAIN_MS);
+        matchmaker.scheduleSweep(timingWheel, MATCH_SWEEP_MS);
     }
 
     private void handlePacket(WebSocket conn, Packet packet) {
@@ -65,71 +166,175 @@ public class MahjongWebSocketServer extends WebSocketServer {
             String nickname = (String) packet.getData().get("nickname");
             players.put(conn, nickname);
 
-            if (!waitingQueue.contains(conn)) {
-                waitingQueue.add(conn);
+            // 已經在牌桌上的連線不再排隊；重複登入沿用原本的票
+            Matchmaker.Ticket ticket = null;
+            if (rooms.route(conn) == null) {
+                // 先訂閱大廳：成桌（可能在其他執行緒上）時才會一併移出
+                topics.subscribe(TopicRegistry.LOBBY, conn);
+                ticket = matchmaker.enqueue(conn, intField(packet, "rating"), intField(packet, "latencyMs"),
+                        !Boolean.FALSE.equals(packet.getData().get("bots")));
             }
 
             // Send Login Success
             sendPacket(conn, new Packet(Command.LOGIN_SUCCESS, null));
 
-            // Broadcast join
-            broadcastMessage("Server", nickname + " joined! (" + waitingQueue.size() + "/4)");
+            if (ticket != null) {
+                // Notify the rest of the lobby
+                int queued = matchmaker.getWaitingCount(ticket.getBucket());
+                int atTable = queued <= 0 ? 0 : (queued - 1) % Matchmaker.TABLE_SIZE + 1;
+                publish(TopicRegistry.LOBBY, message("Server", nickname + " joined! (" + atTable + "/4)"), conn);
 
-            // Check if we can start game
-            if (waitingQueue.size() == 4) {
-                startGame();
+                // Check if we can start game
+                matchmaker.form(ticket.getBucket());
             }
 
-        } else if (cmd == Command.PLAY_CARD || cmd == Command.ACTION) {
-            if (currentSession != null) {
-                currentSession.processPlayerAction(conn, packet);
+        } else if (cmd == Command.PLAY_CARD || cmd == Command.ACTION || cmd == Command.RESYNC
+                || cmd == Command.PREFERENCES) {
+            RoomRegistry.Seat seat = rooms.route(conn);
+            if (seat != null) {
+                // 只排入該牌桌的 mailbox，遊戲邏輯不在網路執行緒上執行
+                seat.getRoom().getSession().submit(seat.getIndex(), packet);
             }
         }
     }
 
-    private void startGame() {
+    private void startGame(Matchmaker.Table table) {
+        List<WebSocket> sessionPlayers = table.getPlayers();
         try {
-            broadcastMessage("Server", "4 Players Ready! Starting Game...");
-            // Create copies of list to avoid concurrency issues during modification
-            List<WebSocket> sessionPlayers = new ArrayList<>(waitingQueue);
-
-            currentSession = new WebSocketGameSession(sessionPlayers, players);
-            currentSession.start();
-
-            // Clear waiting queue as they are now in game
-            waitingQueue.clear();
+            for (WebSocket ws : sessionPlayers) {
+                if (ws instanceof BotConnection) {
+                    players.put(ws, ((BotConnection) ws).getName());
+                }
+            }
+            // 每四位玩家一張新牌桌，不會覆蓋其他進行中的牌桌
+            GameRoom room = rooms.createRoom(sessionPlayers, players);
+            WebSocketGameSession session = room.getSession();
+            for (int i = 0; i < sessionPlayers.size(); i++) {
+                WebSocket ws = sessionPlayers.get(i);
+                if (ws instanceof BotConnection) {
+                    session.setBot(i);
+                    // 機器人不算在線座位：真人都離開時照常回收房間
+                    rooms.disconnect(ws);
+                } else if (ws.isClosing() || ws.isClosed()) {
+                    // 票被取走後才取消：onClose 已經跑過（當時還沒有房間），在這裡補上離線
+                    rooms.disconnect(ws);
+                }
+            }
+            System.out.println("Room " + room.getId() + " created (" + rooms.getActiveRoomCount() + " active)");
+            String roomTopic = TopicRegistry.room(room.getId());
+            for (WebSocket ws : sessionPlayers) {
+                topics.unsubscribe(TopicRegistry.LOBBY, ws);
+                topics.subscribe(roomTopic, ws);
+            }
+            publishRoom(room.getId(), message("Server", table.getBotCount() == 0
+                    ? "4 Players Ready! Starting Game..."
+                    : table.getBotCount() + " bot(s) joined. Starting Game..."));
+            session.tell(session::start);
         } catch (Exception e) {
             e.printStackTrace();
             System.err.println("CRITICAL ERROR Starting Game: " + e.getMessage());
-            broadcastMessage("Server", "Error starting game: " + e.getMessage());
+            for (WebSocket ws : sessionPlayers) {
+                if (ws instanceof BotConnection) {
+                    players.remove(ws);
+                }
+            }
+            try {
+                writer.sendAll(sessionPlayers, message("Server", "Error starting game: " + e.getMessage()));
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
         }
     }
 
-    private void broadcastMessage(String sender, String msg) {
+    /**
+     * 讓連線觀戰指定的牌桌（接收該桌的伺服器訊息）
+     *
+     * @return 牌桌不存在時回傳 false
+     */
+    public boolean spectate(WebSocket conn, long roomId) {
+        if (rooms.getRoom(roomId) == null) {
+            return false;
+        }
+        topics.subscribe(TopicRegistry.spectators(roomId), conn);
+        return true;
+    }
+
+    public Matchmaker getMatchmaker() {
+        return matchmaker;
+    }
+
+    public TopicRegistry getTopics() {
+        return topics;
+    }
+
+    /**
+     * 登入封包中可省略的整數欄位（rating / latencyMs）
+     */
+    private static Integer intField(Packet packet, String name) {
+        Object value = packet.getData().get(name);
+        return value instanceof Number ? ((Number) value).intValue() : null;
+    }
+
+    private static Packet message(String sender, String msg) {
         Map<String, Object> data = new HashMap<>();
         data.put("message", "[" + sender + "] " + msg);
-        broadcast(new Packet(Command.GAME_UPDATE, data));
+        return new Packet(Command.GAME_UPDATE, data);
     }
 
-    private void sendPacket(WebSocket conn, Packet packet) {
+    /**
+     * 牌桌的伺服器訊息：同桌玩家與觀戰者
+     */
+    private void publishRoom(long roomId, Packet packet) {
+        publish(TopicRegistry.room(roomId), packet);
+        publish(TopicRegistry.spectators(roomId), packet);
+    }
+
+    private void publish(String topic, Packet packet) {
+        publish(topic, packet, null);
+    }
+
+    private void publish(String topic, Packet packet, WebSocket exclude) {
         try {
-            conn.send(mapper.writeValueAsString(packet));
+            topics.publish(topic, packet, exclude);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private void broadcast(Packet packet) {
+    private void sendPacket(WebSocket conn, Packet packet) {
         try {
-            String json = mapper.writeValueAsString(packet);
-            broadcast(json);
+            writer.send(conn, packet);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    @Override
+    public void stop(int timeout, String closeMessage) throws InterruptedException {
+        super.stop(timeout, closeMessage);
+        rooms.getWorkerPool().shutdown();
+        timingWheel.stop();
+    }
+
+    public RoomRegistry getRoomRegistry() {
+        return rooms;
+    }
+
+    /**
+     * @return 所有連線合計的壓縮統計，沒有啟用壓縮時為 null
+     */
+    public MeteredDeflateExtension.Stats getDeflateStats() {
+        return deflate == null ? null : deflate.getStats();
+    }
+
+    public OutboundQueues getOutboundQueues() {
+        return outboundQueues;
+    }
+
     public static void main(String[] args) {
         int port = 8888;
-        new MahjongWebSocketServer(port).start();
+        Properties props = System.getProperties();
+        new MahjongWebSocketServer(port, MeteredDeflateExtension.fromProperties(props),
+                OutboundQueues.fromProperties(props), Matchmaker.botWaitMs(props)).start();
     }
 }
@@ -0,0 +1,492 @@
+package com.mahjong.server;
+
+import org.java_websocket.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 無全域鎖的配對佇列：取代 synchronized 的 waitingQueue
+ *
+ * - 每個配對條件（bucket）一條 {@link ConcurrentLinkedDeque}，不同 bucket 互不干擾
+ * - 每個連線一張 {@link Ticket}，狀態 WAITING → MATCHED / CANCELLED 以 CAS 轉換，
+ *   同一張票只會被一張牌桌取走；取消只標記，佇列中的死票在取牌時略過
+ * - 每個 bucket 同時只有一個執行緒取票（forming 旗標 CAS）；搶不到旗標的執行緒直接返回，
+ *   持有者放開旗標後會再檢查一次人數，不會漏掉期間入隊的玩家
+ * - 湊齊四張票就成桌；湊不齊（計數先於入隊、票還沒放進佇列）時依原順序放回隊首，讓出 CPU 後再試
+ * - {@link #sweep()} 在每個 bucket 湊滿真人牌桌；允許機器人的 bucket 中等待超過上限的玩家，
+ *   再以 {@link BotConnection} 補滿座位
+ * - 記錄成桌數、機器人座位數與成桌延遲（最早入隊的玩家等了多久）
+ *
+ * 成桌的回呼在呼叫 {@link #form} / {@link #sweep} 的執行緒上執行。
+ */
+public final class Matchmaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(Matchmaker.class);
+
+    public static final int TABLE_SIZE = 4;
+    public static final String DEFAULT_BUCKET = "default";
+    /** 允許機器人時，等待多久之後補機器人開桌 */
+    public static final long DEFAULT_BOT_WAIT_MS = 30_000;
+    /** 分 bucket 時每一段的積分寬度與延遲寬度 */
+    public static final int RATING_BAND = 200;
+    public static final int LATENCY_BAND_MS = 100;
+
+    private static final int WAITING = 0;
+    private static final int MATCHED = 1;
+    private static final int CANCELLED = 2;
+
+    /**
+     * 一個排隊中的連線
+     */
+    public static final class Ticket {
+        private final WebSocket conn;
+        private final Bucket bucket;
+        private final long enqueuedNanos;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        // 取消時先標記；取牌的執行緒 CAS 成功後看到標記就丟棄
+        private volatile boolean cancelRequested;
+
+        private Ticket(WebSocket conn, Bucket bucket, long enqueuedNanos) {
+            this.conn = conn;
+            this.bucket = bucket;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        public WebSocket getConnection() {
+            return conn;
+        }
+
+        public String getBucket() {
+            return bucket.key;
+        }
+
+        public boolean isWaiting() {
+            return state.get() == WAITING;
+        }
+    }
+
+    /**
+     * 成桌結果：真人玩家在前（依入隊順序），機器人補在後面
+     */
+    public static final class Table {
+        private final String bucket;
+        private final List<WebSocket> players;
+        private final int botCount;
+        private final long waitNanos;
+
+        Table(String bucket, List<WebSocket> players, int botCount, long waitNanos) {
+            this.bucket = bucket;
+            this.players = players;
+            this.botCount = botCount;
+            this.waitNanos = waitNanos;
+        }
+
+        public String getBucket() {
+            return bucket;
+        }
+
+        public List<WebSocket> getPlayers() {
+            return players;
+        }
+
+        public int getBotCount() {
+            return botCount;
+        }
+
+        /**
+         * @return 最早入隊的玩家從入隊到成桌的時間
+         */
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+    }
+
+    private static final class Bucket {
+        final String key;
+        final boolean botsAllowed;
+        final ConcurrentLinkedDeque<Ticket> queue = new ConcurrentLinkedDeque<>();
+        // 佇列中 WAITING 的票數（死票不算），用來判斷是否值得嘗試成桌
+        final AtomicInteger waiting = new AtomicInteger();
+        // 取票中的執行緒持有；同一 bucket 不會有兩個執行緒各取一半
+        final AtomicBoolean forming = new AtomicBoolean();
+
+        Bucket(String key, boolean botsAllowed) {
+            this.key = key;
+            this.botsAllowed = botsAllowed;
+        }
+    }
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<WebSocket, Ticket> tickets = new ConcurrentHashMap<>();
+    private final long botWaitNanos;
+    private final LongSupplier clockNanos;
+    private final Consumer<Table> listener;
+    private final AtomicLong botSeq = new AtomicLong();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder tables = new LongAdder();
+    private final LongAdder botTables = new LongAdder();
+    private final LongAdder botSeats = new LongAdder();
+    private final LongAdder formationNanos = new LongAdder();
+    private final LongAccumulator maxFormationNanos = new LongAccumulator(Long::max, 0);
+
+    /**
+     * @param botWaitMs 等待多久之後補機器人；0 表示永不補機器人
+     * @param listener  成桌時呼叫
+     */
+    public Matchmaker(long botWaitMs, Consumer<Table> listener) {
+        this(botWaitMs, listener, System::nanoTime);
+    }
+
+    /**
+     * @param clockNanos 目前時間（奈秒，只用來計算差值；測試可注入）
+     */
+    public Matchmaker(long botWaitMs, Consumer<Table> listener, LongSupplier clockNanos) {
+        if (botWaitMs < 0) {
+            throw new IllegalArgumentException("Bot wait must not be negative, got " + botWaitMs);
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("Table listener cannot be null");
+        }
+        this.botWaitNanos = botWaitMs * 1_000_000;
+        this.listener = listener;
+        this.clockNanos = clockNanos;
+    }
+
+    /**
+     * 讀取 mahjong.match.botWaitMs（未設定時使用預設值）
+     *
+     * @throws IllegalArgumentException 設定值不是數字
+     */
+    public static long botWaitMs(Properties props) {
+        try {
+            return Long.parseLong(props.getProperty("mahjong.match.botWaitMs", String.valueOf(DEFAULT_BOT_WAIT_MS)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid matchmaking setting: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 依登入時帶的條件決定 bucket：積分與延遲各分段，只有同一段（且機器人設定相同）的玩家會同桌
+     *
+     * @param rating    積分，null 表示不分
+     * @param latencyMs 延遲，null 表示不分
+     */
+    public static String bucketKey(Integer rating, Integer latencyMs, boolean botsAllowed) {
+        StringBuilder key = new StringBuilder(DEFAULT_BUCKET);
+        if (rating != null) {
+            key.append(":r").append(Math.floorDiv(rating, RATING_BAND));
+        }
+        if (latencyMs != null) {
+            key.append(":l").append(Math.max(0, latencyMs) / LATENCY_BAND_MS);
+        }
+        if (!botsAllowed) {
+            key.append(":nobots");
+        }
+        return key.toString();
+    }
+
+    /**
+     * 排入預設 bucket（允許機器人）
+     */
+    public Ticket enqueue(WebSocket conn) {
+        return enqueue(conn, null, null, true);
+    }
+
+    /**
+     * 排隊（不會觸發成桌，呼叫端送出登入回覆後再呼叫 {@link #form}）
+     *
+     * @return 連線的票；已經在排隊時回傳原本的票
+     */
+    public Ticket enqueue(WebSocket conn, Integer rating, Integer latencyMs, boolean botsAllowed) {
+        if (conn == null) {
+            throw new IllegalArgumentException("Connection cannot be null");
+        }
+        String key = bucketKey(rating, latencyMs, botsAllowed);
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(k, botsAllowed));
+        Ticket ticket = new Ticket(conn, bucket, clockNanos.getAsLong());
+        Ticket existing = tickets.putIfAbsent(conn, ticket);
+        if (existing != null) {
+            return existing;
+        }
+        // 先計數再入隊：計數只會高估，取牌時以 CAS 為準
+        bucket.waiting.incrementAndGet();
+        bucket.queue.offerLast(ticket);
+        enqueued.increment();
+        return ticket;
+    }
+
+    /**
+     * 在 bucket 湊得出四位時持續成桌
+     *
+     * @return 成桌數
+     */
+    public int form(String bucketKey) {
+        Bucket bucket = buckets.get(bucketKey);
+        if (bucket == null) {
+            return 0;
+        }
+        int formed = 0;
+        // 放開旗標後再檢查：持有期間被擋下的執行緒所排入的玩家由這裡接手
+        while (bucket.waiting.get() >= TABLE_SIZE && bucket.forming.compareAndSet(false, true)) {
+            try {
+                formed += formHeld(bucket);
+            } finally {
+                bucket.forming.set(false);
+            }
+        }
+        return formed;
+    }
+
+    /**
+     * 取消排隊（斷線時呼叫）
+     *
+     * @return 票原本還在等待中
+     */
+    public boolean cancel(WebSocket conn) {
+        Ticket ticket = conn == null ? null : tickets.get(conn);
+        if (ticket == null) {
+            return false;
+        }
+        ticket.cancelRequested = true;
+        if (ticket.state.compareAndSet(WAITING, CANCELLED)) {
+            ticket.bucket.waiting.decrementAndGet();
+            tickets.remove(conn, ticket);
+            cancelled.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 每個 bucket 先湊滿真人牌桌；允許機器人的 bucket 中最早入隊的玩家等待超過上限時，
+     * 再取最多四位真人並以機器人補滿
+     *
+     * @return 這次成桌數
+     */
+    public int sweep() {
+        int formed = 0;
+        long now = clockNanos.getAsLong();
+        for (Bucket bucket : buckets.values()) {
+            formed += form(bucket.key);
+            if (!bucket.botsAllowed || botWaitNanos <= 0 || !bucket.forming.compareAndSet(false, true)) {
+                // 正在成桌的 bucket 留給下一輪
+                continue;
+            }
+            try {
+                formed += fillWithBots(bucket, now);
+            } finally {
+                bucket.forming.set(false);
+            }
+            // 補位期間被擋下的成桌
+            formed += form(bucket.key);
+        }
+        return formed;
+    }
+
+    /**
+     * 每 intervalMs 執行一次 {@link #sweep()}
+     */
+    public void scheduleSweep(TimingWheel wheel, long intervalMs) {
+        wheel.schedule(intervalMs, () -> {
+            try {
+                sweep();
+            } finally {
+                scheduleSweep(wheel, intervalMs);
+            }
+        });
+    }
+
+    // ---- internal ----
+
+    /**
+     * 持有 forming 旗標時成桌，直到人數不足四位
+     */
+    private int formHeld(Bucket bucket) {
+        int formed = 0;
+        while (bucket.waiting.get() >= TABLE_SIZE) {
+            List<Ticket> taken = take(bucket, TABLE_SIZE);
+            if (taken.size() < TABLE_SIZE) {
+                // 計數先於入隊：有票還沒放進佇列，放回後稍候再取
+                restore(bucket, taken);
+                Thread.yield();
+                continue;
+            }
+            seat(bucket, taken, 0);
+            formed++;
+        }
+        return formed;
+    }
+
+    /**
+     * 持有 forming 旗標時，把等待超過上限的玩家以機器人補滿成桌
+     */
+    private int fillWithBots(Bucket bucket, long now) {
+        int formed = 0;
+        while (true) {
+            Ticket oldest = oldestWaiting(bucket);
+            if (oldest == null || now - oldest.enqueuedNanos < botWaitNanos) {
+                return formed;
+            }
+            List<Ticket> taken = take(bucket, TABLE_SIZE);
+            if (taken.isEmpty()) {
+                return formed;
+            }
+            seat(bucket, taken, TABLE_SIZE - taken.size());
+            formed++;
+        }
+    }
+
+    /**
+     * 從隊首依序 CAS 取走最多 max 張等待中的票；略過（並丟棄）已取消的票
+     */
+    private List<Ticket> take(Bucket bucket, int max) {
+        List<Ticket> taken = new ArrayList<>(max);
+        Ticket t;
+        while (taken.size() < max && (t = bucket.queue.pollFirst()) != null) {
+            if (!t.state.compareAndSet(WAITING, MATCHED)) {
+                continue;
+            }
+            bucket.waiting.decrementAndGet();
+            if (t.cancelRequested) {
+                // 取消與取牌同時發生：以取消為準
+                t.state.set(CANCELLED);
+                tickets.remove(t.conn, t);
+                cancelled.increment();
+                continue;
+            }
+            taken.add(t);
+        }
+        return taken;
+    }
+
+    /**
+     * 湊不齊一桌：依原順序放回隊首，已被要求取消的票直接丟棄
+     */
+    private void restore(Bucket bucket, List<Ticket> taken) {
+        for (int i = taken.size() - 1; i >= 0; i--) {
+            Ticket t = taken.get(i);
+            if (t.cancelRequested) {
+                t.state.set(CANCELLED);
+                tickets.remove(t.conn, t);
+                cancelled.increment();
+                continue;
+            }
+            bucket.waiting.incrementAndGet();
+            t.state.set(WAITING);
+            bucket.queue.offerFirst(t);
+        }
+    }
+
+    private Ticket oldestWaiting(Bucket bucket) {
+        Iterator<Ticket> it = bucket.queue.iterator();
+        while (it.hasNext()) {
+            Ticket t = it.next();
+            if (t.state.get() == WAITING) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    private void seat(Bucket bucket, List<Ticket> taken, int bots) {
+        long now = clockNanos.getAsLong();
+        long oldest = now;
+        List<WebSocket> players = new ArrayList<>(TABLE_SIZE);
+        for (Ticket t : taken) {
+            players.add(t.conn);
+            tickets.remove(t.conn, t);
+            oldest = Math.min(oldest, t.enqueuedNanos);
+        }
+        for (int i = 0; i < bots; i++) {
+            players.add(new BotConnection("Bot-" + botSeq.incrementAndGet()));
+        }
+        long wait = now - oldest;
+        tables.increment();
+        formationNanos.add(wait);
+        maxFormationNanos.accumulate(wait);
+        if (bots > 0) {
+            botTables.increment();
+            botSeats.add(bots);
+        }
+        Table table = new Table(bucket.key, Collections.unmodifiableList(players), bots, wait);
+        try {
+            listener.accept(table);
+        } catch (Exception e) {
+            logger.error("Table listener failed for bucket {}", bucket.key, e);
+        }
+    }
+
+    // ---- metrics ----
+
+    /**
+     * @return 目前排隊中的連線數（所有 bucket）
+     */
+    public int getWaitingCount() {
+        return tickets.size();
+    }
+
+    /**
+     * @return bucket 目前排隊中的連線數
+     */
+    public int getWaitingCount(String bucketKey) {
+        Bucket bucket = buckets.get(bucketKey);
+        return bucket == null ? 0 : Math.max(0, bucket.waiting.get());
+    }
+
+    public boolean isWaiting(WebSocket conn) {
+        return conn != null && tickets.containsKey(conn);
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.sum();
+    }
+
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    public long getFormedTableCount() {
+        return tables.sum();
+    }
+
+    /**
+     * @return 有機器人補位的牌桌數
+     */
+    public long getBotTableCount() {
+        return botTables.sum();
+    }
+
+    public long getBotSeatCount() {
+        return botSeats.sum();
+    }
+
+    /**
+     * @return 平均成桌延遲（最早入隊的玩家等待的時間），還沒成桌時為 0
+     */
+    public double getAverageFormationMillis() {
+        long count = tables.sum();
+        return count == 0 ? 0 : formationNanos.sum() / 1_000_000.0 / count;
+    }
+
+    public double getMaxFormationMillis() {
+        return maxFormationNanos.get() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,285 @@
+package com.mahjong.server;
+
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.ExtensionRequestData;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.ContinuousFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.FramedataImpl1;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * 可設定的 permessage-deflate（RFC 7692），並統計節省的流量與花費的 CPU
+ *
+ * - threshold：payload 小於這個大小不壓縮（STATE_DELTA 通常只有一百多 bytes，壓縮得不償失）
+ * - level：{@link Deflater} 的壓縮等級，-1（預設）或 0..9
+ * - serverNoContextTakeover：每則訊息重設壓縮字典。關閉時（預設）字典跨訊息保留，
+ *   重複的 STATE_UPDATE 壓縮率最好，代價是每個連線多佔一個 deflate 視窗的記憶體
+ * - clientNoContextTakeover：要求客戶端每則訊息重設字典
+ *
+ * 函式庫的 {@link PerMessageDeflateExtension} 不論設定都宣告 server_no_context_takeover、重設字典時固定用預設等級，
+ * 也假設 payload 佔滿整個陣列（pool 借出的 buffer 不是），所以壓縮這一側自己實作；解壓縮沿用函式庫。
+ * 同一個設定建立的所有連線共用一份 {@link Stats}。
+ */
+public class MeteredDeflateExtension extends PerMessageDeflateExtension {
+
+    public static final int DEFAULT_THRESHOLD = 256;
+
+    private static final byte[] TAIL = {0, 0, (byte) 0xFF, (byte) 0xFF};
+
+    /**
+     * 所有連線合計的壓縮統計
+     */
+    public static final class Stats {
+        private final LongAdder compressedFrames = new LongAdder();
+        private final LongAdder skippedFrames = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder deflateNanos = new LongAdder();
+        private final LongAdder inflatedFrames = new LongAdder();
+        private final LongAdder inflateNanos = new LongAdder();
+
+        public long getCompressedFrames() {
+            return compressedFrames.sum();
+        }
+
+        /**
+         * @return 小於 threshold 而未壓縮的訊框數
+         */
+        public long getSkippedFrames() {
+            return skippedFrames.sum();
+        }
+
+        /**
+         * @return 壓縮前的 bytes（只計入有壓縮的訊框）
+         */
+        public long getBytesIn() {
+            return bytesIn.sum();
+        }
+
+        public long getBytesOut() {
+            return bytesOut.sum();
+        }
+
+        public long getBytesSaved() {
+            return getBytesIn() - getBytesOut();
+        }
+
+        public long getDeflateNanos() {
+            return deflateNanos.sum();
+        }
+
+        public long getInflatedFrames() {
+            return inflatedFrames.sum();
+        }
+
+        public long getInflateNanos() {
+            return inflateNanos.sum();
+        }
+
+        /**
+         * @return 壓縮後 / 壓縮前，尚未壓縮過時為 1
+         */
+        public double getCompressionRatio() {
+            long in = getBytesIn();
+            return in == 0 ? 1.0 : (double) getBytesOut() / in;
+        }
+
+        /**
+         * @return 每花一毫秒壓縮 CPU 省下的 bytes，用來比較不同等級與 threshold 的取捨
+         */
+        public double getBytesSavedPerCpuMs() {
+            long nanos = getDeflateNanos();
+            return nanos == 0 ? 0.0 : getBytesSaved() * 1_000_000.0 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Deflate[frames=%d, skipped=%d, in=%d, out=%d, ratio=%.3f, deflateMs=%.1f, savedPerMs=%.0f]",
+                    getCompressedFrames(), getSkippedFrames(), getBytesIn(), getBytesOut(),
+                    getCompressionRatio(), getDeflateNanos() / 1e6, getBytesSavedPerCpuMs());
+        }
+    }
+
+    private final int level;
+    private final boolean configuredClientNoContextTakeover;
+    private final Stats stats;
+
+    /**
+     * 預設設定：threshold {@value #DEFAULT_THRESHOLD}、預設等級、保留字典
+     */
+    public MeteredDeflateExtension() {
+        this(DEFAULT_THRESHOLD, Deflater.DEFAULT_COMPRESSION, false, false);
+    }
+
+    public MeteredDeflateExtension(int threshold, int level,
+                                   boolean serverNoContextTakeover, boolean clientNoContextTakeover) {
+        this(threshold, level, serverNoContextTakeover, clientNoContextTakeover, new Stats());
+    }
+
+    private MeteredDeflateExtension(int threshold, int level, boolean serverNoContextTakeover,
+                                    boolean clientNoContextTakeover, Stats stats) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative, got " + threshold);
+        }
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Compression level must be -1 or 0..9, got " + level);
+        }
+        this.level = level;
+        this.configuredClientNoContextTakeover = clientNoContextTakeover;
+        this.stats = stats;
+        setThreshold(threshold);
+        setServerNoContextTakeover(serverNoContextTakeover);
+        setClientNoContextTakeover(clientNoContextTakeover);
+        setDeflater(new Deflater(level, true));
+    }
+
+    /**
+     * 從設定讀取（例如 -Dmahjong.deflate.level=1），沒有設定的項目用預設值
+     *
+     * - mahjong.deflate.enabled：false 時回傳 null（不壓縮）
+     * - mahjong.deflate.threshold
+     * - mahjong.deflate.level
+     * - mahjong.deflate.serverNoContextTakeover
+     * - mahjong.deflate.clientNoContextTakeover
+     */
+    public static MeteredDeflateExtension fromProperties(Properties props) {
+        if (!Boolean.parseBoolean(props.getProperty("mahjong.deflate.enabled", "true"))) {
+            return null;
+        }
+        try {
+            return new MeteredDeflateExtension(
+                    Integer.parseInt(props.getProperty("mahjong.deflate.threshold", String.valueOf(DEFAULT_THRESHOLD))),
+                    Integer.parseInt(props.getProperty("mahjong.deflate.level", String.valueOf(Deflater.DEFAULT_COMPRESSION))),
+                    Boolean.parseBoolean(props.getProperty("mahjong.deflate.serverNoContextTakeover", "false")),
+                    Boolean.parseBoolean(props.getProperty("mahjong.deflate.clientNoContextTakeover", "false")));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid deflate setting: " + e.getMessage(), e);
+        }
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void encodeFrame(Framedata frame) {
+        if (!(frame instanceof DataFrame)) {
+            return;
+        }
+        ByteBuffer payload = frame.getPayloadData();
+        int size = payload.remaining();
+        if (size < getThreshold()) {
+            stats.skippedFrames.increment();
+            return;
+        }
+        long start = System.nanoTime();
+        Deflater deflater = getDeflater();
+        deflater.setInput(payload.duplicate());
+        byte[] out = new byte[size / 2 + 64];
+        int len = 0;
+        while (true) {
+            len += deflater.deflate(out, len, out.length - len, Deflater.SYNC_FLUSH);
+            if (len < out.length) {
+                break;
+            }
+            out = Arrays.copyOf(out, out.length * 2);
+        }
+        if (frame.isFin()) {
+            // SYNC_FLUSH 的結尾 00 00 FF FF 由接收端補回
+            if (endsWithTail(out, len)) {
+                len -= TAIL.length;
+            }
+            if (isServerNoContextTakeover()) {
+                deflater.reset();
+            }
+        }
+        if (!(frame instanceof ContinuousFrame)) {
+            ((DataFrame) frame).setRSV1(true);
+        }
+        ((FramedataImpl1) frame).setPayload(ByteBuffer.wrap(Arrays.copyOf(out, len)));
+        stats.deflateNanos.add(System.nanoTime() - start);
+        stats.compressedFrames.increment();
+        stats.bytesIn.add(size);
+        stats.bytesOut.add(len);
+    }
+
+    @Override
+    public void decodeFrame(Framedata frame) throws InvalidDataException {
+        if (!frame.isRSV1() || !(frame instanceof DataFrame)) {
+            super.decodeFrame(frame);
+            return;
+        }
+        long start = System.nanoTime();
+        super.decodeFrame(frame);
+        stats.inflateNanos.add(System.nanoTime() - start);
+        stats.inflatedFrames.increment();
+    }
+
+    /**
+     * 客戶端要求 server_no_context_takeover 時必須遵守
+     */
+    @Override
+    public boolean acceptProvidedExtensionAsServer(String inputExtension) {
+        if (!super.acceptProvidedExtensionAsServer(inputExtension)) {
+            return false;
+        }
+        for (String offer : inputExtension.split(",")) {
+            ExtensionRequestData data = ExtensionRequestData.parseExtensionRequest(offer);
+            if ("permessage-deflate".equalsIgnoreCase(data.getExtensionName())
+                    && data.getExtensionParameters().containsKey("server_no_context_takeover")) {
+                setServerNoContextTakeover(true);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 依實際設定宣告（函式庫固定宣告 server_no_context_takeover）
+     */
+    @Override
+    public String getProvidedExtensionAsServer() {
+        return "permessage-deflate"
+                + (isServerNoContextTakeover() ? "; server_no_context_takeover" : "")
+                + (isClientNoContextTakeover() ? "; client_no_context_takeover" : "");
+    }
+
+    /**
+     * 每個連線一份（各自的壓縮字典），設定與統計沿用
+     */
+    @Override
+    public IExtension copyInstance() {
+        return new MeteredDeflateExtension(getThreshold(), level, isServerNoContextTakeover(),
+                configuredClientNoContextTakeover, stats);
+    }
+
+    @Override
+    public String toString() {
+        return "MeteredDeflateExtension[threshold=" + getThreshold() + ", level=" + level
+                + ", serverNoContextTakeover=" + isServerNoContextTakeover()
+                + ", clientNoContextTakeover=" + isClientNoContextTakeover() + "]";
+    }
+
+    private static boolean endsWithTail(byte[] data, int len) {
+        if (len < TAIL.length) {
+            return false;
+        }
+        for (int i = 0; i < TAIL.length; i++) {
+            if (data[len - TAIL.length + i] != TAIL[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,203 @@
+package com.mahjong.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 每個連線、每個事件的輸出合併
+ *
+ * session 處理一個 mailbox 事件時（{@link #begin} 到 {@link #flush}），送往同一個連線的訊息先累積起來，
+ * 事件結束時每個連線只送出一個訊框：
+ * - 只有一則訊息：照原樣送出
+ * - JSON：多則訊息合併成一個陣列 {@code [packet, packet, ...]}
+ * - 二進位：{@link com.mahjong.model.BinaryPacketCodec} 的訊息本身有結尾，直接串接
+ * 不在事件中（例如測試直接呼叫 session 方法）時立即送出。
+ *
+ * 只在 session 的 mailbox 執行緒上使用。
+ */
+final class OutboundBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundBatcher.class);
+
+    /**
+     * 單一連線在這個事件中累積的訊息
+     */
+    private static final class Batch {
+        final boolean binary;
+        ByteBuffer buf;
+        int count;
+        OutboundQueues.Kind kind = OutboundQueues.Kind.CHAT;
+        boolean snapshot;
+
+        Batch(boolean binary, ByteBuffer buf) {
+            this.binary = binary;
+            this.buf = buf;
+        }
+    }
+
+    private final PacketWriter writer;
+    private final ByteBufferPool pool;
+    private final Map<WebSocket, Batch> batches = new LinkedHashMap<>();
+    private boolean active;
+
+    private long messages;
+    private long frames;
+
+    OutboundBatcher(PacketWriter writer, ByteBufferPool pool) {
+        this.writer = writer;
+        this.pool = pool;
+    }
+
+    /**
+     * 開始一個事件：之後的訊息都先累積，直到 {@link #flush}
+     */
+    void begin() {
+        active = true;
+    }
+
+    void send(WebSocket ws, Packet packet) throws JsonProcessingException {
+        if (!active) {
+            messages++;
+            frames++;
+            writer.send(ws, packet);
+            return;
+        }
+        append(ws, writer.encode(packet, PacketWriter.isBinary(ws)), OutboundQueues.Kind.of(packet));
+    }
+
+    /**
+     * 同一則訊息送給多個連線，每種格式只編碼一次
+     */
+    void sendAll(Collection<WebSocket> connections, Packet packet) throws JsonProcessingException {
+        if (!active) {
+            messages += connections.size();
+            frames += connections.size();
+            writer.sendAll(connections, packet);
+            return;
+        }
+        OutboundQueues.Kind kind = OutboundQueues.Kind.of(packet);
+        byte[] json = null;
+        byte[] binary = null;
+        for (WebSocket ws : connections) {
+            if (PacketWriter.isBinary(ws)) {
+                if (binary == null) binary = writer.encode(packet, true);
+                append(ws, binary, kind);
+            } else {
+                if (json == null) json = writer.encode(packet, false);
+                append(ws, json, kind);
+            }
+        }
+    }
+
+    /**
+     * 已編碼好的訊息（內容會被複製，呼叫端可以立即重用 frame）
+     *
+     * @param snapshot 訊息是完整狀態（見 {@link OutboundQueues}）
+     */
+    void sendFrame(WebSocket ws, ByteBuffer frame, boolean binary, OutboundQueues.Kind kind, boolean snapshot) {
+        if (!active) {
+            messages++;
+            frames++;
+            writer.write(ws, frame, binary, kind, snapshot);
+            return;
+        }
+        Batch batch = batchFor(ws, binary, frame.remaining());
+        batch.buf.put(frame);
+        added(batch, kind, snapshot);
+    }
+
+    /**
+     * 結束事件：每個連線送出一個訊框
+     */
+    void flush() {
+        active = false;
+        for (Map.Entry<WebSocket, Batch> e : batches.entrySet()) {
+            Batch batch = e.getValue();
+            ByteBuffer buf = batch.buf;
+            try {
+                if (!batch.binary && batch.count > 1) {
+                    buf = pool.ensure(buf, 1);
+                    buf.put((byte) ']');
+                    buf.flip();
+                    buf.put(0, (byte) '[');
+                } else {
+                    buf.flip();
+                    if (!batch.binary) {
+                        buf.position(1); // 只有一則：略過預留的 '['
+                    }
+                }
+                batch.buf = buf;
+                frames++;
+                writer.write(e.getKey(), buf, batch.binary, batch.kind, batch.snapshot);
+            } catch (WebsocketNotConnectedException ex) {
+                // 正在關閉的連線，略過
+            } catch (RuntimeException ex) {
+                // 其他錯誤只影響該連線
+                logger.warn("Failed to flush outbound frame to {}", e.getKey().getRemoteSocketAddress(), ex);
+            } finally {
+                pool.release(batch.buf);
+            }
+        }
+        batches.clear();
+    }
+
+    /**
+     * @return 送出的訊息數（合併前）
+     */
+    long getMessageCount() {
+        return messages;
+    }
+
+    /**
+     * @return 實際送出的訊框數（合併後）
+     */
+    long getFrameCount() {
+        return frames;
+    }
+
+    private void append(WebSocket ws, byte[] encoded, OutboundQueues.Kind kind) {
+        Batch batch = batchFor(ws, PacketWriter.isBinary(ws), encoded.length);
+        batch.buf.put(encoded);
+        added(batch, kind, false);
+    }
+
+    /**
+     * 取得連線的 batch 並確保還能寫入 size bytes（JSON 另外預留分隔的 ','）
+     */
+    private Batch batchFor(WebSocket ws, boolean binary, int size) {
+        Batch batch = batches.get(ws);
+        if (batch == null) {
+            ByteBuffer buf = pool.acquire(size + 2);
+            if (!binary) {
+                buf.put((byte) ' '); // 預留給 '['
+            }
+            batch = new Batch(binary, buf);
+            batches.put(ws, batch);
+        } else {
+            batch.buf = pool.ensure(batch.buf, size + 2);
+            if (!batch.binary) {
+                batch.buf.put((byte) ',');
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * 合併後的訊框取最重要的 kind；任一則是完整狀態就可以取代佇列中較舊的狀態
+     */
+    private void added(Batch batch, OutboundQueues.Kind kind, boolean snapshot) {
+        batch.count++;
+        batch.kind = batch.kind.merge(kind);
+        batch.snapshot |= snapshot;
+        messages++;
+    }
+}
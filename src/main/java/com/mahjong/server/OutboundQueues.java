@@ -0,0 +1,392 @@
+package com.mahjong.server;
+
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.framing.CloseFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * 每個連線一個有上限的輸出佇列，避免慢速客戶端讓伺服器記憶體無限成長
+ *
+ * 「積壓」= 函式庫尚未寫到 socket 的 bytes + 這裡排隊中的 bytes：
+ * - 低於 highWatermark：直接送出
+ * - 達到 highWatermark：進入壅塞狀態，之後的訊框先排隊；函式庫的積壓降到 lowWatermark 以下才恢復送出
+ * - 壅塞時：新的完整狀態取代佇列中尚未送出的狀態訊框（舊狀態已過時），聊天 / 提示訊息直接丟棄
+ * - 超過 disconnectLimit：關閉連線（1013 Try Again Later）
+ *
+ * 排隊中的訊框由 {@link #drainAll} 定期補送（伺服器以時間輪排程），每次送出新訊框時也會先補送。
+ * 已關閉的連線不建立佇列；寫入時才發現連線已關閉則靜默丟棄並移除佇列。
+ * 佇列可被網路執行緒、牌桌 worker 與時間輪同時使用，每個連線的佇列各自同步。
+ */
+public final class OutboundQueues {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundQueues.class);
+
+    public static final int DEFAULT_HIGH_WATERMARK = 256 * 1024;
+    public static final int DEFAULT_LOW_WATERMARK = 64 * 1024;
+    public static final int DEFAULT_DISCONNECT_LIMIT = 1024 * 1024;
+
+    /**
+     * 訊框的優先順序：壅塞時 CHAT 可丟棄、STATE 可被較新的完整狀態取代、NORMAL 一定送達
+     */
+    public enum Kind {
+        CHAT, STATE, NORMAL;
+
+        /**
+         * 只有 message 欄位的 GAME_UPDATE 與聽牌分析是聊天 / 提示；action 為 STATE_* 的是狀態；其他都是 NORMAL
+         */
+        public static Kind of(Packet packet) {
+            Map<String, Object> data = packet.getData();
+            if (data != null && packet.getCommand() == Command.GAME_UPDATE) {
+                Object action = data.get("action");
+                if (data.size() == 1 && data.containsKey("message") || HandAnalysisPool.ACTION.equals(action)) {
+                    return CHAT;
+                }
+                if (TableStateTracker.SNAPSHOT.equals(action) || TableStateTracker.DELTA.equals(action)) {
+                    return STATE;
+                }
+            }
+            return NORMAL;
+        }
+
+        /**
+         * 合併成一個訊框時取較重要的一方（狀態訊框夾帶的聊天可以一起被取代）
+         */
+        public Kind merge(Kind other) {
+            return compareTo(other) >= 0 ? this : other;
+        }
+    }
+
+    /**
+     * 單一連線的佇列
+     */
+    public final class ConnectionQueue {
+        private final WebSocket ws;
+        private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+        private long pendingBytes;
+        private boolean congested;
+        private boolean closed;
+
+        ConnectionQueue(WebSocket ws) {
+            this.ws = ws;
+        }
+
+        /**
+         * 送出或排入一個已編碼的訊框（需要排隊時會複製內容，呼叫端可以立即重用 frame）
+         *
+         * @param snapshot 訊框含完整狀態，可以取代佇列中的 STATE 訊框
+         */
+        public void offer(ByteBuffer frame, boolean binary, Kind kind, boolean snapshot) {
+            // 在鎖外關閉：關閉會觸發 onClose，可能再送訊息給其他連線
+            if (enqueue(frame, binary, kind, snapshot)) {
+                logger.warn("Outbound queue for {} exceeded {} bytes, disconnecting",
+                        ws.getRemoteSocketAddress(), disconnectLimit);
+                ws.closeConnection(CloseFrame.TRY_AGAIN_LATER, "Outbound queue limit exceeded");
+            }
+        }
+
+        /**
+         * @return 超過斷線上限（佇列已清空並標記關閉）
+         */
+        private synchronized boolean enqueue(ByteBuffer frame, boolean binary, Kind kind, boolean snapshot) {
+            if (closed) {
+                return false;
+            }
+            drain();
+            if (!congested && pending.isEmpty()) {
+                write(frame, binary);
+                if (backlog.applyAsLong(ws) >= highWatermark) {
+                    congested = true;
+                    congestions.increment();
+                }
+                return false;
+            }
+            if (kind == Kind.CHAT) {
+                dropped.increment();
+                return false;
+            }
+            if (snapshot) {
+                collapseStates();
+            }
+            byte[] copy = new byte[frame.remaining()];
+            frame.get(copy);
+            pending.addLast(new Entry(copy, binary, kind));
+            pendingBytes += copy.length;
+            if (pendingBytes + backlog.applyAsLong(ws) > disconnectLimit) {
+                closed = true;
+                pending.clear();
+                pendingBytes = 0;
+                disconnects.increment();
+                queues.remove(ws, this);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 函式庫的積壓降到 lowWatermark 以下時恢復送出排隊中的訊框
+         */
+        public synchronized void drain() {
+            if (closed) {
+                return;
+            }
+            if (congested) {
+                if (backlog.applyAsLong(ws) > lowWatermark) {
+                    return;
+                }
+                congested = false;
+            }
+            while (!pending.isEmpty()) {
+                Entry e = pending.pollFirst();
+                pendingBytes -= e.data.length;
+                write(ByteBuffer.wrap(e.data), e.binary);
+                if (backlog.applyAsLong(ws) >= highWatermark) {
+                    congested = true;
+                    congestions.increment();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return 排隊中的訊框數
+         */
+        public synchronized int getDepth() {
+            return pending.size();
+        }
+
+        /**
+         * @return 排隊中加上函式庫尚未寫出的 bytes
+         */
+        public synchronized long getBufferedBytes() {
+            return pendingBytes + backlog.applyAsLong(ws);
+        }
+
+        public synchronized boolean isCongested() {
+            return congested;
+        }
+
+        public synchronized boolean isClosed() {
+            return closed;
+        }
+
+        private void write(ByteBuffer frame, boolean binary) {
+            try {
+                PacketWriter.sendFrame(ws, frame, binary);
+            } catch (WebsocketNotConnectedException e) {
+                // 玩家已離開，同桌其他人還在打：之後的訊框都丟棄
+                closed = true;
+                pending.clear();
+                pendingBytes = 0;
+                queues.remove(ws, this);
+            }
+        }
+
+        private void collapseStates() {
+            Iterator<Entry> it = pending.iterator();
+            while (it.hasNext()) {
+                Entry e = it.next();
+                if (e.kind != Kind.NORMAL) {
+                    it.remove();
+                    pendingBytes -= e.data.length;
+                    collapsed.increment();
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        final byte[] data;
+        final boolean binary;
+        final Kind kind;
+
+        Entry(byte[] data, boolean binary, Kind kind) {
+            this.data = data;
+            this.binary = binary;
+            this.kind = kind;
+        }
+    }
+
+    private final Map<WebSocket, ConnectionQueue> queues = new ConcurrentHashMap<>();
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final int disconnectLimit;
+    private final ToLongFunction<WebSocket> backlog;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder congestions = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+
+    public OutboundQueues() {
+        this(DEFAULT_HIGH_WATERMARK, DEFAULT_LOW_WATERMARK, DEFAULT_DISCONNECT_LIMIT);
+    }
+
+    /**
+     * @param highWatermark   積壓達到這個 bytes 數開始排隊
+     * @param lowWatermark    函式庫的積壓降到這個 bytes 數以下恢復送出
+     * @param disconnectLimit 積壓超過這個 bytes 數就斷線
+     */
+    public OutboundQueues(int highWatermark, int lowWatermark, int disconnectLimit) {
+        this(highWatermark, lowWatermark, disconnectLimit, OutboundQueues::socketBacklog);
+    }
+
+    OutboundQueues(int highWatermark, int lowWatermark, int disconnectLimit, ToLongFunction<WebSocket> backlog) {
+        if (lowWatermark < 0 || highWatermark <= lowWatermark || disconnectLimit < highWatermark) {
+            throw new IllegalArgumentException("Invalid outbound limits: low=" + lowWatermark
+                    + ", high=" + highWatermark + ", disconnect=" + disconnectLimit);
+        }
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.disconnectLimit = disconnectLimit;
+        this.backlog = backlog;
+    }
+
+    /**
+     * 從設定讀取（例如 -Dmahjong.outbound.high=131072），沒有設定的項目用預設值
+     *
+     * - mahjong.outbound.high / mahjong.outbound.low / mahjong.outbound.disconnect（bytes）
+     */
+    public static OutboundQueues fromProperties(Properties props) {
+        try {
+            return new OutboundQueues(
+                    Integer.parseInt(props.getProperty("mahjong.outbound.high", String.valueOf(DEFAULT_HIGH_WATERMARK))),
+                    Integer.parseInt(props.getProperty("mahjong.outbound.low", String.valueOf(DEFAULT_LOW_WATERMARK))),
+                    Integer.parseInt(props.getProperty("mahjong.outbound.disconnect", String.valueOf(DEFAULT_DISCONNECT_LIMIT))));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid outbound setting: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 函式庫尚未寫到 socket 的 bytes；非 {@link WebSocketImpl}（例如測試替身）視為 0
+     */
+    static long socketBacklog(WebSocket ws) {
+        if (!(ws instanceof WebSocketImpl)) {
+            return 0;
+        }
+        long bytes = 0;
+        for (ByteBuffer buf : ((WebSocketImpl) ws).outQueue) {
+            bytes += buf.remaining();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return 連線的佇列；連線已關閉（或正在關閉）時為 null，不會替離開的玩家再建立佇列
+     */
+    public ConnectionQueue queueFor(WebSocket ws) {
+        if (ws.isClosing() || ws.isClosed()) {
+            return null;
+        }
+        return queues.computeIfAbsent(ws, ConnectionQueue::new);
+    }
+
+    /**
+     * @return 連線的佇列；還沒送過訊息或已移除時為 null
+     */
+    public ConnectionQueue get(WebSocket ws) {
+        return queues.get(ws);
+    }
+
+    /**
+     * 連線關閉時移除
+     */
+    public void remove(WebSocket ws) {
+        queues.remove(ws);
+    }
+
+    public boolean isCongested(WebSocket ws) {
+        ConnectionQueue q = queues.get(ws);
+        return q != null && q.isCongested();
+    }
+
+    /**
+     * @return 連線排隊中的訊框數
+     */
+    public int getDepth(WebSocket ws) {
+        ConnectionQueue q = queues.get(ws);
+        return q == null ? 0 : q.getDepth();
+    }
+
+    /**
+     * @return 多個連線（例如一桌的四位玩家）排隊中的訊框數合計
+     */
+    public int getDepth(Collection<WebSocket> connections) {
+        int depth = 0;
+        for (WebSocket ws : connections) {
+            depth += getDepth(ws);
+        }
+        return depth;
+    }
+
+    /**
+     * 補送所有連線排隊中的訊框
+     */
+    public void drainAll() {
+        for (ConnectionQueue q : queues.values()) {
+            q.drain();
+        }
+    }
+
+    /**
+     * 每隔 intervalMs 在時間輪上補送一次
+     */
+    public void scheduleDrain(TimingWheel wheel, long intervalMs) {
+        wheel.schedule(intervalMs, () -> {
+            drainAll();
+            scheduleDrain(wheel, intervalMs);
+        });
+    }
+
+    public int size() {
+        return queues.size();
+    }
+
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    public int getDisconnectLimit() {
+        return disconnectLimit;
+    }
+
+    /**
+     * @return 壅塞時丟棄的聊天 / 提示訊框數
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return 被較新的完整狀態取代而未送出的訊框數
+     */
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+
+    public long getCongestionCount() {
+        return congestions.sum();
+    }
+
+    public long getDisconnectCount() {
+        return disconnects.sum();
+    }
+}
@@ -0,0 +1,165 @@
+package com.mahjong.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mahjong.model.BinaryPacketCodec;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.framing.TextFrame;
+import org.java_websocket.protocols.IProtocol;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * 依連線在握手時選擇的子協定送出 Packet
+ *
+ * - 選擇 {@link BinaryPacketCodec#SUBPROTOCOL} 的連線收二進位訊框
+ * - 其他連線（包含 web/game.js）收 JSON 文字訊框
+ * 廣播時每種格式最多編碼一次。
+ *
+ * 設定 {@link OutboundQueues} 時，所有訊框經過該連線的有上限佇列（慢速客戶端的背壓）。
+ *
+ * 同一個連線可能同時從網路執行緒與牌桌 worker 送出；啟用 permessage-deflate 並保留字典時，
+ * 壓縮順序必須與送出順序相同，所以每個連線的送出以連線本身同步。
+ */
+final class PacketWriter {
+
+    private final ObjectMapper mapper;
+    private OutboundQueues queues;
+
+    PacketWriter(ObjectMapper mapper) {
+        this(mapper, null);
+    }
+
+    PacketWriter(ObjectMapper mapper, OutboundQueues queues) {
+        this.mapper = mapper;
+        this.queues = queues;
+    }
+
+    /**
+     * @param queues 每個連線的輸出佇列，null 表示直接送出
+     */
+    void setQueues(OutboundQueues queues) {
+        this.queues = queues;
+    }
+
+    OutboundQueues getQueues() {
+        return queues;
+    }
+
+    /**
+     * @return 該連線是否使用二進位協定
+     */
+    static boolean isBinary(WebSocket ws) {
+        IProtocol protocol = ws.getProtocol();
+        return protocol != null && BinaryPacketCodec.SUBPROTOCOL.equals(protocol.getProvidedProtocol());
+    }
+
+    /**
+     * 以指定格式編碼：二進位為 {@link BinaryPacketCodec}，否則為 UTF-8 JSON
+     */
+    byte[] encode(Packet packet, boolean binary) throws JsonProcessingException {
+        return binary ? BinaryPacketCodec.encode(packet) : mapper.writeValueAsBytes(packet);
+    }
+
+    /**
+     * 送出已編碼的訊息
+     *
+     * JSON 以文字訊框送出：實際的連線（{@link WebSocketImpl}）直接把 bytes 包成 TextFrame，
+     * 其他實作（例如測試用的替身）退回 {@link WebSocket#send(String)}。
+     * 函式庫送出時會複製內容，回傳後即可重用 buffer。
+     */
+    static void sendFrame(WebSocket ws, ByteBuffer frame, boolean binary) {
+        synchronized (ws) {
+            if (binary) {
+                ws.send(frame);
+            } else if (ws instanceof WebSocketImpl) {
+                TextFrame text = new TextFrame();
+                text.setPayload(frame);
+                ws.sendFrame(text);
+            } else {
+                ws.send(StandardCharsets.UTF_8.decode(frame).toString());
+            }
+        }
+    }
+
+    /**
+     * 送出已編碼的訊框；有設定佇列時依 kind 套用背壓策略
+     *
+     * @param snapshot 訊框含完整狀態，可以取代佇列中尚未送出的狀態
+     */
+    void write(WebSocket ws, ByteBuffer frame, boolean binary, OutboundQueues.Kind kind, boolean snapshot) {
+        if (queues == null) {
+            sendFrame(ws, frame, binary);
+        } else {
+            OutboundQueues.ConnectionQueue queue = queues.queueFor(ws);
+            if (queue != null) {
+                queue.offer(frame, binary, kind, snapshot);
+            }
+        }
+    }
+
+    void send(WebSocket ws, Packet packet) throws JsonProcessingException {
+        if (queues != null) {
+            boolean binary = isBinary(ws);
+            write(ws, ByteBuffer.wrap(encode(packet, binary)), binary, OutboundQueues.Kind.of(packet), false);
+            return;
+        }
+        if (isBinary(ws)) {
+            byte[] binary = BinaryPacketCodec.encode(packet);
+            synchronized (ws) {
+                ws.send(binary);
+            }
+        } else {
+            String json = mapper.writeValueAsString(packet);
+            synchronized (ws) {
+                ws.send(json);
+            }
+        }
+    }
+
+    void sendAll(Collection<WebSocket> connections, Packet packet) throws JsonProcessingException {
+        if (queues != null) {
+            OutboundQueues.Kind kind = OutboundQueues.Kind.of(packet);
+            byte[] jsonBytes = null;
+            byte[] binaryBytes = null;
+            for (WebSocket ws : connections) {
+                try {
+                    if (isBinary(ws)) {
+                        if (binaryBytes == null) binaryBytes = encode(packet, true);
+                        write(ws, ByteBuffer.wrap(binaryBytes), true, kind, false);
+                    } else {
+                        if (jsonBytes == null) jsonBytes = encode(packet, false);
+                        write(ws, ByteBuffer.wrap(jsonBytes), false, kind, false);
+                    }
+                } catch (WebsocketNotConnectedException e) {
+                    // 正在關閉的連線，略過
+                }
+            }
+            return;
+        }
+        String json = null;
+        byte[] binary = null;
+        for (WebSocket ws : connections) {
+            try {
+                if (isBinary(ws)) {
+                    if (binary == null) binary = BinaryPacketCodec.encode(packet);
+                    synchronized (ws) {
+                        ws.send(binary);
+                    }
+                } else {
+                    if (json == null) json = mapper.writeValueAsString(packet);
+                    synchronized (ws) {
+                        ws.send(json);
+                    }
+                }
+            } catch (WebsocketNotConnectedException e) {
+                // 正在關閉的連線，略過
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.mahjong.server;
+
+import org.java_websocket.WebSocket;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 多牌桌的房間登記表
+ *
+ * - rooms：房間編號 → GameRoom
+ * - routes：連線 → (房間, 座位)，每個封包 O(1) 找到該送往哪個 session 的哪個座位，
+ *   取代 players.indexOf(conn)
+ *
+ * 房間生命週期：
+ * 1. createRoom：四位玩家配對成功時建立 session 並登記所有連線
+ * 2. finishRoom：遊戲結束（GAME_OVER）時呼叫，移除房間與所有路由並停止 session（回收）
+ * 3. disconnect：玩家離線時移除路由，四位都離線的房間直接回收
+ *
+ * 所有操作皆為執行緒安全，可同時服務上千張牌桌。
+ * 指定 {@link SessionWorkerPool} 時，每個房間的 session 固定在負載最低的 worker 上執行。
+ */
+public class RoomRegistry {
+
+    /**
+     * 連線所在的房間與座位
+     */
+    public static final class Seat {
+        private final GameRoom room;
+        private final int index;
+
+        Seat(GameRoom room, int index) {
+            this.room = room;
+            this.index = index;
+        }
+
+        public GameRoom getRoom() {
+            return room;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+    }
+
+    private final Map<Long, GameRoom> rooms = new ConcurrentHashMap<>();
+    private final Map<WebSocket, Seat> routes = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final LongAdder created = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+    private final SessionWorkerPool workerPool;
+    private TimingWheel timingWheel;
+    private long claimTimeoutMs;
+    private long turnTimeoutMs;
+    private OutboundQueues outboundQueues;
+    private volatile Consumer<GameRoom> roomFinishedListener;
+
+    /**
+     * 不指定 worker pool：session 使用預設的虛擬執行緒 executor
+     */
+    public RoomRegistry() {
+        this(null);
+    }
+
+    public RoomRegistry(SessionWorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+
+    /**
+     * 之後建立的房間都啟用座位逾時（見 {@link WebSocketGameSession#enableTimeouts}）
+     */
+    public void enableTimeouts(TimingWheel wheel, long claimTimeoutMs, long turnTimeoutMs) {
+        this.timingWheel = wheel;
+        this.claimTimeoutMs = claimTimeoutMs;
+        this.turnTimeoutMs = turnTimeoutMs;
+    }
+
+    /**
+     * 之後建立的房間都使用每個連線的輸出佇列（見 {@link OutboundQueues}）
+     */
+    public void setOutboundQueues(OutboundQueues queues) {
+        this.outboundQueues = queues;
+    }
+
+    /**
+     * 房間回收後呼叫（例如清除該桌的訊息主題）
+     */
+    public void setRoomFinishedListener(Consumer<GameRoom> listener) {
+        this.roomFinishedListener = listener;
+    }
+
+    public SessionWorkerPool getWorkerPool() {
+        return workerPool;
+    }
+
+    /**
+     * 為四位玩家建立房間與 session（尚未 start）
+     *
+     * @throws IllegalStateException 任一連線已經在其他房間
+     */
+    public GameRoom createRoom(List<WebSocket> players, Map<WebSocket, String> nickNames) {
+        List<WebSocket> seats = new ArrayList<>(players);
+        SessionWorkerPool.Worker worker = workerPool == null ? null : workerPool.assign();
+        WebSocketGameSession session = worker == null
+                ? new WebSocketGameSession(seats, nickNames)
+                : new WebSocketGameSession(seats, nickNames, worker);
+        if (timingWheel != null) {
+            session.enableTimeouts(timingWheel, claimTimeoutMs, turnTimeoutMs);
+        }
+        if (outboundQueues != null) {
+            session.setOutboundQueues(outboundQueues);
+        }
+        GameRoom room = new GameRoom(nextId.getAndIncrement(), seats, session, worker);
+
+        for (int i = 0; i < seats.size(); i++) {
+            Seat previous = routes.putIfAbsent(seats.get(i), new Seat(room, i));
+            if (previous != null) {
+                // 還原已登記的座位與 worker 名額
+                for (int j = 0; j < i; j++) {
+                    routes.remove(seats.get(j));
+                }
+                if (workerPool != null) {
+                    workerPool.release(worker);
+                }
+                throw new IllegalStateException("Connection already seated in room " + previous.room.getId());
+            }
+        }
+        session.setGameOverListener(() -> finishRoom(room.getId()));
+        rooms.put(room.getId(), room);
+        created.increment();
+        return room;
+    }
+
+    /**
+     * @return 連線所在的座位；不在任何房間時回傳 null
+     */
+    public Seat route(WebSocket conn) {
+        return conn == null ? null : routes.get(conn);
+    }
+
+    public GameRoom getRoom(long roomId) {
+        return rooms.get(roomId);
+    }
+
+    /**
+     * 結束並回收房間，停止 session（重複呼叫無副作用）
+     */
+    public void finishRoom(long roomId) {
+        GameRoom room = rooms.remove(roomId);
+        if (room == null || !room.finish()) {
+            return;
+        }
+        // 整桌離線時 session 還在進行：停掉逾時與機器人，避免沒有人的牌桌自己打完
+        room.getSession().shutdown();
+        for (WebSocket ws : room.getPlayers()) {
+            Seat seat = routes.get(ws);
+            if (seat != null && seat.room == room) {
+                routes.remove(ws, seat);
+            }
+        }
+        if (workerPool != null) {
+            workerPool.release(room.getWorker());
+        }
+        finished.increment();
+        Consumer<GameRoom> listener = roomFinishedListener;
+        if (listener != null) {
+            listener.accept(room);
+        }
+    }
+
+    /**
+     * 玩家離線：移除路由，整桌都離線時回收房間
+     *
+     * @return 玩家原本所在的座位；不在任何房間時回傳 null
+     */
+    public Seat disconnect(WebSocket conn) {
+        Seat seat = conn == null ? null : routes.remove(conn);
+        if (seat != null && seat.room.seatDisconnected() <= 0) {
+            finishRoom(seat.room.getId());
+        }
+        return seat;
+    }
+
+    public Collection<GameRoom> getActiveRooms() {
+        return Collections.unmodifiableCollection(rooms.values());
+    }
+
+    public int getActiveRoomCount() {
+        return rooms.size();
+    }
+
+    public int getSeatedConnectionCount() {
+        return routes.size();
+    }
+
+    public long getCreatedRoomCount() {
+        return created.sum();
+    }
+
+    public long getFinishedRoomCount() {
+        return finished.sum();
+    }
+}
@@ -0,0 +1,141 @@
+package com.mahjong.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定數量的單執行緒 worker（預設每個 CPU 核心一個），用來執行所有牌桌的 mailbox
+ *
+ * - 每個房間建立時指派給目前房間數最少的 worker，之後一直固定在同一個 worker
+ *   （同一桌的事件永遠在同一條執行緒上，狀態不需要鎖，cache locality 也較好）
+ * - 房間結束時釋放，讓新房間補到負載較低的 worker
+ * - 每個 worker 統計房間數、執行的事件數與忙碌時間
+ *
+ * 註：JVM 無法直接把執行緒綁定到指定核心，這裡以「worker 數 = 核心數」讓 OS 排程器自然分散。
+ */
+public class SessionWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionWorkerPool.class);
+
+    /**
+     * 單一 worker：一條執行緒依序執行指派給它的所有牌桌事件
+     */
+    public static final class Worker implements java.util.concurrent.Executor {
+        private final int index;
+        private final ExecutorService thread;
+        private final AtomicInteger activeRooms = new AtomicInteger();
+        private final LongAdder events = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        Worker(int index) {
+            this.index = index;
+            this.thread = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "mahjong-worker-" + index);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            thread.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    logger.error("Worker {} task failed", index, e);
+                } finally {
+                    busyNanos.add(System.nanoTime() - start);
+                    events.increment();
+                }
+            });
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getActiveRooms() {
+            return activeRooms.get();
+        }
+
+        public long getEventCount() {
+            return events.sum();
+        }
+
+        public long getBusyNanos() {
+            return busyNanos.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Worker#" + index + "[rooms=" + getActiveRooms() + ", events=" + getEventCount()
+                    + ", busyMs=" + getBusyNanos() / 1_000_000 + "]";
+        }
+    }
+
+    private final List<Worker> workers;
+
+    public SessionWorkerPool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public SessionWorkerPool(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive, got " + size);
+        }
+        List<Worker> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new Worker(i));
+        }
+        this.workers = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * 為新房間挑選房間數最少的 worker（同數量取編號小的），並計入一個房間
+     */
+    public synchronized Worker assign() {
+        Worker best = workers.get(0);
+        for (Worker w : workers) {
+            if (w.activeRooms.get() < best.activeRooms.get()) {
+                best = w;
+            }
+        }
+        best.activeRooms.incrementAndGet();
+        return best;
+    }
+
+    /**
+     * 房間結束時釋放 worker 上的名額
+     */
+    public synchronized void release(Worker worker) {
+        if (worker != null && worker.activeRooms.get() > 0) {
+            worker.activeRooms.decrementAndGet();
+        }
+    }
+
+    public List<Worker> getWorkers() {
+        return workers;
+    }
+
+    public int size() {
+        return workers.size();
+    }
+
+    /**
+     * 停止所有 worker 執行緒（已排入的事件會執行完）
+     */
+    public void shutdown() {
+        for (Worker w : workers) {
+            w.thread.shutdown();
+        }
+    }
+}
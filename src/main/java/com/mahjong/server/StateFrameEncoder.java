@@ -0,0 +1,163 @@
+package com.mahjong.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.model.BinaryPacketCodec;
+import com.mahjong.model.Command;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 狀態訊息的編碼：公開部分每一版只編碼一次，手牌片段每個座位快取
+ *
+ * 一則狀態訊息 = 前綴 + 公開部分（所有接收者共用）+ 座位片段（myIndex / myHand）+ 結尾，
+ * 直接組合成 bytes 寫進 {@link ByteBufferPool} 借來的 buffer，不經過 String。
+ * - JSON：與 Jackson 序列化 {@code Packet(GAME_UPDATE, map)} 的 UTF-8 輸出相容
+ * - 二進位：{@link BinaryPacketCodec} 的欄位可以直接串接，command + 欄位 + END
+ * 兩種格式各自快取，同一版只會編碼實際有連線使用的格式。
+ *
+ * 只在 session 的 mailbox 執行緒上使用。
+ */
+final class StateFrameEncoder {
+
+    private static final byte[] PREFIX = "{\"command\":\"GAME_UPDATE\",\"data\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MY_INDEX = ",\"myIndex\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MY_HAND = ",\"myHand\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SUFFIX = "}}".getBytes(StandardCharsets.US_ASCII);
+    private static final byte BINARY_COMMAND = BinaryPacketCodec.commandCode(Command.GAME_UPDATE);
+
+    /**
+     * 單一格式的快取：公開部分以 map 物件本身判斷是否為同一版（TableStateTracker 同一版回傳同一個物件），
+     * 手牌片段依 PlayerHand 版本快取
+     */
+    private static final class FormatCache {
+        Map<String, Object> encodedPublic;
+        byte[] publicBytes;
+        final byte[][] handBytes;
+        final int[] handVersions;
+
+        FormatCache(int seats) {
+            handBytes = new byte[seats][];
+            handVersions = new int[seats];
+            Arrays.fill(handVersions, -1);
+        }
+    }
+
+    private final ObjectMapper mapper;
+    private final ByteBufferPool pool;
+    private final FormatCache json;
+    private final FormatCache binary;
+
+    private long publicEncodes;
+    private long handEncodes;
+
+    StateFrameEncoder(ObjectMapper mapper, ByteBufferPool pool, int seats) {
+        this.mapper = mapper;
+        this.pool = pool;
+        this.json = new FormatCache(seats);
+        this.binary = new FormatCache(seats);
+    }
+
+    /**
+     * 組出給某個座位的 JSON 訊息
+     *
+     * @param publicPart 所有接收者共用的部分（同一版傳入同一個物件）
+     * @param seat       座位；負數表示沒有座位（只送公開部分）
+     * @param hand       要附加的手牌；null 表示不附加
+     * @return 從 pool 借來、已 flip 的 buffer，送出後要呼叫 {@link #release}
+     */
+    ByteBuffer encode(Map<String, Object> publicPart, int seat, PlayerHand hand) throws JsonProcessingException {
+        byte[] pub = publicBytes(json, publicPart, false);
+        byte[] handPart = hand == null ? null : handBytes(json, seat, hand, false);
+
+        int size = PREFIX.length + pub.length + MY_INDEX.length + 11 + SUFFIX.length
+                + (handPart == null ? 0 : MY_HAND.length + handPart.length);
+        ByteBuffer buf = pool.acquire(size);
+        buf.put(PREFIX);
+        buf.put(pub, 0, pub.length - 1); // 去掉公開部分的 '}'，接上座位片段
+        if (seat >= 0) {
+            buf.put(MY_INDEX);
+            putInt(buf, seat);
+        }
+        if (handPart != null) {
+            buf.put(MY_HAND);
+            buf.put(handPart);
+        }
+        buf.put(SUFFIX);
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * 與 {@link #encode} 相同，但輸出 {@link BinaryPacketCodec} 格式
+     */
+    ByteBuffer encodeBinary(Map<String, Object> publicPart, int seat, PlayerHand hand) throws JsonProcessingException {
+        byte[] pub = publicBytes(binary, publicPart, true);
+        byte[] handPart = hand == null ? null : handBytes(binary, seat, hand, true);
+        byte[] seatPart = seat >= 0 ? BinaryPacketCodec.encodeField("myIndex", seat) : null;
+
+        int size = 2 + pub.length + (seatPart == null ? 0 : seatPart.length)
+                + (handPart == null ? 0 : handPart.length);
+        ByteBuffer buf = pool.acquire(size);
+        buf.put(BINARY_COMMAND);
+        buf.put(pub);
+        if (seatPart != null) {
+            buf.put(seatPart);
+        }
+        if (handPart != null) {
+            buf.put(handPart);
+        }
+        buf.put(BinaryPacketCodec.END);
+        buf.flip();
+        return buf;
+    }
+
+    void release(ByteBuffer buf) {
+        pool.release(buf);
+    }
+
+    long getPublicEncodes() {
+        return publicEncodes;
+    }
+
+    long getHandEncodes() {
+        return handEncodes;
+    }
+
+    private byte[] publicBytes(FormatCache cache, Map<String, Object> publicPart, boolean binaryFormat)
+            throws JsonProcessingException {
+        if (publicPart != cache.encodedPublic) {
+            cache.publicBytes = binaryFormat
+                    ? BinaryPacketCodec.encodeFields(publicPart)
+                    : mapper.writeValueAsBytes(publicPart);
+            cache.encodedPublic = publicPart;
+            publicEncodes++;
+        }
+        return cache.publicBytes;
+    }
+
+    private byte[] handBytes(FormatCache cache, int seat, PlayerHand hand, boolean binaryFormat)
+            throws JsonProcessingException {
+        if (cache.handBytes[seat] == null || cache.handVersions[seat] != hand.getVersion()) {
+            List<String> tiles = hand.getTilesStr();
+            cache.handBytes[seat] = binaryFormat
+                    ? BinaryPacketCodec.encodeField("myHand", tiles)
+                    : mapper.writeValueAsBytes(tiles);
+            cache.handVersions[seat] = hand.getVersion();
+            handEncodes++;
+        }
+        return cache.handBytes[seat];
+    }
+
+    private static void putInt(ByteBuffer buf, int value) {
+        if (value >= 10) {
+            putInt(buf, value / 10);
+        }
+        buf.put((byte) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,211 @@
+package com.mahjong.server;
+
+import com.mahjong.logic.PlayerHand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 牌桌狀態的版本管理：記住上一版送出的公開狀態，只送出變動的部分
+ *
+ * - 每次 {@link #advance} 比對目前狀態與上一版，公開狀態有變化時版本 +1；
+ *   只有手牌內容變動（張數與面子不變）時版本不變，只有該座位收到 base = version 的 myHand 差異，
+ *   其他座位維持在目前版本，不會因此落後而改收快照
+ * - 差異（STATE_DELTA）只包含變動的欄位：
+ *   seaAdd（海底新增的牌）/ seaSize（被吃碰拿走後的張數）/ sea（無法增量時整個送）、
+ *   melds（座位 → 該座位全部面子）、handCounts（座位 → 張數）、turnIndex、myHand（自己的手牌有變才送）
+ * - 完整快照（STATE_UPDATE）只在座位加入或要求重新同步時送出
+ * - 每個座位記錄最後同步到的版本；不是上一版的座位會改收快照
+ * - 公開部分（差異 / 快照）每一版只建立一次，所有座位共用；手牌由 {@link StateFrameEncoder} 另外附加
+ *
+ * 只在 session 的 mailbox 執行緒上使用，不需要同步。
+ */
+final class TableStateTracker {
+
+    static final String SNAPSHOT = "STATE_UPDATE";
+    static final String DELTA = "STATE_DELTA";
+
+    private final int seats;
+    private final int[] seatVersions;
+    private final int[] handVersions;
+    private final boolean[] handChanged;
+    private final int[] counts;
+    private final List<List<String>> melds = new ArrayList<>();
+    private final List<String> sea = new ArrayList<>();
+    private int turn = -1;
+    private int version;
+    private int baseVersion;
+    private Map<String, Object> publicDelta;
+    private Map<String, Object> publicDeltaMessage;
+    private Map<String, Object> snapshotMessage;
+    private int snapshotVersion = -1;
+
+    TableStateTracker(int seats) {
+        this.seats = seats;
+        this.seatVersions = new int[seats];
+        this.handVersions = new int[seats];
+        this.handChanged = new boolean[seats];
+        this.counts = new int[seats];
+        Arrays.fill(seatVersions, -1);
+        Arrays.fill(handVersions, -1);
+        Arrays.fill(counts, -1);
+        for (int i = 0; i < seats; i++) {
+            melds.add(List.of());
+        }
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * 比對目前狀態與上一版，產生這一版的公開差異
+     *
+     * @return 是否有任何變化（沒有變化時版本不變）
+     */
+    boolean advance(List<String> currentSea, List<PlayerHand> hands, int currentTurn) {
+        Map<String, Object> delta = new HashMap<>();
+        diffSea(currentSea, delta);
+
+        Map<String, List<String>> meldDelta = null;
+        Map<String, Integer> countDelta = null;
+        boolean anyHand = false;
+        for (int i = 0; i < seats; i++) {
+            PlayerHand hand = hands.get(i);
+            handChanged[i] = hand.getVersion() != handVersions[i];
+            if (!handChanged[i]) {
+                continue;
+            }
+            anyHand = true;
+            handVersions[i] = hand.getVersion();
+            List<String> m = hand.getMeldsStr();
+            if (!m.equals(melds.get(i))) {
+                melds.set(i, m);
+                if (meldDelta == null) meldDelta = new HashMap<>();
+                meldDelta.put(String.valueOf(i), m);
+            }
+            int count = hand.getTileCount();
+            if (count != counts[i]) {
+                counts[i] = count;
+                if (countDelta == null) countDelta = new HashMap<>();
+                countDelta.put(String.valueOf(i), count);
+            }
+        }
+        if (meldDelta != null) delta.put("melds", meldDelta);
+        if (countDelta != null) delta.put("handCounts", countDelta);
+        if (currentTurn != turn) {
+            turn = currentTurn;
+            delta.put("turnIndex", currentTurn);
+        }
+
+        if (delta.isEmpty() && !anyHand) {
+            publicDelta = null;
+            publicDeltaMessage = null;
+            return false;
+        }
+        baseVersion = version;
+        if (!delta.isEmpty()) {
+            version++;
+        }
+        publicDelta = delta;
+        publicDeltaMessage = null;
+        return true;
+    }
+
+    /**
+     * @return 該座位是否需要快照（既不在目前版本，也不在這一版差異的基準版本）
+     */
+    boolean needsSnapshot(int seat) {
+        int v = seatVersions[seat];
+        return v != version && (publicDelta == null || v != baseVersion);
+    }
+
+    /**
+     * @return 該座位是否要收這一版的差異（在基準版本上，且有公開變化或自己的手牌有變）
+     */
+    boolean needsDelta(int seat) {
+        return publicDelta != null && seatVersions[seat] == baseVersion
+                && (!publicDelta.isEmpty() || handChanged[seat]);
+    }
+
+    boolean handChanged(int seat) {
+        return publicDelta != null && handChanged[seat];
+    }
+
+    /**
+     * 這一版所有座位共用的差異（不含手牌）；同一版回傳同一個物件，讓編碼結果可以重用
+     */
+    Map<String, Object> publicDelta() {
+        if (publicDeltaMessage == null) {
+            Map<String, Object> state = new HashMap<>(publicDelta);
+            state.put("action", DELTA);
+            state.put("version", version);
+            state.put("base", baseVersion);
+            publicDeltaMessage = state;
+        }
+        return publicDeltaMessage;
+    }
+
+    /**
+     * 目前版本所有座位共用的完整快照（不含 myIndex / myHand），同一版只建立一次
+     */
+    Map<String, Object> publicSnapshot(List<String> currentSea, List<PlayerHand> hands,
+                                       int currentTurn, List<String> nicknames) {
+        if (snapshotMessage != null && snapshotVersion == version) {
+            return snapshotMessage;
+        }
+        Map<String, Object> state = new HashMap<>();
+        state.put("action", SNAPSHOT);
+        state.put("version", version);
+        state.put("turnIndex", currentTurn);
+        state.put("sea", new ArrayList<>(currentSea));
+        List<List<String>> allMelds = new ArrayList<>();
+        List<Integer> handCounts = new ArrayList<>();
+        for (PlayerHand h : hands) {
+            allMelds.add(h.getMeldsStr());
+            handCounts.add(h.getTileCount());
+        }
+        state.put("allMelds", allMelds);
+        state.put("handCounts", handCounts);
+        state.put("nicknames", nicknames);
+        snapshotMessage = state;
+        snapshotVersion = version;
+        return state;
+    }
+
+    /**
+     * 標記座位需要重新同步，下一次廣播改送快照
+     */
+    void invalidate(int seat) {
+        seatVersions[seat] = -1;
+    }
+
+    /**
+     * 該座位已收到目前版本（差異或快照）
+     */
+    void markSynced(int seat) {
+        seatVersions[seat] = version;
+    }
+
+    private void diffSea(List<String> currentSea, Map<String, Object> delta) {
+        int old = sea.size();
+        int now = currentSea.size();
+        if (now >= old && currentSea.subList(0, old).equals(sea)) {
+            if (now > old) {
+                List<String> added = new ArrayList<>(currentSea.subList(old, now));
+                sea.addAll(added);
+                delta.put("seaAdd", added);
+            }
+        } else if (now < old && sea.subList(0, now).equals(currentSea)) {
+            sea.subList(now, old).clear();
+            delta.put("seaSize", now);
+        } else {
+            sea.clear();
+            sea.addAll(currentSea);
+            delta.put("sea", new ArrayList<>(currentSea));
+        }
+    }
+}
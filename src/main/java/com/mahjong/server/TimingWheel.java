@@ -0,0 +1,234 @@
+package com.mahjong.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 階層式時間輪（hierarchical timing wheel），用來管理大量的座位逾時
+ *
+ * - 4 層，每層 64 格；第 0 層每格一個 tick，第 k 層每格 64^k 個 tick
+ * - 每格是雙向鏈結串列：schedule / cancel 都是 O(1)
+ * - 每經過一輪，上一層對應的格子會「下放」(cascade) 到較低層
+ * - 到期的工作在推進時間的執行緒上執行，應該只做排入（例如 session.tell）
+ *
+ * 時間由 {@link #advance()} 推進：{@link #start()} 會啟動一條背景執行緒每個 tick 推進一次，
+ * 測試時可以注入時鐘手動推進。
+ */
+public class TimingWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheel.class);
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    /** 最遠可排入的 tick 數（超過的放在最高層最後一格，下放時再重新計算） */
+    private static final long MAX_SPAN = 1L << (WHEEL_BITS * LEVELS);
+
+    /**
+     * 已排入的逾時，可以取消
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadline; // 絕對 tick
+        private Timeout prev;
+        private Timeout next;
+        private Timeout bucket; // 所在格子的 sentinel；null 表示不在時間輪上
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        private Timeout() {
+            this(null, 0);
+            prev = this;
+            next = this;
+        }
+
+        /**
+         * @return 是否仍在等待中（尚未到期、尚未取消）
+         */
+        public boolean isPending() {
+            return bucket != null;
+        }
+    }
+
+    private final long tickMs;
+    private final LongSupplier clockMs;
+    private final long originMs;
+    private final Timeout[][] wheels = new Timeout[LEVELS][WHEEL_SIZE];
+    private long currentTick;
+    private int size;
+    private volatile Thread ticker;
+
+    public TimingWheel(long tickMs) {
+        this(tickMs, () -> System.nanoTime() / 1_000_000);
+    }
+
+    /**
+     * @param tickMs  每個 tick 的毫秒數
+     * @param clockMs 目前時間（毫秒，只用來計算差值）
+     */
+    public TimingWheel(long tickMs, LongSupplier clockMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("Tick must be positive, got " + tickMs);
+        }
+        this.tickMs = tickMs;
+        this.clockMs = clockMs;
+        this.originMs = clockMs.getAsLong();
+        for (Timeout[] level : wheels) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                level[i] = new Timeout();
+            }
+        }
+    }
+
+    /**
+     * 在 delayMs 之後執行 task（向上取整到 tick，至少一個 tick）
+     */
+    public synchronized Timeout schedule(long delayMs, Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task cannot be null");
+        }
+        long ticks = Math.max(1, (Math.max(0, delayMs) + tickMs - 1) / tickMs);
+        Timeout timeout = new Timeout(task, currentTick + ticks);
+        insert(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * 取消逾時
+     *
+     * @return true 表示原本還在等待中
+     */
+    public synchronized boolean cancel(Timeout timeout) {
+        if (timeout == null || timeout.bucket == null) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * 推進到目前時鐘，執行所有到期的工作
+     *
+     * @return 這次執行的工作數
+     */
+    public int advance() {
+        long targetTick = (clockMs.getAsLong() - originMs) / tickMs;
+        List<Runnable> expired = new ArrayList<>();
+        synchronized (this) {
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade();
+                Timeout sentinel = wheels[0][(int) (currentTick & WHEEL_MASK)];
+                while (sentinel.next != sentinel) {
+                    Timeout t = sentinel.next;
+                    unlink(t);
+                    size--;
+                    expired.add(t.task);
+                }
+            }
+        }
+        for (Runnable task : expired) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Timeout task failed", e);
+            }
+        }
+        return expired.size();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    /**
+     * 啟動背景執行緒，每個 tick 推進一次
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        Thread t = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(tickMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                advance();
+            }
+        }, "mahjong-timing-wheel");
+        t.setDaemon(true);
+        ticker = t;
+        t.start();
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.interrupt();
+            ticker = null;
+        }
+    }
+
+    // ---- internal ----
+
+    private void insert(Timeout t) {
+        long delta = t.deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        long slotTick = delta >= MAX_SPAN ? currentTick + MAX_SPAN - 1 : t.deadline;
+        int slot = (int) ((slotTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        Timeout sentinel = wheels[level][slot];
+        t.bucket = sentinel;
+        t.prev = sentinel.prev;
+        t.next = sentinel;
+        sentinel.prev.next = t;
+        sentinel.prev = t;
+    }
+
+    private static void unlink(Timeout t) {
+        t.prev.next = t.next;
+        t.next.prev = t.prev;
+        t.prev = null;
+        t.next = null;
+        t.bucket = null;
+    }
+
+    /**
+     * 每當較低層轉完一圈，把上一層目前這格的工作重新放回較低層
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                return;
+            }
+            int slot = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+            Timeout sentinel = wheels[level][slot];
+            Timeout t = sentinel.next;
+            sentinel.next = sentinel;
+            sentinel.prev = sentinel;
+            while (t != sentinel) {
+                Timeout next = t.next;
+                insert(t);
+                t = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.mahjong.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 以主題區分的訊息發布，取代對所有連線的全域廣播
+ *
+ * - {@link #LOBBY}：已登入、還沒入座的玩家（加入 / 離開大廳的訊息）
+ * - {@link #room}：一張牌桌的四位玩家（開桌、玩家離線等伺服器訊息）
+ * - {@link #spectators}：觀戰一張牌桌的連線
+ *
+ * 每個主題一個訂閱者集合，並記錄每個連線訂閱的主題，斷線時 O(訂閱數) 清除。
+ * 發布時經由 {@link PacketWriter#sendAll} 每種格式只編碼一次，所有訂閱者共用同一份訊框內容。
+ * 所有操作皆為執行緒安全。
+ */
+public final class TopicRegistry {
+
+    public static final String LOBBY = "lobby";
+
+    private final Map<String, Set<WebSocket>> subscribers = new ConcurrentHashMap<>();
+    private final Map<WebSocket, Set<String>> subscriptions = new ConcurrentHashMap<>();
+    private final PacketWriter writer;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+
+    TopicRegistry(PacketWriter writer) {
+        this.writer = writer;
+    }
+
+    public static String room(long roomId) {
+        return "room:" + roomId;
+    }
+
+    public static String spectators(long roomId) {
+        return "room:" + roomId + ":spectators";
+    }
+
+    public void subscribe(String topic, WebSocket conn) {
+        subscribers.computeIfAbsent(topic, t -> ConcurrentHashMap.newKeySet()).add(conn);
+        subscriptions.computeIfAbsent(conn, c -> ConcurrentHashMap.newKeySet()).add(topic);
+    }
+
+    public void unsubscribe(String topic, WebSocket conn) {
+        Set<WebSocket> set = subscribers.get(topic);
+        if (set != null) {
+            set.remove(conn);
+        }
+        Set<String> topics = subscriptions.get(conn);
+        if (topics != null) {
+            topics.remove(topic);
+        }
+    }
+
+    /**
+     * 連線關閉時取消所有訂閱
+     */
+    public void unsubscribeAll(WebSocket conn) {
+        Set<String> topics = subscriptions.remove(conn);
+        if (topics == null) {
+            return;
+        }
+        for (String topic : topics) {
+            Set<WebSocket> set = subscribers.get(topic);
+            if (set != null) {
+                set.remove(conn);
+            }
+        }
+    }
+
+    /**
+     * 移除整個主題（例如牌桌結束時）
+     */
+    public void removeTopic(String topic) {
+        Set<WebSocket> set = subscribers.remove(topic);
+        if (set == null) {
+            return;
+        }
+        for (WebSocket conn : set) {
+            Set<String> topics = subscriptions.get(conn);
+            if (topics != null) {
+                topics.remove(topic);
+            }
+        }
+    }
+
+    /**
+     * 送給主題目前的所有訂閱者
+     *
+     * @return 送出的連線數
+     */
+    public int publish(String topic, Packet packet) throws JsonProcessingException {
+        return publish(topic, packet, null);
+    }
+
+    /**
+     * 送給主題目前除了 exclude 以外的訂閱者（例如加入大廳的玩家自己已經收到 LOGIN_SUCCESS）
+     *
+     * @return 送出的連線數
+     */
+    public int publish(String topic, Packet packet, WebSocket exclude) throws JsonProcessingException {
+        Set<WebSocket> set = subscribers.get(topic);
+        published.increment();
+        if (set == null || set.isEmpty()) {
+            return 0;
+        }
+        Collection<WebSocket> targets = set;
+        if (exclude != null && set.contains(exclude)) {
+            List<WebSocket> others = new ArrayList<>(set);
+            others.remove(exclude);
+            targets = others;
+        }
+        if (targets.isEmpty()) {
+            return 0;
+        }
+        writer.sendAll(targets, packet);
+        delivered.add(targets.size());
+        return targets.size();
+    }
+
+    /**
+     * @return 主題目前的訂閱者（唯讀）
+     */
+    public Set<WebSocket> getSubscribers(String topic) {
+        Set<WebSocket> set = subscribers.get(topic);
+        return set == null ? Collections.emptySet() : Collections.unmodifiableSet(set);
+    }
+
+    public int getSubscriberCount(String topic) {
+        Set<WebSocket> set = subscribers.get(topic);
+        return set == null ? 0 : set.size();
+    }
+
+    /**
+     * @return 連線目前訂閱的主題（唯讀）
+     */
+    public Set<String> getTopics(WebSocket conn) {
+        Set<String> topics = subscriptions.get(conn);
+        return topics == null ? Collections.emptySet() : Collections.unmodifiableSet(topics);
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    /**
+     * @return 所有發布合計送出的連線數（全域廣播時為 發布數 × 連線數）
+     */
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+}
@@ -1,5 +1,6 @@
 package com.mahjong.server;
 
+import com.mahjong.logic.ClaimMasks;
 import com.mahjong.logic.MahjongRuleEngine;
 import com.mahjong.logic.PlayerHand;
 import com.mahjong.logic.Tile;
@@ -13,26 +14,78 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.*;
-
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一張牌桌的遊戲流程
+ *
+ * 每個 session 是一個 actor：玩家封包與計時事件透過 {@link #submit} / {@link #tell}
+ * 放進自己的 mailbox，由 executor（預設為虛擬執行緒）依序執行，
+ * 同一個 session 的狀態同時只會被一個執行緒存取，網路 I/O 執行緒只負責解碼與排入。
+ */
 public class WebSocketGameSession {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketGameSession.class);
+    private static final Executor DEFAULT_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
     
     private final List<WebSocket> players;
     private final Map<WebSocket, String> nickNames;
     private final MahjongRuleEngine engine;
     private final List<PlayerHand> hands;
+    private final List<ClaimMasks> claimMasks; // 每個座位的吃碰槓胡遮罩，手牌變動時才重算
     private final List<String> sea; // Discarded tiles
+    private final TableStateTracker stateTracker = new TableStateTracker(4); // 版本化狀態：只送差異
     private int currentPlayerIndex = 0; // 0=East, 1=South, 2=West, 3=North
     private final ObjectMapper mapper = new ObjectMapper();
+    private final PacketWriter writer = new PacketWriter(mapper);
+    private final OutboundBatcher outbound = new OutboundBatcher(writer, ByteBufferPool.shared());
+    private final StateFrameEncoder stateEncoder = new StateFrameEncoder(mapper, ByteBufferPool.shared(), 4);
+    private Runnable gameOverListener; // 遊戲結束時通知 RoomRegistry 回收房間
+    private volatile boolean finished = false;
+
+    // Actor mailbox：排入的事件依序在 executor 上執行，同時最多一個 drain 在跑
+    private final Executor executor;
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    // 座位逾時（未設定時間輪時不啟用）：宣告逾時自動 SKIP，出牌逾時自動打出摸到的牌
+    private TimingWheel timingWheel;
+    private long claimTimeoutMs;
+    private long turnTimeoutMs;
+    private TimingWheel.Timeout pendingTimeout;
+    private Object armedPhase; // 目前逾時對應的階段（ActionGroup 或 出牌座位+手牌版本）
+    private Tile lastDrawnTile;
+    private int lastDrawnSeat = -1;
+    private final List<Set<ClaimPreference>> preferences = new ArrayList<>(); // 每個座位的常駐宣告偏好
+    private long savedRoundTrips; // 由偏好代為回覆、沒有送出的詢問數
+    private HandAnalysisPool analysisPool = HandAnalysisPool.shared(); // 聽牌 / 出牌提示在背景分析
+    private final boolean[] bots = new boolean[4]; // 由伺服器代打的座位
+    private long botPhase = -1; // 最後一次替機器人排入出牌的出牌階段
 
     public WebSocketGameSession(List<WebSocket> players, Map<WebSocket, String> nickNames) {
+        this(players, nickNames, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * @param executor 執行 mailbox 的 executor（同一個 session 的事件不會並行執行）
+     */
+    public WebSocketGameSession(List<WebSocket> players, Map<WebSocket, String> nickNames, Executor executor) {
+        this.executor = executor;
         this.players = players;
         this.nickNames = nickNames;
         this.engine = new MahjongRuleEngine(new Random());
         this.hands = new ArrayList<>();
-        for (int i = 0; i < 4; i++)
-            hands.add(new PlayerHand());
+        this.claimMasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            PlayerHand hand = new PlayerHand();
+            hands.add(hand);
+            claimMasks.add(new ClaimMasks(hand));
+            preferences.add(EnumSet.noneOf(ClaimPreference.class));
+        }
         this.sea = new ArrayList<>();
     }
 
@@ -48,6 +101,8 @@ public class WebSocketGameSession {
         Tile firstDraw = engine.drawTile();
         if (firstDraw != null) {
             hands.get(0).addTile(firstDraw);
+            lastDrawnTile = firstDraw;
+            lastDrawnSeat = 0;
         }
         
         // Debug: 檢查發牌結果
@@ -80,6 +135,7 @@ public class WebSocketGameSession {
     // START: Action Logic Fields
     private final LinkedList<ActionGroup> actionQueue = new LinkedList<>();
     private ActionGroup currentActionGroup = null;
+    private ClaimWindow claimWindow = null; // 棄牌的宣告視窗（所有層級同時詢問）
     private final Set<Integer> pendingResponses = new HashSet<>();
     private boolean waitingForAction = false;
     private Tile pendingDiscardTile = null;
@@ -88,10 +144,280 @@ public class WebSocketGameSession {
     private boolean isFirstTurn = false; // 標記是否為莊家第一輪
     // END: Action Logic Fields
     
+    /**
+     * 把玩家封包排入 mailbox（由網路執行緒呼叫，不會阻塞）
+     */
+    public void submit(int playerIndex, Packet packet) {
+        tell(() -> processPlayerAction(playerIndex, packet));
+    }
+
+    /**
+     * 把任意事件（開局、計時器等）排入 mailbox，依排入順序執行
+     */
+    public void tell(Runnable event) {
+        mailbox.offer(event);
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drainMailbox);
+        }
+    }
+
+    private void drainMailbox() {
+        Runnable event;
+        while ((event = mailbox.poll()) != null) {
+            // 一個事件送往同一個連線的所有訊息，在事件結束時合併成一個訊框
+            outbound.begin();
+            try {
+                event.run();
+                refreshTimeout();
+                driveBot();
+            } catch (Exception e) {
+                logger.error("Session event failed", e);
+            } finally {
+                outbound.flush();
+            }
+        }
+        draining.set(false);
+        // drain 結束與新事件排入之間的空窗：若還有事件就再排一次
+        if (!mailbox.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * 啟用座位逾時：每個 mailbox 事件處理完後，依目前階段重新排定（或沿用）逾時
+     *
+     * @param wheel          共用的時間輪
+     * @param claimTimeoutMs 吃碰槓胡宣告的等待時間，逾時視為 SKIP
+     * @param turnTimeoutMs  出牌的等待時間，逾時自動打出剛摸到的牌
+     */
+    public void enableTimeouts(TimingWheel wheel, long claimTimeoutMs, long turnTimeoutMs) {
+        if (claimTimeoutMs <= 0 || turnTimeoutMs <= 0) {
+            throw new IllegalArgumentException("Timeouts must be positive");
+        }
+        this.timingWheel = wheel;
+        this.claimTimeoutMs = claimTimeoutMs;
+        this.turnTimeoutMs = turnTimeoutMs;
+    }
+
+    /**
+     * 依目前狀態判斷等待的是「宣告」還是「出牌」，階段改變時才重新排定逾時（O(1)）
+     */
+    private void refreshTimeout() {
+        if (timingWheel == null) {
+            return;
+        }
+        Object phase;
+        long delay;
+        if (finished) {
+            phase = null;
+            delay = 0;
+        } else if (waitingForAction && currentActionGroup != null) {
+            phase = currentActionGroup;
+            delay = claimTimeoutMs;
+        } else {
+            phase = turnPhase();
+            delay = turnTimeoutMs;
+        }
+        if (Objects.equals(phase, armedPhase) && pendingTimeout != null && pendingTimeout.isPending()) {
+            return;
+        }
+        timingWheel.cancel(pendingTimeout);
+        pendingTimeout = null;
+        armedPhase = phase;
+        if (phase != null) {
+            Object expected = phase;
+            pendingTimeout = timingWheel.schedule(delay, () -> tell(() -> onTimeout(expected)));
+        }
+    }
+
+    /**
+     * 逾時處理（在 mailbox 上執行）；階段已經改變時忽略
+     */
+    private void onTimeout(Object phase) {
+        if (finished || !Objects.equals(phase, armedPhase)) {
+            return;
+        }
+        armedPhase = null;
+        if (waitingForAction && currentActionGroup != null) {
+            logger.info("Claim window timed out, auto-SKIP for players {}", pendingResponses);
+            Map<String, Object> skip = new HashMap<>();
+            skip.put("type", "SKIP");
+            for (Integer seat : new ArrayList<>(pendingResponses)) {
+                handleActionResponse(seat, new Packet(Command.ACTION, skip));
+            }
+        } else {
+            logger.info("Turn timed out for Player {}", currentPlayerIndex);
+            autoDiscard(currentPlayerIndex);
+        }
+    }
+
+    /**
+     * 代座位出牌：剛摸到的牌還在手上就打它，否則打最後一張立牌
+     */
+    private void autoDiscard(int seat) {
+        PlayerHand hand = hands.get(seat);
+        Tile tile = lastDrawnSeat == seat && lastDrawnTile != null && hand.getCount(lastDrawnTile) > 0
+                ? lastDrawnTile : null;
+        if (tile == null) {
+            List<Tile> standing = hand.getStandingTiles();
+            if (standing.isEmpty()) {
+                return;
+            }
+            tile = standing.get(standing.size() - 1);
+        }
+        logger.info("Auto-discard {} for Player {}", tile, seat);
+        Map<String, Object> data = new HashMap<>();
+        data.put("tile", tile.toString());
+        processPlayerAction(seat, new Packet(Command.PLAY_CARD, data));
+    }
+
+    /**
+     * 輪到機器人出牌時（出牌階段第一次出現）排入一次自動出牌；宣告由偏好代為回覆，不經過這裡
+     */
+    private void driveBot() {
+        if (finished || waitingForAction || !bots[currentPlayerIndex]) {
+            return;
+        }
+        long phase = turnPhase();
+        if (phase == botPhase) {
+            return;
+        }
+        botPhase = phase;
+        int seat = currentPlayerIndex;
+        tell(() -> {
+            if (!finished && !waitingForAction && currentPlayerIndex == seat && turnPhase() == phase) {
+                autoDiscard(seat);
+            }
+        });
+    }
+
+    /**
+     * 出牌階段：同一位玩家、手牌沒變就是同一個階段
+     */
+    private long turnPhase() {
+        return ((long) currentPlayerIndex << 32) | (hands.get(currentPlayerIndex).getVersion() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return 送出的訊息數與實際訊框數（合併後），用來觀察每個事件合併的效果
+     */
+    public long getOutboundMessageCount() {
+        return outbound.getMessageCount();
+    }
+
+    public long getOutboundFrameCount() {
+        return outbound.getFrameCount();
+    }
+
+    /**
+     * 之後的訊息都經過每個連線的有上限佇列（慢速客戶端背壓，見 {@link OutboundQueues}）
+     */
+    public void setOutboundQueues(OutboundQueues queues) {
+        writer.setQueues(queues);
+    }
+
+    /**
+     * @return 這一桌四位玩家排隊中的訊框數合計；沒有使用佇列時為 0
+     */
+    public int getOutboundQueueDepth() {
+        OutboundQueues queues = writer.getQueues();
+        return queues == null ? 0 : queues.getDepth(players);
+    }
+
+    /**
+     * 設定聽牌 / 出牌提示的背景分析池；null 表示不分析
+     */
+    public void setAnalysisPool(HandAnalysisPool pool) {
+        this.analysisPool = pool;
+    }
+
+    /**
+     * 設定遊戲結束（有人胡牌或流局）時的回呼
+     */
+    public void setGameOverListener(Runnable listener) {
+        this.gameOverListener = listener;
+    }
+
+    /**
+     * 登記座位的常駐宣告偏好（取代之前的設定），之後偏好能決定的詢問不再送出
+     */
+    public void setClaimPreferences(int seat, Set<ClaimPreference> prefs) {
+        Set<ClaimPreference> copy = EnumSet.noneOf(ClaimPreference.class);
+        copy.addAll(prefs);
+        preferences.set(seat, copy);
+    }
+
+    /**
+     * 把座位交給伺服器代打：能胡就胡、其餘宣告一律放棄、輪到時自動出牌
+     */
+    public void setBot(int seat) {
+        bots[seat] = true;
+        setClaimPreferences(seat, EnumSet.of(ClaimPreference.ALWAYS_HU, ClaimPreference.NEVER_CHOW,
+                ClaimPreference.NEVER_PONG, ClaimPreference.NEVER_KONG, ClaimPreference.SKIP_CONCEALED_KONG));
+    }
+
+    public boolean isBot(int seat) {
+        return bots[seat];
+    }
+
+    public Set<ClaimPreference> getClaimPreferences(int seat) {
+        return Collections.unmodifiableSet(preferences.get(seat));
+    }
+
+    /**
+     * @return 由偏好直接決定、省下的客戶端來回次數
+     */
+    public long getSavedRoundTrips() {
+        return savedRoundTrips;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
     public void processPlayerAction(WebSocket conn, Packet packet) {
-        int playerIndex = players.indexOf(conn);
+        processPlayerAction(players.indexOf(conn), packet);
+    }
+
+    /**
+     * 以座位編號處理玩家封包（由 RoomRegistry 的路由表提供，不需要搜尋連線）
+     */
+    public void processPlayerAction(int playerIndex, Packet packet) {
         Command cmd = packet.getCommand();
 
+        if (cmd == Command.PREFERENCES) {
+            // {"preferences": ["NEVER_CHOW", "ALWAYS_HU", ...]}
+            if (playerIndex >= 0 && playerIndex < players.size()) {
+                Set<ClaimPreference> prefs = EnumSet.noneOf(ClaimPreference.class);
+                Object names = packet.getData() == null ? null : packet.getData().get("preferences");
+                if (names instanceof List) {
+                    try {
+                        for (Object name : (List<?>) names) {
+                            prefs.add(ClaimPreference.parse(name));
+                        }
+                    } catch (IllegalArgumentException e) {
+                        logger.warn("Player {} sent invalid preferences: {}", playerIndex, e.getMessage());
+                        return;
+                    }
+                }
+                setClaimPreferences(playerIndex, prefs);
+            }
+            return;
+        }
+
+        if (cmd == Command.RESYNC) {
+            // 客戶端版本對不上：下一次廣播（立即）改送該座位完整快照
+            if (playerIndex >= 0 && playerIndex < players.size()) {
+                stateTracker.invalidate(playerIndex);
+                broadcastState();
+            }
+            return;
+        }
+
         // ✅ 修復：PLAY_CARD 應該優先處理
         // 當玩家是當前玩家時，應該能夠出牌（除非正在等待其他玩家的動作回應）
         if (cmd == Command.PLAY_CARD) {
@@ -122,7 +448,6 @@ public class WebSocketGameSession {
                 logger.debug("Tile removal result: {}", removed);
                 if (removed) {
                     sea.add(tileStr);
-                    hands.get(playerIndex).sort();
                     logger.debug("Before broadcastState in PLAY_CARD: currentPlayerIndex = {}", currentPlayerIndex);
                     broadcastState();
                     logger.debug("After broadcastState in PLAY_CARD: currentPlayerIndex = {}", currentPlayerIndex);
@@ -131,6 +456,7 @@ public class WebSocketGameSession {
                     if (waitingForAction) {
                         waitingForAction = false;
                         currentActionGroup = null;
+                        claimWindow = null;
                         pendingResponses.clear();
                     }
 
@@ -170,15 +496,16 @@ public class WebSocketGameSession {
         
         actionQueue.clear();
         currentActionGroup = null;
+        claimWindow = null;
         pendingResponses.clear();
 
         ActionGroup tierHu = new ActionGroup(1);
         ActionGroup tierPong = new ActionGroup(2);
         ActionGroup tierChow = new ActionGroup(3);
 
-        // Use ActionProcessor to get all valid actions
-        List<com.mahjong.logic.ActionProcessor.Action> allActions = processor.checkPossibleActions(hands, discard,
-                discarderIdx, currentPlayerIndex);
+        // Use ActionProcessor to get all valid actions (bit tests on each seat's claim masks)
+        List<com.mahjong.logic.ActionProcessor.Action> allActions = processor.checkPossibleActions(claimMasks, discard,
+                discarderIdx);
         logger.debug("checkPossibleActions returned {} actions", allActions.size());
 
         for (com.mahjong.logic.ActionProcessor.Action act : allActions) {
@@ -236,7 +563,7 @@ public class WebSocketGameSession {
         }
     }
 
-    private synchronized void processNextActionGroup() {
+    private void processNextActionGroup() {
         if (actionQueue.isEmpty()) {
             logger.debug("Action Queue empty. Moving to next turn.");
             // No more actions, proceed to next turn
@@ -246,17 +573,20 @@ public class WebSocketGameSession {
             return;
         }
 
-        currentActionGroup = actionQueue.poll(); // Get top priority group
+        // 所有層級同時詢問：每個座位一次收到自己在各層級的選項，由 ClaimWindow 依優先順序結算
+        claimWindow = new ClaimWindow(actionQueue);
+        actionQueue.clear();
+        currentActionGroup = claimWindow.getTiers().get(0); // 視窗期間不變，逾時以它為階段
         waitingForAction = true;
         pendingResponses.clear();
-        pendingResponses.addAll(currentActionGroup.players);
+        pendingResponses.addAll(claimWindow.getSeats());
 
-        logger.debug("Processing Action Group. Priority: {}, Players: {}", 
-            currentActionGroup.priority, currentActionGroup.players);
+        logger.debug("Opening claim window. Tiers: {}, Players: {}",
+            claimWindow.getTiers().size(), claimWindow.getSeats());
 
         // Send Requests
-        for (Integer pIdx : currentActionGroup.players) {
-            List<String> actions = currentActionGroup.playerActions.get(pIdx);
+        for (Integer pIdx : claimWindow.getSeats()) {
+            List<String> actions = claimWindow.choicesFor(pIdx);
 
             logger.debug("Asking Player {} for actions: {}", pIdx, actions);
 
@@ -264,14 +594,14 @@ public class WebSocketGameSession {
             data.put("action", "CHOOSE_ACTION"); // generic command
             data.put("choices", actions); // List of strings
             data.put("tile", pendingDiscardTile.toString());
-            send(players.get(pIdx), new Packet(Command.ACTION_REQUEST, data));
-
-            // IMPROVED MESSAGE: Waiting for Player X (ACTION)
-            broadcastMessage("Game", "Waiting for Player " + pIdx + " to " + actions + "...");
+            if (requestAction(pIdx, data, pendingDiscardTile)) {
+                // IMPROVED MESSAGE: Waiting for Player X (ACTION)
+                broadcastMessage("Game", "Waiting for Player " + pIdx + " to " + data.get("choices") + "...");
+            }
         }
     }
 
-    private synchronized void handleActionResponse(int playerIndex, Packet packet) {
+    private void handleActionResponse(int playerIndex, Packet packet) {
         if (!waitingForAction || currentActionGroup == null) {
             logger.debug("Ignore ActionResponse from P{} (Not waiting)", playerIndex);
             return;
@@ -283,7 +613,9 @@ public class WebSocketGameSession {
         }
 
         Command cmd = packet.getCommand();
-        if (cmd == Command.ACTION) {
+        if (cmd == Command.ACTION && claimWindow != null) {
+            handleClaimResponse(playerIndex, (String) packet.getData().get("type"));
+        } else if (cmd == Command.ACTION) {
             String type = (String) packet.getData().get("type"); // Chosen action or SKIP
             logger.debug("Received Action: {} from Player {}", type, playerIndex);
 
@@ -317,29 +649,7 @@ public class WebSocketGameSession {
                     actionQueue.clear();
                     pendingResponses.clear();
                     currentActionGroup = null; // Done
-
-                    if ("HU".equals(type))
-                        performHu(playerIndex);
-                    else if ("KONG".equals(type))
-                        performKong(playerIndex);
-                    else if ("PONG".equals(type))
-                        performPong(playerIndex);
-                    else if (type.startsWith("CHOW ")) {
-                        // Parse "CHOW M2,M3"
-                        String content = type.substring(5); // "M2,M3"
-                        String[] parts = content.split(",");
-                        if (parts.length == 2) {
-                            performChow(playerIndex, parts[0], parts[1]);
-                        } else {
-                            System.err.println("Invalid Chow format: " + type);
-                        }
-                    }
-                    else if (type.startsWith("CONCEALED_KONG ")) {
-                        // ✅ P1-1: 處理暗槓
-                        String tileStr = type.substring(15); // "CONCEALED_KONG M1" -> "M1"
-                        Tile tile = Tile.valueOf(tileStr);
-                        performConcealedKong(playerIndex, tile);
-                    }
+                    performAction(playerIndex, type);
                 } else {
                     System.err.println("[ERROR] Player " + playerIndex + " tried invalid action " + type);
                 }
@@ -347,7 +657,98 @@ public class WebSocketGameSession {
         }
     }
 
-    private synchronized void performHu(int playerIndex) {
+    /**
+     * 宣告視窗中的回覆：記錄後依優先順序結算，結果確定就立即執行，不必等其他座位
+     */
+    private void handleClaimResponse(int playerIndex, String type) {
+        logger.debug("Received claim: {} from Player {}", type, playerIndex);
+        if ("SKIP".equals(type)) {
+            broadcastMessage("Game", "Player " + playerIndex + " skipped.");
+            claimWindow.pass(playerIndex);
+        } else if (!claimWindow.claim(playerIndex, type)) {
+            System.err.println("[ERROR] Player " + playerIndex + " tried invalid action " + type);
+            return;
+        }
+        pendingResponses.remove(playerIndex);
+
+        ClaimWindow.Outcome outcome = claimWindow.resolve();
+        if (outcome == ClaimWindow.Outcome.WAITING) {
+            logger.debug("Claim window waiting for higher priority players: {}", pendingResponses);
+            return;
+        }
+        claimWindow = null;
+        pendingResponses.clear();
+        if (outcome == ClaimWindow.Outcome.PASSED) {
+            logger.debug("Claim window resolved (All skipped). Moving to next turn.");
+            processNextActionGroup();
+            return;
+        }
+        currentActionGroup = null; // Done
+        performAction(outcome.seat, outcome.action);
+    }
+
+    /**
+     * 送出 ACTION_REQUEST；座位的偏好能決定答案時不送出，改在 mailbox 上代為回覆（省下一次來回）
+     *
+     * @param tile 宣告的牌，用來判斷偏好（例如三元牌），可為 null
+     * @return 是否實際送出詢問
+     */
+    @SuppressWarnings("unchecked")
+    private boolean requestAction(int seat, Map<String, Object> actReq, Tile tile) {
+        Set<ClaimPreference> prefs = preferences.get(seat);
+        if (!prefs.isEmpty()) {
+            List<String> choices = (List<String>) actReq.get("choices");
+            List<String> allowed = ClaimPreference.allowed(prefs, choices);
+            String answer = ClaimPreference.decide(prefs, allowed, tile);
+            if (answer != null) {
+                logger.debug("Player {} preferences answered {} for {}", seat, answer, choices);
+                savedRoundTrips++;
+                Map<String, Object> data = new HashMap<>();
+                data.put("type", answer);
+                // 與客戶端立即回覆相同：在目前事件結束後處理
+                tell(() -> handleActionResponse(seat, new Packet(Command.ACTION, data)));
+                return false;
+            }
+            boolean hasSkip = choices.contains("SKIP");
+            if (allowed.size() + (hasSkip ? 1 : 0) < choices.size()) {
+                // 只顯示偏好允許的選項
+                List<String> shown = new ArrayList<>(allowed);
+                if (hasSkip) {
+                    shown.add("SKIP");
+                }
+                actReq.put("choices", shown);
+            }
+        }
+        send(players.get(seat), new Packet(Command.ACTION_REQUEST, actReq));
+        return true;
+    }
+
+    private void performAction(int playerIndex, String type) {
+        if ("HU".equals(type))
+            performHu(playerIndex);
+        else if ("KONG".equals(type))
+            performKong(playerIndex);
+        else if ("PONG".equals(type))
+            performPong(playerIndex);
+        else if (type.startsWith("CHOW ")) {
+            // Parse "CHOW M2,M3"
+            String content = type.substring(5); // "M2,M3"
+            String[] parts = content.split(",");
+            if (parts.length == 2) {
+                performChow(playerIndex, parts[0], parts[1]);
+            } else {
+                System.err.println("Invalid Chow format: " + type);
+            }
+        }
+        else if (type.startsWith("CONCEALED_KONG ")) {
+            // ✅ P1-1: 處理暗槓
+            String tileStr = type.substring(15); // "CONCEALED_KONG M1" -> "M1"
+            Tile tile = Tile.valueOf(tileStr);
+            performConcealedKong(playerIndex, tile);
+        }
+    }
+
+    private void performHu(int playerIndex) {
         try {
             broadcastMessage("Game", "Player " + playerIndex + " HU! Game Over.");
 
@@ -368,12 +769,13 @@ public class WebSocketGameSession {
             Map<String, Object> data = new HashMap<>();
             data.put("message", "Player " + playerIndex + " Wins!");
             broadcast(new Packet(Command.GAME_OVER, data));
+            gameOver();
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private synchronized void performKong(int playerIndex) {
+    private void performKong(int playerIndex) {
         try {
             // Exposed Kong (Ming Gang)
             // ✅ 修復：檢查 pendingDiscardTile 是否為 null
@@ -407,10 +809,8 @@ public class WebSocketGameSession {
 
             broadcastMessage("Game", "Player " + playerIndex + " KONG!");
 
-            // Kong -> Draw Replacement Tile -> Discard
-            // We call startTurn() but we must ensure we don't change player (already set)
-            // But startTurn draws a tile. Correct.
-            startTurn();
+            // Kong -> Draw Replacement Tile (from the tail) -> Discard
+            startTurn(true);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -419,7 +819,7 @@ public class WebSocketGameSession {
     /**
      * ✅ P1-1: 執行暗槓
      */
-    private synchronized void performConcealedKong(int playerIndex, Tile tile) {
+    private void performConcealedKong(int playerIndex, Tile tile) {
         try {
             PlayerHand hand = hands.get(playerIndex);
             
@@ -427,9 +827,11 @@ public class WebSocketGameSession {
             processor.executeConcealedKong(hand, tile);
             
             // 補牌（從牌尾補 1 張）
-            Tile replacement = engine.drawTile();
+            Tile replacement = engine.drawReplacementTile();
             if (replacement != null) {
                 hand.addTile(replacement);
+                lastDrawnTile = replacement;
+                lastDrawnSeat = playerIndex;
             }
             
             broadcastMessage("Game", "Player " + playerIndex + " 暗槓 " + tile.toString());
@@ -443,7 +845,7 @@ public class WebSocketGameSession {
                 actReq.put("action", "CHOOSE_ACTION");
                 actReq.put("choices", Arrays.asList("HU", "SKIP"));
                 actReq.put("tile", replacement != null ? replacement.toString() : "");
-                send(players.get(playerIndex), new Packet(Command.ACTION_REQUEST, actReq));
+                requestAction(playerIndex, actReq, null);
                 
                 waitingForAction = true;
                 pendingResponses.clear();
@@ -462,7 +864,7 @@ public class WebSocketGameSession {
         }
     }
 
-    private synchronized void performChow(int playerIndex, String t1Name, String t2Name) {
+    private void performChow(int playerIndex, String t1Name, String t2Name) {
         try {
             logger.debug("performChow called for Player {}, currentPlayerIndex before = {}", playerIndex, currentPlayerIndex);
             PlayerHand hand = hands.get(playerIndex);
@@ -522,7 +924,7 @@ public class WebSocketGameSession {
                         actReq.put("action", "CHOOSE_ACTION");
                         actReq.put("choices", Arrays.asList("HU", "SKIP"));
                         actReq.put("tile", "");
-                        send(players.get(playerIndex), new Packet(Command.ACTION_REQUEST, actReq));
+                        requestAction(playerIndex, actReq, null);
                         broadcastMessage("Game", "Player " + playerIndex + " can HU! Choose to HU or continue playing.");
                         // 設置等待玩家選擇
                         waitingForAction = true;
@@ -583,7 +985,7 @@ public class WebSocketGameSession {
         }
     }
 
-    private synchronized void performPong(int playerIndex) {
+    private void performPong(int playerIndex) {
         try {
             PlayerHand hand = hands.get(playerIndex);
 
@@ -644,7 +1046,7 @@ public class WebSocketGameSession {
                     actReq.put("action", "CHOOSE_ACTION");
                     actReq.put("choices", Arrays.asList("HU", "SKIP"));
                     actReq.put("tile", "");
-                    send(players.get(playerIndex), new Packet(Command.ACTION_REQUEST, actReq));
+                    requestAction(playerIndex, actReq, null);
                     broadcastMessage("Game", "Player " + playerIndex + " can HU! Choose to HU or continue playing.");
                     // 設置等待玩家選擇
                     waitingForAction = true;
@@ -688,10 +1090,18 @@ public class WebSocketGameSession {
     }
 
     private void startTurn() {
+        startTurn(false);
+    }
+
+    /**
+     * @param replacement 槓牌後的補牌：從牌尾補（{@link MahjongRuleEngine#drawReplacementTile}），
+     *                    之後的自摸（槓上開花）、暗槓與出牌提示與一般摸牌相同
+     */
+    private void startTurn(boolean replacement) {
         try {
             logger.debug("startTurn called: currentPlayerIndex = {}, isFirstTurn = {}", currentPlayerIndex, isFirstTurn);
             // ✅ P0-1: 如果是莊家第一輪，跳過摸牌
-            if (currentPlayerIndex == 0 && isFirstTurn) {
+            if (!replacement && currentPlayerIndex == 0 && isFirstTurn) {
                 logger.debug("Skipping first turn for dealer");
                 isFirstTurn = false;
                 // 明確提示莊家出牌
@@ -702,18 +1112,21 @@ public class WebSocketGameSession {
             }
             
             // Draw tile for current player
-            logger.debug("Drawing tile for Player {}", currentPlayerIndex);
-            Tile drawn = engine.drawTile();
+            logger.debug("Drawing {} tile for Player {}", replacement ? "replacement" : "next", currentPlayerIndex);
+            Tile drawn = replacement ? engine.drawReplacementTile() : engine.drawTile();
             if (drawn == null) {
                 logger.warn("Wall is empty, game should end");
                 Map<String, Object> data = new HashMap<>();
                 data.put("message", "Game Over - Wall Empty!");
                 broadcast(new Packet(Command.GAME_OVER, data));
+                gameOver();
                 return;
             }
 
             PlayerHand finalHand = hands.get(currentPlayerIndex);
             finalHand.addTile(drawn);
+            lastDrawnTile = drawn;
+            lastDrawnSeat = currentPlayerIndex;
             logger.debug("Player {} drew tile {}, hand size now: {}", 
                 currentPlayerIndex, drawn, finalHand.getTileCount());
 
@@ -732,14 +1145,9 @@ public class WebSocketGameSession {
         // 使用 TingDetector 檢查自摸：手牌已經包含摸到的牌，直接檢查是否為胡牌
         boolean canTsumo = tingDetector.isWinningHand(finalHand);
         
-        // 監測手牌狀態（包括聽牌狀態）
+        // 聽牌 / 出牌提示不在回合流程上計算，交給背景分析後另外推送
         if (!canTsumo) {
-            // 如果還沒胡牌，檢查是否聽牌
-            TingDetector.TingResult tingResult = tingDetector.detectTing(finalHand);
-            if (tingResult.isTing()) {
-                logger.debug("Player {} is Ting, waiting for: {}", 
-                    currentPlayerIndex, tingResult.getTingTiles());
-            }
+            requestAnalysis(currentPlayerIndex);
         }
 
         if (canTsumo) {
@@ -762,7 +1170,7 @@ public class WebSocketGameSession {
             actReq.put("action", "CHOOSE_ACTION");
             actReq.put("choices", Arrays.asList("HU", "SKIP"));
             actReq.put("tile", drawn.toString());
-            send(players.get(currentPlayerIndex), new Packet(Command.ACTION_REQUEST, actReq));
+            requestAction(currentPlayerIndex, actReq, drawn);
 
             broadcastMessage("Game", "Player " + currentPlayerIndex + " is deciding on Self-Draw...");
             return;
@@ -770,12 +1178,19 @@ public class WebSocketGameSession {
 
         // ✅ P1-1: 檢查暗槓（在自摸檢查之後）
         List<Tile> concealedKongOptions = processor.getConcealedKongOptions(finalHand);
-        
-        if (!concealedKongOptions.isEmpty()) {
-            List<String> actions = new ArrayList<>();
-            for (Tile tile : concealedKongOptions) {
-                actions.add("CONCEALED_KONG " + tile.toString());
-            }
+        List<String> kongActions = new ArrayList<>();
+        for (Tile tile : concealedKongOptions) {
+            kongActions.add("CONCEALED_KONG " + tile.toString());
+        }
+        if (!kongActions.isEmpty()
+                && ClaimPreference.allowed(preferences.get(currentPlayerIndex), kongActions).isEmpty()) {
+            // 偏好略過暗槓：不詢問，直接進入出牌
+            savedRoundTrips++;
+            kongActions.clear();
+        }
+
+        if (!kongActions.isEmpty()) {
+            List<String> actions = new ArrayList<>(kongActions);
             actions.add("SKIP");
             
             waitingForAction = true;
@@ -790,7 +1205,7 @@ public class WebSocketGameSession {
             actReq.put("action", "CHOOSE_ACTION");
             actReq.put("choices", actions);
             actReq.put("tile", "");
-            send(players.get(currentPlayerIndex), new Packet(Command.ACTION_REQUEST, actReq));
+            requestAction(currentPlayerIndex, actReq, null);
             
             broadcastMessage("Game", "Player " + currentPlayerIndex + " can Concealed Kong...");
             return;
@@ -828,14 +1243,33 @@ public class WebSocketGameSession {
             }
         }
         
-        // 檢查聽牌狀態（13 張或 14 張）
-        if (totalTiles == 13 || totalTiles == 14) {
-            TingDetector.TingResult tingResult = tingDetector.detectTing(hand);
-            if (tingResult.isTing()) {
-                logger.debug("Player {} is Ting, waiting for: {}", 
-                    playerIndex, tingResult.getTingTiles());
-            }
+        // 聽牌狀態在背景分析，結果另外推送
+        requestAnalysis(playerIndex);
+    }
+
+    /**
+     * 把座位手牌的複本交給背景分析；結果排回 mailbox，手牌沒有再變動才送給該座位
+     */
+    private void requestAnalysis(int playerIndex) {
+        HandAnalysisPool pool = analysisPool;
+        if (pool == null || finished) {
+            return;
         }
+        PlayerHand snapshot = hands.get(playerIndex).copy();
+        pool.submit(snapshot, analysis -> tell(() -> pushAnalysis(playerIndex, analysis)));
+    }
+
+    private void pushAnalysis(int playerIndex, HandAnalysisPool.Analysis analysis) {
+        if (finished || hands.get(playerIndex).getVersion() != analysis.getVersion()) {
+            return; // 已經過期：手牌變了，下一次分析會再送
+        }
+        if (analysis.isEmpty()) {
+            logger.debug("Player {} hand analysis: no ting", playerIndex);
+            return; // 沒有可提示的內容，不多送一個訊框
+        }
+        logger.debug("Player {} is Ting, waiting for: {}, hints: {}",
+            playerIndex, analysis.getTingTiles(), analysis.getDiscardHints());
+        send(players.get(playerIndex), new Packet(Command.GAME_UPDATE, HandAnalysisPool.toMessage(analysis)));
     }
     
     /**
@@ -858,46 +1292,78 @@ public class WebSocketGameSession {
             actReq.put("action", "CHOOSE_ACTION");
             actReq.put("choices", Arrays.asList("HU", "SKIP"));
             actReq.put("tile", "");
-            send(players.get(playerIndex), new Packet(Command.ACTION_REQUEST, actReq));
+            requestAction(playerIndex, actReq, null);
             
             broadcastMessage("Game", "Player " + playerIndex + " can HU! Choose to HU or continue playing.");
         }
     }
 
-    private void broadcastState() {
-        // We construct a specific view for EACH player
-        // because they should not see opponents' hands.
+    /**
+     * 房間回收時停止 session（經過 mailbox）：之後不再有逾時代打或機器人出牌
+     */
+    public void shutdown() {
+        tell(this::stop);
+    }
 
-        for (int i = 0; i < 4; i++) {
-            Map<String, Object> state = new HashMap<>();
-            state.put("action", "STATE_UPDATE");
-            state.put("myIndex", i);
-            state.put("turnIndex", currentPlayerIndex);
-            state.put("sea", sea);
-
-            // My Hand (Standing)
-            state.put("myHand", hands.get(i).getTilesStr());
-            // Melds (Shared visibility? Actually everyone sees everyone's melds)
-            // Ideally we send everyone's melds.
-            // For now, let's just make sure WE see our melds.
-            // Actually, Opponents needs to see my melds too.
-            // Let's add all players melds to the state.
-
-            List<List<String>> allMelds = new ArrayList<>();
-            for (PlayerHand h : hands) {
-                allMelds.add(h.getMeldsStr());
-            }
-            state.put("allMelds", allMelds); // [[M1,M1,M1], [], [Red,Red,Red], []]
+    private void stop() {
+        finished = true;
+        armedPhase = null;
+        if (timingWheel != null) {
+            timingWheel.cancel(pendingTimeout);
+            pendingTimeout = null;
+        }
+    }
 
-            // Opponent Hand Counts (Standing only)
-            List<Integer> counts = new ArrayList<>();
-            for (PlayerHand h : hands)
-                counts.add(h.getTileCount());
-            state.put("handCounts", counts);
+    private void gameOver() {
+        stop();
+        if (gameOverListener != null) {
+            gameOverListener.run();
+        }
+    }
 
-            state.put("nicknames", getNicknamesList());
+    /**
+     * 送出這一版的狀態：已同步的座位只收差異（STATE_DELTA），
+     * 還沒同步過的座位收完整快照（STATE_UPDATE）。沒有變化時不送。
+     * 公開部分每一版只編碼一次，各座位只另外附加自己的手牌片段。
+     */
+    private void broadcastState() {
+        stateTracker.advance(sea, hands, currentPlayerIndex);
+        List<String> nicknames = null;
+        for (int i = 0; i < 4; i++) {
+            Map<String, Object> publicPart;
+            PlayerHand hand = hands.get(i);
+            OutboundQueues queues = writer.getQueues();
+            if (queues != null && queues.isCongested(players.get(i))) {
+                // 壅塞的連線改送完整狀態，取代佇列中尚未送出的舊狀態
+                stateTracker.invalidate(i);
+            }
+            boolean snapshot = stateTracker.needsSnapshot(i);
+            if (snapshot) {
+                if (nicknames == null) nicknames = getNicknamesList();
+                publicPart = stateTracker.publicSnapshot(sea, hands, currentPlayerIndex, nicknames);
+            } else if (stateTracker.needsDelta(i)) {
+                publicPart = stateTracker.publicDelta();
+                if (!stateTracker.handChanged(i)) hand = null;
+            } else {
+                continue;
+            }
+            stateTracker.markSynced(i);
+            sendState(players.get(i), publicPart, i, hand, snapshot);
+        }
+    }
 
-            send(players.get(i), new Packet(Command.GAME_UPDATE, state));
+    private void sendState(WebSocket ws, Map<String, Object> publicPart, int seat, PlayerHand hand, boolean snapshot) {
+        ByteBuffer buf = null;
+        try {
+            boolean binary = PacketWriter.isBinary(ws);
+            buf = binary
+                    ? stateEncoder.encodeBinary(publicPart, seat, hand)
+                    : stateEncoder.encode(publicPart, seat, hand);
+            outbound.sendFrame(ws, buf, binary, OutboundQueues.Kind.STATE, snapshot);
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            stateEncoder.release(buf);
         }
     }
 
@@ -916,9 +1382,7 @@ public class WebSocketGameSession {
 
     private void broadcast(Packet packet) {
         try {
-            String json = mapper.writeValueAsString(packet);
-            for (WebSocket ws : players)
-                ws.send(json);
+            outbound.sendAll(players, packet);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -926,7 +1390,7 @@ public class WebSocketGameSession {
 
     private void send(WebSocket ws, Packet packet) {
         try {
-            ws.send(mapper.writeValueAsString(packet));
+            outbound.send(ws, packet);
         } catch (Exception e) {
             e.printStackTrace();
         }
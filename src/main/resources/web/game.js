@@ -1,5 +1,6 @@
 let socket;
 let nickname;
+let tableState = null; // 最後一次同步的牌桌狀態（快照 + 已套用的差異）
 
 document.getElementById('login-btn').addEventListener('click', connect);
 
@@ -24,8 +25,13 @@ function connect() {
     };
 
     socket.onmessage = function (event) {
-        const packet = JSON.parse(event.data);
-        handlePacket(packet);
+        const parsed = JSON.parse(event.data);
+        // 伺服器會把同一事件的多則訊息合併成一個陣列
+        if (Array.isArray(parsed)) {
+            parsed.forEach(handlePacket);
+        } else {
+            handlePacket(parsed);
+        }
     };
 
     socket.onclose = function (event) {
@@ -51,12 +57,21 @@ function handlePacket(packet) {
         if (d.message) log(d.message);
 
         if (d.action === "STATE_UPDATE") {
-            renderState(d);
+            tableState = d;
+            renderState(tableState);
+        }
+        else if (d.action === "STATE_DELTA") {
+            applyDelta(d);
         }
         else if (d.action === "DRAW") {
             log("You drew: " + d.tile);
             // Re-render handled by state usually, but for animation we could highlight
         }
+        else if (d.action === "HAND_ANALYSIS") {
+            // 背景分析的結果，晚於狀態更新送達
+            if (d.ting && d.ting.length) log("聽: " + d.ting.join(", "));
+            for (const tile in (d.hints || {})) log("打 " + tile + " 聽: " + d.hints[tile].join(", "));
+        }
     }
     else if (cmd === "ACTION_REQUEST") {
         const d = packet.data;
@@ -66,6 +81,28 @@ function handlePacket(packet) {
     }
 }
 
+// 套用差異；版本對不上（漏收或還沒有快照）時要求伺服器重送快照
+function applyDelta(d) {
+    if (!tableState || d.base !== tableState.version) {
+        tableState = null;
+        socket.send(JSON.stringify({ command: "RESYNC", data: {} }));
+        return;
+    }
+    if (d.sea) tableState.sea = d.sea;
+    if (d.seaSize !== undefined) tableState.sea.length = d.seaSize;
+    if (d.seaAdd) tableState.sea.push(...d.seaAdd);
+    if (d.melds) {
+        for (const seat in d.melds) tableState.allMelds[seat] = d.melds[seat];
+    }
+    if (d.handCounts) {
+        for (const seat in d.handCounts) tableState.handCounts[seat] = d.handCounts[seat];
+    }
+    if (d.turnIndex !== undefined) tableState.turnIndex = d.turnIndex;
+    if (d.myHand) tableState.myHand = d.myHand;
+    tableState.version = d.version;
+    renderState(tableState);
+}
+
 function playCard(tile) {
     const packet = {
         command: "PLAY_CARD",
@@ -0,0 +1,83 @@
+package com.mahjong.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 測試 ClaimMasks 類別
+ */
+class ClaimMasksTest {
+
+    @Test
+    void testMasks_FollowHandChanges() {
+        PlayerHand hand = new PlayerHand();
+        ClaimMasks masks = new ClaimMasks(hand);
+        hand.addTile(Tile.M5);
+        hand.addTile(Tile.M5);
+        assertTrue(masks.canPong(Tile.M5));
+        assertFalse(masks.canKong(Tile.M5));
+
+        hand.addTile(Tile.M5);
+        assertTrue(masks.canKong(Tile.M5), "Masks should refresh after the hand changes");
+
+        hand.addTile(Tile.M6);
+        assertTrue(masks.canChow(Tile.M7));
+        assertTrue(masks.canChow(Tile.M4));
+        assertFalse(masks.canChow(Tile.EAST));
+
+        hand.removeTile(Tile.M5);
+        hand.removeTile(Tile.M5);
+        assertFalse(masks.canPong(Tile.M5));
+    }
+
+    @Test
+    void testHuMask() {
+        PlayerHand hand = new PlayerHand();
+        Tile[] tiles = {Tile.M2, Tile.M3, Tile.P1, Tile.P1, Tile.P1,
+                Tile.S5, Tile.S6, Tile.S7, Tile.EAST, Tile.EAST, Tile.EAST, Tile.RED, Tile.RED};
+        for (Tile t : tiles) hand.addTile(t);
+        ClaimMasks masks = new ClaimMasks(hand);
+
+        long expected = (1L << Tile.M1.getIndex()) | (1L << Tile.M4.getIndex());
+        assertEquals(expected, masks.getHuMask());
+    }
+
+    @Test
+    void testCheckPossibleActions_MatchesHandBasedVersion() {
+        ActionProcessor processor = new ActionProcessor();
+        Random random = new Random(3L);
+        for (int round = 0; round < 500; round++) {
+            List<PlayerHand> hands = new ArrayList<>();
+            List<ClaimMasks> masks = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                PlayerHand hand = new PlayerHand();
+                int range = 9 + random.nextInt(26);
+                while (hand.getTileCount() < 13) {
+                    Tile t = Tile.fromIndex(random.nextInt(range));
+                    if (hand.getCount(t) < 4) hand.addTile(t);
+                }
+                hands.add(hand);
+                masks.add(new ClaimMasks(hand));
+            }
+
+            for (Tile discard : Tile.values()) {
+                int discarder = random.nextInt(4);
+                List<ActionProcessor.Action> expected =
+                        processor.checkPossibleActions(hands, discard, discarder, discarder);
+                List<ActionProcessor.Action> actual =
+                        processor.checkPossibleActions(masks, discard, discarder);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getType(), actual.get(i).getType());
+                    assertEquals(expected.get(i).getPlayerIndex(), actual.get(i).getPlayerIndex());
+                    assertEquals(expected.get(i).getInvolvedTiles(), actual.get(i).getInvolvedTiles());
+                }
+            }
+        }
+    }
+}
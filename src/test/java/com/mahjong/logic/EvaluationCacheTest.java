@@ -0,0 +1,75 @@
+package com.mahjong.logic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 測試 EvaluationCache 類別
+ */
+class EvaluationCacheTest {
+
+    @Test
+    void testCapacity_RoundsUpToPowerOfTwo() {
+        assertEquals(1024, new EvaluationCache(1000).getCapacity());
+        assertEquals(1, new EvaluationCache(1).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new EvaluationCache(0));
+    }
+
+    @Test
+    void testHitMissCounters() {
+        EvaluationCache cache = new EvaluationCache(16);
+        long key = EvaluationCache.key(EvaluationCache.Kind.WIN, 12345L);
+
+        assertEquals(-1, cache.get(key, -1));
+        cache.put(key, 1);
+        assertEquals(1, cache.get(key, -1));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+
+        cache.clear();
+        assertEquals(0, cache.getHits());
+        assertEquals(-1, cache.get(key, -1));
+    }
+
+    @Test
+    void testKindsDoNotCollide() {
+        long hash = 42L;
+        assertNotEquals(EvaluationCache.key(EvaluationCache.Kind.WIN, hash),
+                EvaluationCache.key(EvaluationCache.Kind.TING, hash));
+    }
+
+    @Test
+    void testEviction_IsBounded() {
+        EvaluationCache cache = new EvaluationCache(4);
+        for (long i = 0; i < 100; i++) {
+            cache.put(EvaluationCache.key(EvaluationCache.Kind.TAI, i), i);
+        }
+        assertTrue(cache.getEvictions() > 0, "Small cache should evict older entries");
+        assertEquals(4, cache.getCapacity());
+    }
+
+    @Test
+    void testEvaluators_UseCache() {
+        EvaluationCache cache = new EvaluationCache(256);
+        TingDetector detector = new TingDetector(cache);
+        PlayerHand hand = new PlayerHand();
+        Tile[] tiles = {Tile.M2, Tile.M3, Tile.P1, Tile.P1, Tile.P1,
+                Tile.S5, Tile.S6, Tile.S7, Tile.EAST, Tile.EAST, Tile.EAST, Tile.RED, Tile.RED};
+        for (Tile t : tiles) hand.addTile(t);
+
+        TingDetector.TingResult first = detector.detectTing(hand);
+        long hitsBefore = cache.getHits();
+        TingDetector.TingResult second = detector.detectTing(hand);
+
+        assertEquals(first.getTingTiles(), second.getTingTiles());
+        assertEquals(hitsBefore + 1, cache.getHits());
+
+        WinStrategy strategy = new WinStrategy(cache);
+        assertTrue(strategy.isWinningHand(hand, Tile.M1));
+        assertTrue(strategy.isWinningHand(hand, Tile.M1));
+        assertFalse(strategy.isWinningHand(hand, Tile.M5));
+    }
+}
@@ -4,7 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 
 public class MahjongRuleEngineTest {
@@ -40,4 +40,59 @@ public class MahjongRuleEngineTest {
         }
         assertEquals(136, count);
     }
+
+    @Test
+    public void testReplacementDrawsFromTail() {
+        MahjongRuleEngine engine = new MahjongRuleEngine(new Random(7));
+        // 未洗牌時牌牆依 index 排列：牌頭 M1，牌尾 WHITE
+        assertEquals(Tile.M1, engine.drawTile());
+        assertEquals(Tile.WHITE, engine.drawReplacementTile());
+        assertEquals(134, engine.getRemainingTiles());
+    }
+
+    @Test
+    public void testDeadWall() {
+        MahjongRuleEngine engine = new MahjongRuleEngine(new Random(7), 16);
+        assertEquals(120, engine.getRemainingTiles());
+        int count = 0;
+        while (engine.drawTile() != null) {
+            count++;
+        }
+        assertEquals(120, count);
+
+        // 牌尾保留的牌仍可補牌
+        assertNotNull(engine.drawReplacementTile());
+        assertEquals(0, engine.getRemainingTiles());
+        assertThrows(IllegalArgumentException.class, () -> new MahjongRuleEngine(new Random(), -1));
+    }
+
+    @Test
+    public void testShuffleIsSeededAndKeepsTiles() {
+        MahjongRuleEngine a = new MahjongRuleEngine(new Random(99));
+        MahjongRuleEngine b = new MahjongRuleEngine(new Random(99));
+        a.shuffle();
+        b.shuffle();
+
+        int[] counts = new int[34];
+        Tile t;
+        while ((t = a.drawTile()) != null) {
+            assertEquals(t, b.drawTile(), "Same seed should give the same wall");
+            counts[t.getIndex()]++;
+        }
+        for (int c : counts) {
+            assertEquals(4, c);
+        }
+    }
+
+    @Test
+    public void testResetReusesWall() {
+        MahjongRuleEngine engine = new MahjongRuleEngine(new Random(3));
+        engine.shuffle();
+        for (int i = 0; i < 50; i++) engine.drawTile();
+        engine.drawReplacementTile();
+
+        engine.reset();
+        assertEquals(136, engine.getRemainingTiles());
+        assertEquals(Tile.M1, engine.drawTile());
+    }
 }
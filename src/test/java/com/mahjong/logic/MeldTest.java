@@ -3,6 +3,7 @@ package com.mahjong.logic;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -132,17 +133,33 @@ public class MeldTest {
     }
 
     @Test
-    public void testGetTiles_ReturnsCopy() {
-        List<Tile> originalTiles = Arrays.asList(Tile.M1, Tile.M1, Tile.M1);
+    public void testGetTiles_IsUnmodifiableView() {
+        List<Tile> originalTiles = new ArrayList<>(Arrays.asList(Tile.M1, Tile.M1, Tile.M1));
         Meld meld = new Meld(Meld.Type.PONG, originalTiles);
-        
-        List<Tile> tiles1 = meld.getTiles();
-        List<Tile> tiles2 = meld.getTiles();
-        
-        // 修改返回的列表不應該影響原始列表
-        tiles1.clear();
-        assertEquals(3, tiles2.size(), "Second copy should still have tiles");
+
+        // 修改傳入的列表不應該影響 Meld
+        originalTiles.clear();
         assertEquals(3, meld.getTileCount(), "Original meld should not be modified");
+
+        // 回傳唯讀視圖，不複製
+        List<Tile> tiles = meld.getTiles();
+        assertSame(tiles, meld.getTiles());
+        assertThrows(UnsupportedOperationException.class, tiles::clear);
+    }
+
+    @Test
+    public void testFactories_ReturnSharedInstances() {
+        assertSame(Meld.createPong(Tile.RED), Meld.createPong(Tile.RED));
+        assertSame(Meld.createKong(Tile.P3), Meld.createKong(Tile.P3));
+        assertSame(Meld.createConcealedKong(Tile.P3), Meld.createConcealedKong(Tile.P3));
+        assertNotSame(Meld.createKong(Tile.P3), Meld.createConcealedKong(Tile.P3));
+        assertSame(Meld.createEyes(Tile.S9), Meld.createEyes(Tile.S9));
+        assertSame(Meld.createChow(Tile.S7, Tile.S8, Tile.S9), Meld.createChow(Tile.S7, Tile.S8, Tile.S9));
+
+        // 非依序的順子保留傳入順序
+        Meld unordered = Meld.createChow(Tile.M3, Tile.M1, Tile.M2);
+        assertEquals(Arrays.asList(Tile.M3, Tile.M1, Tile.M2), unordered.getTiles());
+        assertTrue(Meld.createConcealedKong(Tile.P3).isConcealed());
     }
 
     @Test
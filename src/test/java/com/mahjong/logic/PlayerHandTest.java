@@ -160,17 +160,17 @@ public class PlayerHandTest {
     }
 
     @Test
-    public void testGetOpenMelds_ReturnsCopy() {
+    public void testGetOpenMelds_IsUnmodifiableView() {
         Meld pong = Meld.createPong(Tile.M1);
         hand.addMeld(pong);
 
-        List<Meld> melds1 = hand.getOpenMelds();
-        List<Meld> melds2 = hand.getOpenMelds();
+        List<Meld> melds = hand.getOpenMelds();
 
-        // 修改返回的列表不應該影響原始列表
-        melds1.clear();
+        // 回傳唯讀視圖：不能修改，但會反映之後新增的面子
+        assertThrows(UnsupportedOperationException.class, melds::clear);
         assertEquals(1, hand.getMeldCount(), "Original hand should not be modified");
-        assertEquals(1, melds2.size(), "Second copy should still have meld");
+        hand.addMeld(Meld.createKong(Tile.M2));
+        assertEquals(2, melds.size(), "View should reflect later melds");
     }
 
     @Test
@@ -200,5 +200,101 @@ public class PlayerHandTest {
     public void testGetMeldCount_NoMelds() {
         assertEquals(0, hand.getMeldCount(), "Hand with no melds should return 0");
     }
-}
 
+    @Test
+    public void testGetCount_TracksAddAndRemove() {
+        hand.addTile(Tile.P5);
+        hand.addTile(Tile.P5);
+        hand.addTile(Tile.RED);
+
+        assertEquals(2, hand.getCount(Tile.P5));
+        assertEquals(2, hand.getCount(Tile.P5.getIndex()));
+        assertEquals(1, hand.getCount(Tile.RED));
+        assertEquals(0, hand.getCount(Tile.M1));
+
+        assertTrue(hand.removeTile(Tile.P5));
+        assertEquals(1, hand.getCount(Tile.P5));
+        assertEquals(2, hand.getTileCount());
+        assertFalse(hand.removeTile(Tile.M1), "Removing a missing tile should fail");
+        assertFalse(hand.removeTile("NOT_A_TILE"), "Unknown tile name should not throw");
+    }
+
+    @Test
+    public void testCopyCounts_And_Clear() {
+        hand.addTile(Tile.M1);
+        hand.addTile(Tile.WHITE);
+        hand.addMeld(Meld.createPong(Tile.EAST));
+
+        int[] counts = new int[34];
+        hand.copyCounts(counts);
+        assertEquals(1, counts[Tile.M1.getIndex()]);
+        assertEquals(1, counts[Tile.WHITE.getIndex()]);
+
+        // 修改複製出來的陣列不應影響手牌
+        counts[Tile.M1.getIndex()] = 4;
+        assertEquals(1, hand.getCount(Tile.M1));
+
+        hand.clear();
+        assertEquals(0, hand.getTileCount());
+        assertEquals(0, hand.getMeldCount());
+        assertTrue(hand.getStandingTiles().isEmpty());
+    }
+
+    @Test
+    public void testZobristHash_IndependentOfOrder() {
+        PlayerHand other = new PlayerHand();
+        hand.addTile(Tile.M1); hand.addTile(Tile.P5); hand.addTile(Tile.M1);
+        other.addTile(Tile.P5); other.addTile(Tile.M1); other.addTile(Tile.M1);
+        assertEquals(hand.getZobristHash(), other.getZobristHash());
+
+        hand.addMeld(Meld.createChow(Tile.S1, Tile.S2, Tile.S3));
+        assertNotEquals(hand.getZobristHash(), other.getZobristHash(), "Melds are part of the hash");
+        other.addMeld(Meld.createChow(Tile.S3, Tile.S1, Tile.S2));
+        assertEquals(hand.getZobristHash(), other.getZobristHash());
+    }
+
+    @Test
+    public void testZobristHash_SameContentInAnyAddOrder() {
+        // 牌與面子交錯加入：內容相同，hash 就必須相同
+        PlayerHand other = new PlayerHand();
+        hand.addTile(Tile.M1);
+        hand.addMeld(Meld.createPong(Tile.EAST));
+        hand.addTile(Tile.M1);
+        hand.addMeld(Meld.createChow(Tile.S1, Tile.S2, Tile.S3));
+        hand.addMeld(Meld.createChow(Tile.S1, Tile.S2, Tile.S3));
+        hand.addTile(Tile.P9);
+
+        other.addMeld(Meld.createChow(Tile.S1, Tile.S2, Tile.S3));
+        other.addTile(Tile.P9);
+        other.addMeld(Meld.createChow(Tile.S1, Tile.S2, Tile.S3));
+        other.addTile(Tile.M1);
+        other.addTile(Tile.M1);
+        other.addMeld(Meld.createPong(Tile.EAST));
+        assertEquals(hand.getZobristHash(), other.getZobristHash());
+
+        // 兩組相同的順子不會互相抵銷
+        PlayerHand single = new PlayerHand();
+        single.addTile(Tile.M1);
+        single.addTile(Tile.M1);
+        single.addTile(Tile.P9);
+        single.addMeld(Meld.createPong(Tile.EAST));
+        assertNotEquals(single.getZobristHash(), hand.getZobristHash());
+    }
+
+    @Test
+    public void testZobristHash_IncrementalUpdates() {
+        hand.addTile(Tile.EAST);
+        long before = hand.getZobristHash();
+        long predicted = hand.getZobristHashWith(Tile.EAST);
+
+        hand.addTile(Tile.EAST);
+        assertEquals(predicted, hand.getZobristHash());
+        assertNotEquals(before, predicted);
+
+        hand.removeTile(Tile.EAST);
+        assertEquals(before, hand.getZobristHash());
+
+        hand.clear();
+        assertEquals(0L, hand.getZobristHash());
+    }
+}
@@ -73,4 +73,54 @@ public class ScoringCalculatorTest {
         // 8 Tai for Full Flush.
         assertEquals(8, tai);
     }
+
+    @Test
+    public void testAllPongs_PicksBestDecomposition() {
+        PlayerHand hand = new PlayerHand();
+        // M111 222 333 可拆成三個刻子，也可拆成三個 123 順子
+        for (Tile t : new Tile[]{Tile.M1, Tile.M2, Tile.M3}) {
+            hand.addTile(t); hand.addTile(t); hand.addTile(t);
+        }
+        hand.addTile(Tile.P5); hand.addTile(Tile.P5); hand.addTile(Tile.P5);
+        hand.addTile(Tile.S7); hand.addTile(Tile.S7);
+
+        ScoringCalculator calculator = new ScoringCalculator();
+        assertEquals(4, calculator.calculateTai(hand, false, Tile.SOUTH, Tile.WEST),
+                "The all-pongs decomposition should be chosen");
+    }
+
+    @Test
+    public void testAllPongs_NotWithChowDecompositionOnly() {
+        PlayerHand hand = new PlayerHand();
+        Tile[] tiles = {Tile.M1, Tile.M2, Tile.M3, Tile.P5, Tile.P5, Tile.P5,
+                Tile.S7, Tile.S7, Tile.S7, Tile.EAST, Tile.EAST};
+        for (Tile t : tiles) hand.addTile(t);
+
+        ScoringCalculator calculator = new ScoringCalculator();
+        assertEquals(0, calculator.calculateTai(hand, false, Tile.SOUTH, Tile.WEST));
+    }
+
+    @Test
+    public void testTaiBreakdown() {
+        PlayerHand hand = new PlayerHand();
+        Tile[] tiles = {Tile.M1, Tile.M1, Tile.M1, Tile.M5, Tile.M5, Tile.M5,
+                Tile.EAST, Tile.EAST, Tile.EAST, Tile.WHITE, Tile.WHITE};
+        for (Tile t : tiles) hand.addTile(t);
+        hand.addMeld(Meld.createPong(Tile.RED));
+
+        ScoringCalculator calculator = new ScoringCalculator(new EvaluationCache(64));
+        ScoringCalculator.TaiBreakdown breakdown =
+                calculator.calculateTaiBreakdown(hand, true, Tile.EAST, Tile.SOUTH);
+
+        assertTrue(breakdown.has(ScoringCalculator.Pattern.SELF_DRAW));
+        assertTrue(breakdown.has(ScoringCalculator.Pattern.RED_DRAGON));
+        assertTrue(breakdown.has(ScoringCalculator.Pattern.ROUND_WIND));
+        assertTrue(breakdown.has(ScoringCalculator.Pattern.HALF_FLUSH));
+        assertTrue(breakdown.has(ScoringCalculator.Pattern.ALL_PONGS));
+        assertFalse(breakdown.has(ScoringCalculator.Pattern.WHITE_DRAGON), "A dragon pair is not a pong");
+        assertFalse(breakdown.has(ScoringCalculator.Pattern.SEAT_WIND));
+        assertEquals(1 + 1 + 1 + 4 + 4, breakdown.getTotal());
+        assertEquals(breakdown.getTotal(), calculator.calculateTai(hand, true, Tile.EAST, Tile.SOUTH));
+        assertEquals(5, breakdown.getPatterns().size());
+    }
 }
@@ -0,0 +1,165 @@
+package com.mahjong.logic;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 測試 ShantenCalculator 類別
+ */
+class ShantenCalculatorTest {
+
+    private ShantenCalculator calculator;
+    private WinStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        calculator = new ShantenCalculator();
+        strategy = new WinStrategy();
+    }
+
+    private PlayerHand handOf(Tile... tiles) {
+        PlayerHand hand = new PlayerHand();
+        for (Tile t : tiles) hand.addTile(t);
+        return hand;
+    }
+
+    @Test
+    void testWinningHand_IsMinusOne() {
+        PlayerHand hand = handOf(
+                Tile.M1, Tile.M1,
+                Tile.M2, Tile.M3, Tile.M4,
+                Tile.P1, Tile.P1, Tile.P1,
+                Tile.S5, Tile.S6, Tile.S7,
+                Tile.EAST, Tile.EAST, Tile.EAST);
+        assertEquals(-1, calculator.calculateShanten(hand));
+    }
+
+    @Test
+    void testSeventeenTileWinningHand_IsMinusOne() {
+        PlayerHand hand = handOf(
+                Tile.M1, Tile.M1,
+                Tile.M2, Tile.M3, Tile.M4,
+                Tile.P1, Tile.P1, Tile.P1,
+                Tile.S5, Tile.S6, Tile.S7,
+                Tile.EAST, Tile.EAST, Tile.EAST,
+                Tile.RED, Tile.RED, Tile.RED);
+        assertEquals(-1, calculator.calculateShanten(hand));
+    }
+
+    @Test
+    void testTenpai_IsZero() {
+        // 聽 M1/M4
+        PlayerHand hand = handOf(
+                Tile.M2, Tile.M3,
+                Tile.P1, Tile.P1, Tile.P1,
+                Tile.S5, Tile.S6, Tile.S7,
+                Tile.EAST, Tile.EAST, Tile.EAST,
+                Tile.RED, Tile.RED);
+        assertEquals(0, calculator.calculateShanten(hand));
+    }
+
+    @Test
+    void testSevenPairs() {
+        int[] counts = new int[34];
+        for (int i = 0; i < 6; i++) counts[i * 3] = 2;
+        counts[30] = 1;
+        assertEquals(0, calculator.calculateSevenPairsShanten(counts));
+        assertEquals(0, calculator.calculateShanten(counts, 13));
+    }
+
+    @Test
+    void testThirteenOrphans() {
+        int[] counts = new int[34];
+        for (int idx : WinStrategy.ORPHAN_INDICES) counts[idx] = 1;
+        counts[0] = 2;
+        assertEquals(-1, calculator.calculateThirteenOrphansShanten(counts));
+        assertEquals(-1, calculator.calculateShanten(counts, 14));
+
+        counts[0] = 1;
+        assertEquals(0, calculator.calculateShanten(counts, 13), "13-sided wait");
+    }
+
+    @Test
+    void testWithMelds_UsesFewerSets() {
+        // 一組碰 + 10 張手牌（3 面子 + 1 眼）
+        PlayerHand hand = handOf(
+                Tile.M1, Tile.M1,
+                Tile.M2, Tile.M3, Tile.M4,
+                Tile.P1, Tile.P2, Tile.P3,
+                Tile.S5, Tile.S6, Tile.S7);
+        hand.addMeld(Meld.createPong(Tile.RED));
+        assertEquals(-1, calculator.calculateShanten(hand));
+    }
+
+    @Test
+    void testInvalidStandingCount() {
+        assertThrows(IllegalArgumentException.class,
+                () -> calculator.calculateStandardShanten(new int[34], 18));
+    }
+
+    @Test
+    void testStandardShanten_MatchesWinStrategy() {
+        Random random = new Random(99L);
+        int[] counts = new int[34];
+        for (int round = 0; round < 5_000; round++) {
+            int range = 9 + random.nextInt(26);
+            java.util.Arrays.fill(counts, 0);
+            int placed = 0;
+            while (placed < 13) {
+                int idx = random.nextInt(range);
+                if (counts[idx] < 4) {
+                    counts[idx]++;
+                    placed++;
+                }
+            }
+
+            // 13 張：聽牌 ⇔ 存在一張（未滿 4 張的）牌能胡
+            boolean tenpai = false;
+            for (int t = 0; t < 34 && !tenpai; t++) {
+                if (counts[t] == 4) continue;
+                counts[t]++;
+                tenpai = strategy.isWinningCounts(counts, 14, 0);
+                counts[t]--;
+            }
+            int shanten = calculator.calculateStandardShanten(counts, 13);
+            assertEquals(tenpai, shanten == 0, "Hand " + java.util.Arrays.toString(counts));
+            assertTrue(shanten >= 0);
+        }
+    }
+
+    @Test
+    void testFourteenTiles_MinOverDiscards() {
+        Random random = new Random(5L);
+        int[] counts = new int[34];
+        for (int round = 0; round < 2_000; round++) {
+            int range = 9 + random.nextInt(26);
+            java.util.Arrays.fill(counts, 0);
+            int placed = 0;
+            while (placed < 14) {
+                int idx = random.nextInt(range);
+                if (counts[idx] < 4) {
+                    counts[idx]++;
+                    placed++;
+                }
+            }
+            int shanten14 = calculator.calculateStandardShanten(counts, 14);
+            int best = Integer.MAX_VALUE;
+            for (int d = 0; d < 34; d++) {
+                if (counts[d] == 0) continue;
+                counts[d]--;
+                best = Math.min(best, calculator.calculateStandardShanten(counts, 13));
+                counts[d]++;
+            }
+            if (strategy.isWinningCounts(counts, 14, 0)) {
+                assertEquals(-1, shanten14);
+                assertEquals(0, best);
+            } else {
+                assertEquals(best, shanten14, "Hand " + java.util.Arrays.toString(counts));
+            }
+        }
+    }
+}
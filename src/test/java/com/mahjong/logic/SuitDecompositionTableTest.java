@@ -0,0 +1,140 @@
+package com.mahjong.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 測試查表法胡牌判定與原本遞迴回溯版本的結果一致
+ */
+class SuitDecompositionTableTest {
+
+    private final WinStrategy strategy = new WinStrategy();
+
+    @Test
+    void testEncode_RejectsMoreThanFour() {
+        int[] counts = new int[34];
+        counts[3] = 5;
+        assertEquals(-1, SuitDecompositionTable.encode(counts, 0));
+    }
+
+    @Test
+    void testSingleSuit_SetsAndPair() {
+        int[] counts = new int[34];
+        // 111 234 99 萬
+        counts[0] = 3;
+        counts[1] = 1;
+        counts[2] = 1;
+        counts[3] = 1;
+        counts[8] = 2;
+        assertTrue(SuitDecompositionTable.isDecomposable(SuitDecompositionTable.encode(counts, 0)));
+        assertEquals(1, SuitDecompositionTable.checkStandard(counts));
+
+        // 拆掉一張就不成立
+        counts[3] = 0;
+        counts[4] = 1;
+        assertFalse(SuitDecompositionTable.isDecomposable(SuitDecompositionTable.encode(counts, 0)));
+    }
+
+    @Test
+    void testSeventeenTilesInOneSuit() {
+        // 111 222 333 444 567 99 萬 = 17 張
+        int[] counts = new int[34];
+        counts[0] = 3;
+        counts[1] = 3;
+        counts[2] = 3;
+        counts[3] = 3;
+        counts[4] = 1;
+        counts[5] = 1;
+        counts[6] = 1;
+        counts[8] = 2;
+        assertEquals(1, SuitDecompositionTable.checkStandard(counts));
+    }
+
+    @Test
+    void testHonors() {
+        int[] counts = new int[34];
+        counts[27] = 3; // EAST
+        counts[31] = 2; // RED
+        assertEquals(1, SuitDecompositionTable.checkStandard(counts));
+
+        counts[32] = 2; // 兩對眼
+        assertEquals(0, SuitDecompositionTable.checkStandard(counts));
+
+        counts[32] = 4;
+        assertEquals(0, SuitDecompositionTable.checkStandard(counts));
+
+        counts[32] = 5;
+        assertEquals(-1, SuitDecompositionTable.checkStandard(counts));
+    }
+
+    @Test
+    void testMatchesBacktracking_RandomHands() {
+        Random random = new Random(20241017L);
+        int[] counts = new int[34];
+        for (int round = 0; round < 50_000; round++) {
+            int size = random.nextBoolean() ? 14 : 17;
+            // 偏向少數花色，提高胡牌機率
+            int range = 9 + random.nextInt(26);
+            java.util.Arrays.fill(counts, 0);
+            int placed = 0;
+            while (placed < size) {
+                int idx = random.nextInt(range);
+                if (counts[idx] < 4) {
+                    counts[idx]++;
+                    placed++;
+                }
+            }
+            boolean expected = strategy.isStandardWinByBacktracking(counts, size);
+            assertEquals(expected ? 1 : 0, SuitDecompositionTable.checkStandard(counts),
+                    "Mismatch for " + java.util.Arrays.toString(counts));
+        }
+    }
+
+    @Test
+    void testMatchesBacktracking_GeneratedWinningHands() {
+        Random random = new Random(7L);
+        int[] counts = new int[34];
+        for (int round = 0; round < 20_000; round++) {
+            java.util.Arrays.fill(counts, 0);
+            int sets = random.nextBoolean() ? 4 : 5;
+            int built = 0;
+            while (built < sets) {
+                int idx = random.nextInt(34);
+                if (idx < 27 && idx % 9 <= 6 && random.nextBoolean()) {
+                    if (counts[idx] < 4 && counts[idx + 1] < 4 && counts[idx + 2] < 4) {
+                        counts[idx]++;
+                        counts[idx + 1]++;
+                        counts[idx + 2]++;
+                        built++;
+                    }
+                } else if (counts[idx] <= 1) {
+                    counts[idx] += 3;
+                    built++;
+                }
+            }
+            int pair;
+            do {
+                pair = random.nextInt(34);
+            } while (counts[pair] > 2);
+            counts[pair] += 2;
+
+            assertEquals(1, SuitDecompositionTable.checkStandard(counts),
+                    "Should win: " + java.util.Arrays.toString(counts));
+            assertTrue(strategy.isStandardWinByBacktracking(counts, sets * 3 + 2));
+        }
+    }
+
+    @Test
+    void testWinningHand_FallbackForFiveCopies() {
+        // 5 張 M1（不合法但舊實作可判定）：M1 刻子 + M1 眼
+        PlayerHand hand = new PlayerHand();
+        for (int i = 0; i < 5; i++) hand.addTile(Tile.M1);
+        hand.addTile(Tile.M2); hand.addTile(Tile.M3); hand.addTile(Tile.M4);
+        hand.addTile(Tile.P1); hand.addTile(Tile.P2); hand.addTile(Tile.P3);
+        hand.addTile(Tile.S7); hand.addTile(Tile.S8); hand.addTile(Tile.S9);
+        assertTrue(strategy.isWinningHand(hand));
+    }
+}
@@ -162,5 +162,28 @@ class TingDetectorTest {
         assertNotNull(str);
         assertTrue(str.contains("Ting") || str.contains("M1"));
     }
-}
 
+    @Test
+    void testDetectTing_MatchesBruteForce() {
+        // 與逐張加入後完整判定胡牌的結果一致
+        WinStrategy strategy = new WinStrategy();
+        java.util.Random random = new java.util.Random(42L);
+        for (int round = 0; round < 5_000; round++) {
+            PlayerHand hand = new PlayerHand();
+            int range = 9 + random.nextInt(26);
+            while (hand.getTileCount() < 13) {
+                Tile t = Tile.fromIndex(random.nextInt(range));
+                if (hand.getCount(t) < 4) hand.addTile(t);
+            }
+
+            java.util.List<Tile> expected = new java.util.ArrayList<>();
+            for (Tile t : Tile.values()) {
+                if (strategy.isWinningHand(hand, t)) expected.add(t);
+            }
+
+            TingDetector.TingResult result = tingDetector.detectTing(hand);
+            assertEquals(expected, result.getTingTiles(), "Hand: " + hand.getTilesStr());
+            assertEquals(!expected.isEmpty(), result.isTing());
+        }
+    }
+}
@@ -78,6 +78,21 @@ public class WinStrategyTest {
         assertTrue(strategy.isWinningHand(hand));
     }
     
+    @Test
+    public void testWinWithExposedKong() {
+        // 明槓 EAST（4 張）+ 立牌 123m 456m 789m 123p 55s：槓只算一組
+        PlayerHand hand = new PlayerHand();
+        hand.addMeld(Meld.createKong(Tile.EAST));
+        for (Tile t : new Tile[]{Tile.M1, Tile.M2, Tile.M3, Tile.M4, Tile.M5, Tile.M6, Tile.M7, Tile.M8, Tile.M9,
+                Tile.P1, Tile.P2, Tile.P3, Tile.S5, Tile.S5}) {
+            hand.addTile(t);
+        }
+        assertEquals(18, hand.getConnectionCount());
+
+        WinStrategy strategy = new WinStrategy(new EvaluationCache(16));
+        assertTrue(strategy.isWinningHand(hand));
+    }
+
     @Test
     public void testBoundarySequence_789() {
         // 測試邊界順子：7,8,9 萬應該可以組成順子
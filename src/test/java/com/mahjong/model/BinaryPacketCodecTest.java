@@ -0,0 +1,185 @@
+package com.mahjong.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mahjong.logic.Tile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 測試二進位 Packet 編碼：與 JSON 解碼結果相同的 round trip、牌以 1 byte 編碼、錯誤輸入
+ */
+class BinaryPacketCodecTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private static Map<String, Object> snapshot() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("action", "STATE_UPDATE");
+        data.put("version", 42);
+        data.put("myIndex", 2);
+        data.put("turnIndex", 3);
+        List<String> sea = new ArrayList<>();
+        for (int i = 0; i < 60; i++) sea.add(Tile.fromIndex(i % 34).toString());
+        data.put("sea", sea);
+        data.put("myHand", List.of("M1", "M1", "M2", "P5", "S9", "EAST", "RED"));
+        data.put("allMelds", List.of(List.of(), List.of("RED", "RED", "RED"), List.of(), List.of()));
+        data.put("handCounts", List.of(16, 13, 16, 16));
+        data.put("nicknames", List.of("東", "South", "West", "North"));
+        return data;
+    }
+
+    /**
+     * 以 JSON round trip 的結果作為基準：兩種格式解碼後的 data 必須相同
+     */
+    private void assertRoundTrip(Packet packet) throws Exception {
+        Packet viaJson = mapper.readValue(mapper.writeValueAsString(packet), Packet.class);
+        Packet viaBinary = BinaryPacketCodec.decode(BinaryPacketCodec.encode(packet));
+        assertEquals(viaJson.getCommand(), viaBinary.getCommand());
+        assertEquals(viaJson.getData(), viaBinary.getData());
+    }
+
+    @Test
+    void testRoundTrip_AllCommands() throws Exception {
+        for (Command c : Command.values()) {
+            assertRoundTrip(new Packet(c, null));
+            assertRoundTrip(new Packet(c, new HashMap<>()));
+        }
+    }
+
+    @Test
+    void testRoundTrip_StateSnapshot() throws Exception {
+        assertRoundTrip(new Packet(Command.GAME_UPDATE, snapshot()));
+    }
+
+    @Test
+    void testRoundTrip_DeltaWithSeatMaps() throws Exception {
+        Map<String, Object> data = new HashMap<>();
+        data.put("action", "STATE_DELTA");
+        data.put("version", 7);
+        data.put("base", 6);
+        data.put("seaAdd", List.of("P5"));
+        data.put("seaSize", 0);
+        data.put("melds", Map.of("1", List.of("RED", "RED", "RED")));
+        data.put("handCounts", Map.of("2", 15, "3", 16));
+        assertRoundTrip(new Packet(Command.GAME_UPDATE, data));
+    }
+
+    @Test
+    void testRoundTrip_ScalarsAndUnknownKeys() throws Exception {
+        Map<String, Object> data = new HashMap<>();
+        data.put("message", "[Server] 4 Players Ready! 開始");
+        data.put("choices", List.of("PONG", "CHOW M2,M3", "HU"));
+        data.put("customKey", -123456789012L);
+        data.put("negative", -1);
+        data.put("ratio", 0.25);
+        data.put("flag", true);
+        data.put("nothing", null);
+        data.put("mixed", Arrays.asList("M1", 3, null, "hello"));
+        data.put("empty", List.of());
+        assertRoundTrip(new Packet(Command.ACTION_REQUEST, data));
+    }
+
+    @Test
+    void testTiles_EncodedAsSingleBytes() {
+        Map<String, Object> data = new HashMap<>();
+        List<String> hand = new ArrayList<>();
+        for (int i = 0; i < 17; i++) hand.add(Tile.fromIndex(i).toString());
+        data.put("myHand", hand);
+        byte[] bytes = BinaryPacketCodec.encode(new Packet(Command.GAME_UPDATE, data));
+        // command + key + TILES tag + count + 17 tiles + END
+        assertEquals(1 + 1 + 1 + 1 + 17 + 1, bytes.length);
+
+        Map<String, Object> single = new HashMap<>();
+        single.put("tile", Tile.RED);
+        Packet decoded = BinaryPacketCodec.decode(BinaryPacketCodec.encode(new Packet(Command.PLAY_CARD, single)));
+        assertEquals("RED", decoded.getData().get("tile"));
+    }
+
+    @Test
+    void testSnapshot_MuchSmallerThanJson() throws Exception {
+        Packet packet = new Packet(Command.GAME_UPDATE, snapshot());
+        int json = mapper.writeValueAsBytes(packet).length;
+        int binary = BinaryPacketCodec.encode(packet).length;
+        assertTrue(binary * 3 < json, "binary=" + binary + " json=" + json);
+    }
+
+    @Test
+    void testFieldsCanBeSpliced() {
+        Map<String, Object> pub = new LinkedHashMap<>();
+        pub.put("action", "STATE_DELTA");
+        pub.put("seaAdd", List.of("P5"));
+        byte[] fields = BinaryPacketCodec.encodeFields(pub);
+        byte[] seat = BinaryPacketCodec.encodeField("myIndex", 3);
+
+        ByteBuffer buf = ByteBuffer.allocate(2 + fields.length + seat.length);
+        buf.put(BinaryPacketCodec.commandCode(Command.GAME_UPDATE)).put(fields).put(seat).put(BinaryPacketCodec.END);
+        buf.flip();
+
+        Packet decoded = BinaryPacketCodec.decode(buf);
+        assertEquals(Command.GAME_UPDATE, decoded.getCommand());
+        assertEquals("STATE_DELTA", decoded.getData().get("action"));
+        assertEquals(List.of("P5"), decoded.getData().get("seaAdd"));
+        assertEquals(3, decoded.getData().get("myIndex"));
+        assertFalse(buf.hasRemaining());
+    }
+
+    @Test
+    void testDecode_RejectsMalformedInput() {
+        byte[] valid = BinaryPacketCodec.encode(new Packet(Command.GAME_UPDATE, snapshot()));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryPacketCodec.decode(Arrays.copyOf(valid, valid.length / 2)));
+        assertThrows(IllegalArgumentException.class, () -> BinaryPacketCodec.decode(new byte[]{(byte) 200}));
+        assertThrows(IllegalArgumentException.class, () -> BinaryPacketCodec.decode(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> BinaryPacketCodec.decode(new byte[]{0, 100, 1, 0}));
+        assertThrows(IllegalArgumentException.class, () -> BinaryPacketCodec.decode(new byte[]{0, 1, 7, 99, 0}));
+    }
+
+    @Test
+    void testDecode_RejectsDeeplyNestedValues() {
+        // 每層 2 bytes（LIST, 長度 1）：約 200 KB 的訊框就能讓無上限的遞迴 StackOverflowError
+        assertThrows(IllegalArgumentException.class, () -> BinaryPacketCodec.decode(nested(100_000)));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryPacketCodec.decode(nested(BinaryPacketCodec.MAX_DEPTH + 1)));
+
+        Object value = BinaryPacketCodec.decode(nested(BinaryPacketCodec.MAX_DEPTH)).getData().get("action");
+        for (int i = 0; i < BinaryPacketCodec.MAX_DEPTH; i++) {
+            value = ((List<?>) value).get(0);
+        }
+        assertNull(value);
+    }
+
+    /**
+     * action 欄位為 depth 層只有一個元素的 LIST，最內層是 NULL
+     */
+    private static byte[] nested(int depth) {
+        byte[] frame = new byte[2 * depth + 4];
+        int i = 0;
+        frame[i++] = 0;
+        frame[i++] = 1;
+        for (int d = 0; d < depth; d++) {
+            frame[i++] = 9;
+            frame[i++] = 1;
+        }
+        frame[i++] = 1;
+        frame[i] = BinaryPacketCodec.END;
+        return frame;
+    }
+
+    @Test
+    void testEncode_RejectsUnsupportedValues() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("bad", new Object());
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryPacketCodec.encode(new Packet(Command.GAME_UPDATE, data)));
+        assertThrows(IllegalArgumentException.class, () -> BinaryPacketCodec.encode(new Packet(null, null)));
+    }
+}
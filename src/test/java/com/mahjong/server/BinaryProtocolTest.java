@@ -0,0 +1,144 @@
+package com.mahjong.server;
+
+import com.mahjong.model.BinaryPacketCodec;
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 測試以 WebSocket 子協定選擇二進位編碼，未選擇的客戶端維持 JSON
+ */
+class BinaryProtocolTest {
+
+    /**
+     * 收集收到的訊息：二進位訊框解碼成 Packet，文字訊框記錄原文
+     */
+    private static final class Client extends WebSocketClient {
+        final BlockingQueue<Packet> binary = new LinkedBlockingQueue<>();
+        final BlockingQueue<String> text = new LinkedBlockingQueue<>();
+
+        Client(int port, List<IProtocol> protocols) throws Exception {
+            super(new URI("ws://localhost:" + port), new Draft_6455(Collections.emptyList(), protocols));
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            text.add(message);
+        }
+
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+            binary.addAll(BinaryPacketCodec.decodeAll(bytes));
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+
+    private static Packet login(String name) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("nickname", name);
+        return new Packet(Command.LOGIN, data);
+    }
+
+    @Test
+    void testHandshake_BinaryAndJsonClientsOnSameServer() throws Exception {
+        int port = freePort();
+        MahjongWebSocketServer server = new MahjongWebSocketServer(port);
+        server.setReuseAddr(true);
+        server.start();
+        Client bin = new Client(port, List.of(new Protocol(BinaryPacketCodec.SUBPROTOCOL)));
+        Client json = new Client(port, List.of(new Protocol("")));
+        try {
+            assertTrue(bin.connectBlocking(5, TimeUnit.SECONDS));
+            assertTrue(json.connectBlocking(5, TimeUnit.SECONDS));
+            assertEquals(BinaryPacketCodec.SUBPROTOCOL, bin.getProtocol().getProvidedProtocol());
+
+            bin.send(BinaryPacketCodec.encode(login("Bin")));
+            Packet success = bin.binary.poll(5, TimeUnit.SECONDS);
+            assertNotNull(success, "Binary client should get a binary reply");
+            assertEquals(Command.LOGIN_SUCCESS, success.getCommand());
+
+            json.send("{\"command\":\"LOGIN\",\"data\":{\"nickname\":\"Json\"}}");
+            String reply = json.text.poll(5, TimeUnit.SECONDS);
+            assertNotNull(reply);
+            assertTrue(reply.contains("LOGIN_SUCCESS") || reply.contains("joined"), reply);
+
+            // 兩個客戶端都會收到 JSON 客戶端加入的廣播，各自用自己的格式
+            Packet joined = null;
+            for (int i = 0; i < 3 && joined == null; i++) {
+                Packet p = bin.binary.poll(5, TimeUnit.SECONDS);
+                if (p != null && String.valueOf(p.getData().get("message")).contains("Json joined")) joined = p;
+            }
+            assertNotNull(joined);
+            assertTrue(bin.text.isEmpty(), "Binary client never receives text frames");
+            assertTrue(json.binary.isEmpty(), "JSON client never receives binary frames");
+        } finally {
+            bin.closeBlocking();
+            json.closeBlocking();
+            server.stop(1000);
+        }
+    }
+
+    @Test
+    void testSession_SendsBinaryStateToBinarySeats() throws Exception {
+        List<WebSocket> players = TestSessions.players();
+        List<Packet> states = new ArrayList<>();
+        WebSocket binary = players.get(1);
+        when(binary.getProtocol()).thenReturn(new Protocol(BinaryPacketCodec.SUBPROTOCOL));
+        // 狀態訊框的 buffer 送出後就歸還給 pool，要在送出當下解碼（真正的連線會複製內容）
+        doAnswer(inv -> states.addAll(BinaryPacketCodec.decodeAll((ByteBuffer) inv.getArgument(0))))
+                .when(binary).send(any(ByteBuffer.class));
+        WebSocketGameSession session = TestSessions.session(players);
+        session.start();
+
+        verify(players.get(1), never()).send(anyString());
+        verify(players.get(1), atLeastOnce()).send(any(byte[].class)); // GAME_START
+
+        assertEquals(1, states.size());
+        Packet state = states.get(0);
+        assertEquals(Command.GAME_UPDATE, state.getCommand());
+        assertEquals("STATE_UPDATE", state.getData().get("action"));
+        assertEquals(1, state.getData().get("myIndex"));
+        assertEquals(16, ((List<?>) state.getData().get("myHand")).size());
+        verify(players.get(0), atLeastOnce()).send(anyString());
+    }
+}
@@ -0,0 +1,99 @@
+package com.mahjong.server;
+
+import com.mahjong.logic.Tile;
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.mahjong.server.TestSessions.field;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * 測試常駐宣告偏好：過濾選項、代為回覆、省下的來回次數
+ */
+class ClaimPreferenceTest {
+
+    @Test
+    void testAllowed_FiltersByPreference() {
+        Set<ClaimPreference> prefs = EnumSet.of(ClaimPreference.NEVER_CHOW, ClaimPreference.SKIP_CONCEALED_KONG);
+        assertEquals(List.of("PONG"), ClaimPreference.allowed(prefs, List.of("PONG", "CHOW M2,M3", "SKIP")));
+        assertTrue(ClaimPreference.allowed(prefs, List.of("CONCEALED_KONG M1", "SKIP")).isEmpty());
+        assertEquals(List.of("KONG"), ClaimPreference.allowed(EnumSet.noneOf(ClaimPreference.class), List.of("KONG")));
+    }
+
+    @Test
+    void testDecide() {
+        Set<ClaimPreference> none = EnumSet.noneOf(ClaimPreference.class);
+        assertEquals("SKIP", ClaimPreference.decide(none, List.of(), Tile.M1));
+        assertNull(ClaimPreference.decide(none, List.of("HU"), Tile.M1));
+        assertEquals("HU", ClaimPreference.decide(EnumSet.of(ClaimPreference.ALWAYS_HU), List.of("HU", "PONG"), Tile.M1));
+
+        Set<ClaimPreference> dragons = EnumSet.of(ClaimPreference.AUTO_PONG_DRAGONS);
+        assertEquals("PONG", ClaimPreference.decide(dragons, List.of("PONG"), Tile.RED));
+        assertNull(ClaimPreference.decide(dragons, List.of("PONG"), Tile.M1));
+        assertNull(ClaimPreference.decide(dragons, List.of("PONG", "KONG"), Tile.RED));
+        assertNull(ClaimPreference.decide(dragons, List.of("HU", "PONG"), Tile.RED));
+    }
+
+    @Test
+    void testParse_UnknownName() {
+        assertEquals(ClaimPreference.NEVER_CHOW, ClaimPreference.parse("NEVER_CHOW"));
+        assertThrows(IllegalArgumentException.class, () -> ClaimPreference.parse("ALWAYS_WIN"));
+    }
+
+    @Test
+    void testSession_PreferenceSettlesClaimWithoutRequest() throws Exception {
+        List<WebSocket> players = TestSessions.players();
+        WebSocketGameSession session = TestSessions.session(players);
+        session.tell(session::start);
+
+        // 座位 2 以封包登記「不碰」；無效的名稱不會改變設定
+        Map<String, Object> data = new HashMap<>();
+        data.put("preferences", List.of("NEVER_PONG"));
+        session.submit(2, new Packet(Command.PREFERENCES, data));
+        data.put("preferences", List.of("NEVER_PONG", "BOGUS"));
+        session.submit(2, new Packet(Command.PREFERENCES, data));
+        assertEquals(EnumSet.of(ClaimPreference.NEVER_PONG), session.getClaimPreferences(2));
+
+        field("pendingDiscardTile").set(session, Tile.M1);
+        ActionGroup hu = new ActionGroup(1);
+        hu.addAction(1, "HU");
+        ActionGroup pong = new ActionGroup(2);
+        pong.addAction(2, "PONG");
+        @SuppressWarnings("unchecked")
+        LinkedList<ActionGroup> queue = (LinkedList<ActionGroup>) field("actionQueue").get(session);
+        queue.add(hu);
+        queue.add(pong);
+        Method open = WebSocketGameSession.class.getDeclaredMethod("processNextActionGroup");
+        open.setAccessible(true);
+        session.tell(() -> {
+            try {
+                open.invoke(session);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // 座位 2 不會收到詢問，只剩座位 1 需要回覆
+        verify(players.get(2), never()).send(argThat((String s) -> s.contains("ACTION_REQUEST")));
+        verify(players.get(1)).send(argThat((String s) -> s.contains("ACTION_REQUEST")));
+        assertEquals(1, session.getSavedRoundTrips());
+        assertEquals(Set.of(1), field("pendingResponses").get(session));
+
+        Map<String, Object> skip = new HashMap<>();
+        skip.put("type", "SKIP");
+        session.submit(1, new Packet(Command.ACTION, skip));
+        assertNull(field("claimWindow").get(session));
+    }
+}
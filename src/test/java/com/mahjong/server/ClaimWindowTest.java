@@ -0,0 +1,137 @@
+package com.mahjong.server;
+
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.logic.Tile;
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static com.mahjong.server.TestSessions.field;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * 測試宣告視窗：所有層級同時詢問，結算結果與逐層詢問的優先順序相同
+ */
+class ClaimWindowTest {
+
+    private static ClaimWindow window() {
+        ActionGroup hu = new ActionGroup(1);
+        hu.addAction(1, "HU");
+        ActionGroup pong = new ActionGroup(2);
+        pong.addAction(2, "PONG");
+        pong.addAction(1, "PONG");
+        ActionGroup chow = new ActionGroup(3);
+        chow.addAction(3, "CHOW M2,M3");
+        return new ClaimWindow(List.of(hu, pong, chow));
+    }
+
+    @Test
+    void testChoices_MergedAcrossTiers() {
+        ClaimWindow w = window();
+        assertEquals(List.of(1, 2, 3), new ArrayList<>(w.getSeats()));
+        assertEquals(List.of("HU", "PONG"), w.choicesFor(1));
+        assertEquals(List.of("CHOW M2,M3"), w.choicesFor(3));
+        assertThrows(IllegalArgumentException.class, () -> new ClaimWindow(List.of()));
+    }
+
+    @Test
+    void testHuClaim_ResolvesImmediately() {
+        ClaimWindow w = window();
+        assertSame(ClaimWindow.Outcome.WAITING, w.resolve());
+        assertTrue(w.claim(1, "HU"));
+
+        ClaimWindow.Outcome outcome = w.resolve();
+        assertEquals(1, outcome.seat);
+        assertEquals("HU", outcome.action);
+    }
+
+    @Test
+    void testLowerClaim_WaitsForHigherTiers() {
+        ClaimWindow w = window();
+        assertTrue(w.claim(3, "CHOW M2,M3"));
+        assertSame(ClaimWindow.Outcome.WAITING, w.resolve());
+
+        // 座位 1 選擇碰：同時放棄胡牌層級，碰的層級還在等座位 2
+        assertTrue(w.claim(1, "PONG"));
+        ClaimWindow.Outcome outcome = w.resolve();
+        assertEquals(1, outcome.seat);
+        assertEquals("PONG", outcome.action);
+    }
+
+    @Test
+    void testHigherTiersPass_LowerClaimWins() {
+        ClaimWindow w = window();
+        w.claim(3, "CHOW M2,M3");
+        w.pass(1);
+        assertSame(ClaimWindow.Outcome.WAITING, w.resolve());
+        w.pass(2);
+        assertEquals(3, w.resolve().seat);
+    }
+
+    @Test
+    void testAllPass_AndInvalidClaimIgnored() {
+        ClaimWindow w = window();
+        assertFalse(w.claim(2, "HU"));
+        w.pass(1);
+        w.pass(2);
+        w.pass(3);
+        assertSame(ClaimWindow.Outcome.PASSED, w.resolve());
+    }
+
+    @Test
+    void testSession_AllTiersAskedInOneRoundTrip() throws Exception {
+        List<WebSocket> players = TestSessions.players();
+        WebSocketGameSession session = TestSessions.session(players);
+        session.start();
+
+        @SuppressWarnings("unchecked")
+        List<PlayerHand> hands = (List<PlayerHand>) field("hands").get(session);
+        hands.get(2).clear();
+        for (Tile t : List.of(Tile.M1, Tile.M1, Tile.P3, Tile.P4)) {
+            hands.get(2).addTile(t);
+        }
+        @SuppressWarnings("unchecked")
+        List<String> sea = (List<String>) field("sea").get(session);
+        sea.add("M1");
+        field("pendingDiscardTile").set(session, Tile.M1);
+
+        ActionGroup hu = new ActionGroup(1);
+        hu.addAction(1, "HU");
+        ActionGroup pong = new ActionGroup(2);
+        pong.addAction(2, "PONG");
+        @SuppressWarnings("unchecked")
+        LinkedList<ActionGroup> queue = (LinkedList<ActionGroup>) field("actionQueue").get(session);
+        queue.add(hu);
+        queue.add(pong);
+        Method open = WebSocketGameSession.class.getDeclaredMethod("processNextActionGroup");
+        open.setAccessible(true);
+        open.invoke(session);
+
+        // 胡與碰的座位同時收到詢問
+        verify(players.get(1)).send(argThat((String s) -> s.contains("ACTION_REQUEST") && s.contains("HU")));
+        verify(players.get(2)).send(argThat((String s) -> s.contains("ACTION_REQUEST") && s.contains("PONG")));
+
+        // 碰先到，但要等胡的座位放棄才生效
+        session.processPlayerAction(2, action("PONG"));
+        assertTrue((Boolean) field("waitingForAction").get(session));
+        session.processPlayerAction(1, action("SKIP"));
+        assertEquals(2, field("currentPlayerIndex").get(session));
+        assertEquals(0, hands.get(2).getCount(Tile.M1));
+    }
+
+    private static Packet action(String type) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("type", type);
+        return new Packet(Command.ACTION, data);
+    }
+}
@@ -81,8 +81,7 @@ class ClientServerIntegrationTest {
         doAnswer(invocation -> {
             String json = invocation.getArgument(0);
             try {
-                Packet packet = mapper.readValue(json, Packet.class);
-                client1Responses.offer(packet);
+                client1Responses.addAll(TestPackets.readPackets(json));
             } catch (Exception e) {
                 // 忽略解析錯誤
             }
@@ -92,8 +91,7 @@ class ClientServerIntegrationTest {
         doAnswer(invocation -> {
             String json = invocation.getArgument(0);
             try {
-                Packet packet = mapper.readValue(json, Packet.class);
-                client2Responses.offer(packet);
+                client2Responses.addAll(TestPackets.readPackets(json));
             } catch (Exception e) {
                 // 忽略解析錯誤
             }
@@ -103,8 +101,7 @@ class ClientServerIntegrationTest {
         doAnswer(invocation -> {
             String json = invocation.getArgument(0);
             try {
-                Packet packet = mapper.readValue(json, Packet.class);
-                client3Responses.offer(packet);
+                client3Responses.addAll(TestPackets.readPackets(json));
             } catch (Exception e) {
                 // 忽略解析錯誤
             }
@@ -114,8 +111,7 @@ class ClientServerIntegrationTest {
         doAnswer(invocation -> {
             String json = invocation.getArgument(0);
             try {
-                Packet packet = mapper.readValue(json, Packet.class);
-                client4Responses.offer(packet);
+                client4Responses.addAll(TestPackets.readPackets(json));
             } catch (Exception e) {
                 // 忽略解析錯誤
             }
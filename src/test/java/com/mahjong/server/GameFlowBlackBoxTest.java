@@ -356,8 +356,7 @@ class GameFlowBlackBoxTest {
         doAnswer(invocation -> {
             String json = invocation.getArgument(0);
             try {
-                Packet packet = mapper.readValue(json, Packet.class);
-                queue.offer(packet);
+                queue.addAll(TestPackets.readPackets(json));
             } catch (Exception e) {
                 // 忽略解析錯誤
             }
@@ -0,0 +1,178 @@
+package com.mahjong.server;
+
+import com.mahjong.logic.Meld;
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.logic.Tile;
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * 測試背景手牌分析：聽牌 / 出牌提示、有上限的佇列、結果推送給該座位且過期的結果不送
+ */
+class HandAnalysisPoolTest {
+
+    private final HandAnalysisPool pool = new HandAnalysisPool(1, 2);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    // 123m 456m 789m 123p + 5p：單吊 5p
+    private static PlayerHand waitingHand() {
+        PlayerHand hand = new PlayerHand();
+        for (Tile t : List.of(Tile.M1, Tile.M2, Tile.M3, Tile.M4, Tile.M5, Tile.M6, Tile.M7, Tile.M8, Tile.M9,
+                Tile.P1, Tile.P2, Tile.P3, Tile.P5)) {
+            hand.addTile(t);
+        }
+        return hand;
+    }
+
+    @Test
+    void testAnalyze_WaitingHandTing() {
+        HandAnalysisPool.Analysis analysis = pool.analyze(waitingHand());
+        assertEquals(List.of(Tile.P5), analysis.getTingTiles());
+        assertTrue(analysis.getDiscardHints().isEmpty());
+    }
+
+    @Test
+    void testAnalyze_DrawnHandDiscardHints() {
+        PlayerHand hand = waitingHand();
+        hand.addTile(Tile.EAST);
+        HandAnalysisPool.Analysis analysis = pool.analyze(hand);
+        assertTrue(analysis.getTingTiles().isEmpty());
+        assertEquals(List.of(Tile.P5), analysis.getDiscardHints().get(Tile.EAST));
+        assertEquals(List.of(Tile.EAST), analysis.getDiscardHints().get(Tile.P5));
+        assertEquals(hand.getVersion(), analysis.getVersion());
+
+        Map<String, Object> message = HandAnalysisPool.toMessage(analysis);
+        assertEquals(HandAnalysisPool.ACTION, message.get("action"));
+        assertEquals(List.of("P5"), ((Map<?, ?>) message.get("hints")).get("EAST"));
+    }
+
+    // 發牌後的 16 張：123m 456m 789m 123p 456p + 5s，單吊 5s
+    private static PlayerHand dealtHand() {
+        PlayerHand hand = new PlayerHand();
+        for (Tile t : List.of(Tile.M1, Tile.M2, Tile.M3, Tile.M4, Tile.M5, Tile.M6, Tile.M7, Tile.M8, Tile.M9,
+                Tile.P1, Tile.P2, Tile.P3, Tile.P4, Tile.P5, Tile.P6, Tile.S5)) {
+            hand.addTile(t);
+        }
+        return hand;
+    }
+
+    @Test
+    void testAnalyze_DealtSixteenTileHand() {
+        PlayerHand hand = dealtHand();
+        assertEquals(List.of(Tile.S5), pool.analyze(hand).getTingTiles());
+
+        hand.addTile(Tile.EAST);
+        HandAnalysisPool.Analysis drawn = pool.analyze(hand);
+        assertTrue(drawn.getTingTiles().isEmpty());
+        assertEquals(List.of(Tile.S5), drawn.getDiscardHints().get(Tile.EAST));
+        assertEquals(List.of(Tile.EAST), drawn.getDiscardHints().get(Tile.S5));
+    }
+
+    @Test
+    void testAnalyze_HandWithKong() {
+        // 明槓 M1（4 張）後摸補牌：立牌 13 張，getConnectionCount 為 17
+        PlayerHand hand = new PlayerHand();
+        hand.addMeld(Meld.createKong(Tile.M1));
+        for (Tile t : List.of(Tile.M4, Tile.M5, Tile.M6, Tile.M7, Tile.M8, Tile.M9,
+                Tile.P1, Tile.P2, Tile.P3, Tile.P4, Tile.P5, Tile.P6, Tile.S5)) {
+            hand.addTile(t);
+        }
+        assertEquals(17, hand.getConnectionCount());
+        assertEquals(List.of(Tile.S5), pool.analyze(hand).getTingTiles());
+
+        hand.addTile(Tile.EAST);
+        assertEquals(List.of(Tile.S5), pool.analyze(hand).getDiscardHints().get(Tile.EAST));
+    }
+
+    @Test
+    void testCopy_IsIndependent() {
+        PlayerHand hand = waitingHand();
+        PlayerHand copy = hand.copy();
+        hand.addTile(Tile.P5);
+        assertEquals(13, copy.getConnectionCount());
+        assertEquals(0, copy.getCount(Tile.P4));
+        assertNotEquals(hand.getZobristHash(), copy.getZobristHash());
+        assertEquals(waitingHand().getZobristHash(), copy.getZobristHash());
+    }
+
+    @Test
+    void testSubmit_FullQueueDrops() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        // 第一個佔住唯一的執行緒，接下來兩個排隊，第四個被丟棄
+        for (int i = 0; i < 3; i++) {
+            assertTrue(pool.submit(waitingHand(), a -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }));
+        }
+        assertFalse(pool.submit(waitingHand(), a -> { }));
+        assertEquals(1, pool.getDroppedCount());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, pool.getCompletedCount());
+        assertThrows(IllegalArgumentException.class, () -> new HandAnalysisPool(0, 1));
+    }
+
+    @Test
+    void testSession_PushesResultAndDropsStale() throws Exception {
+        List<WebSocket> players = TestSessions.players();
+        WebSocketGameSession session = TestSessions.session(players);
+        session.setAnalysisPool(pool);
+        List<PlayerHand> hands = TestSessions.get(session, "hands");
+        for (Tile t : waitingHand().getStandingTiles()) {
+            hands.get(1).addTile(t);
+        }
+        Method request = WebSocketGameSession.class.getDeclaredMethod("requestAnalysis", int.class);
+        request.setAccessible(true);
+
+        // 結果在背景完成後推送給座位 1，其他座位收不到
+        session.tell(() -> invoke(request, session, 1));
+        verify(players.get(1), timeout(5000)).send(argThat((String s) -> s.contains(HandAnalysisPool.ACTION)
+                && s.contains("P5")));
+        verify(players.get(0), never()).send(argThat((String s) -> s.contains(HandAnalysisPool.ACTION)));
+
+        // 分析期間手牌變了：結果已過期，不送
+        HandAnalysisPool.Analysis stale = pool.analyze(hands.get(1).copy());
+        hands.get(1).addTile(Tile.EAST);
+        Method push = WebSocketGameSession.class.getDeclaredMethod("pushAnalysis", int.class,
+                HandAnalysisPool.Analysis.class);
+        push.setAccessible(true);
+        session.tell(() -> invoke(push, session, 1, stale));
+        verify(players.get(1), times(1)).send(argThat((String s) -> s.contains(HandAnalysisPool.ACTION)));
+
+        // 沒有聽牌也沒有提示：不推送
+        HandAnalysisPool.Analysis empty = pool.analyze(hands.get(0).copy());
+        assertTrue(empty.isEmpty());
+        session.tell(() -> invoke(push, session, 0, empty));
+        verify(players.get(0), never()).send(argThat((String s) -> s.contains(HandAnalysisPool.ACTION)));
+    }
+
+    private static void invoke(Method method, Object target, Object... args) {
+        try {
+            method.invoke(target, args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
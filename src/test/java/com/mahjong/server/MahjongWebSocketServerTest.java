@@ -10,8 +10,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -270,6 +272,29 @@ class MahjongWebSocketServerTest {
         });
     }
 
+    @Test
+    void testCancelRacingTableFormation_RoomStillReclaimed() throws Exception {
+        WebSocket[] sockets = {mockWebSocket1, mockWebSocket2, mockWebSocket3, mockWebSocket4};
+        // 玩家 4 的票已被成桌取走時斷線：cancel 失敗、房間還不存在，onClose 找不到座位
+        when(mockWebSocket4.isClosed()).thenReturn(true);
+        server.onClose(mockWebSocket4, 1006, "Abnormal closure", true);
+
+        Method startGame = MahjongWebSocketServer.class.getDeclaredMethod(
+                "startGame", Matchmaker.Table.class);
+        startGame.setAccessible(true);
+        startGame.invoke(server, new Matchmaker.Table(Matchmaker.DEFAULT_BUCKET,
+                List.of(sockets), 0, 0));
+
+        RoomRegistry rooms = server.getRoomRegistry();
+        assertEquals(1, rooms.getActiveRoomCount());
+        assertNull(rooms.route(mockWebSocket4), "Closed socket should not keep its seat");
+
+        for (int i = 0; i < 3; i++) {
+            server.onClose(sockets[i], 1000, "Normal closure", true);
+        }
+        assertEquals(0, rooms.getActiveRoomCount(), "Room should be reclaimed once everyone left");
+    }
+
     // 輔助方法：明確調用 String 版本的 onMessage
     private void callOnMessageString(MahjongWebSocketServer server, WebSocket conn, String message) {
         server.onMessage(conn, message);
@@ -0,0 +1,241 @@
+package com.mahjong.server;
+
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class MatchmakerTest {
+
+    @Test
+    void testFourPlayersFormTableInJoinOrder() {
+        List<Matchmaker.Table> tables = new ArrayList<>();
+        Matchmaker matchmaker = new Matchmaker(0, tables::add);
+        List<WebSocket> conns = connections(5);
+
+        for (WebSocket ws : conns) {
+            matchmaker.enqueue(ws);
+        }
+        // 重複登入不會重複排隊
+        matchmaker.enqueue(conns.get(0));
+        assertEquals(5, matchmaker.getWaitingCount(Matchmaker.DEFAULT_BUCKET));
+
+        assertEquals(1, matchmaker.form(Matchmaker.DEFAULT_BUCKET));
+        assertEquals(1, tables.size());
+        assertEquals(conns.subList(0, 4), tables.get(0).getPlayers());
+        assertEquals(0, tables.get(0).getBotCount());
+        assertEquals(1, matchmaker.getWaitingCount());
+        assertTrue(matchmaker.isWaiting(conns.get(4)));
+        assertEquals(1, matchmaker.getFormedTableCount());
+    }
+
+    @Test
+    void testBucketsDoNotMix() {
+        List<Matchmaker.Table> tables = new ArrayList<>();
+        Matchmaker matchmaker = new Matchmaker(0, tables::add);
+        List<WebSocket> conns = connections(4);
+
+        matchmaker.enqueue(conns.get(0), 1500, null, true);
+        matchmaker.enqueue(conns.get(1), 1550, null, true);
+        matchmaker.enqueue(conns.get(2), 2100, null, true);
+        Matchmaker.Ticket last = matchmaker.enqueue(conns.get(3), 1510, null, false);
+
+        assertEquals(Matchmaker.bucketKey(1500, null, true), Matchmaker.bucketKey(1599, null, true));
+        assertNotEquals(Matchmaker.bucketKey(1500, 50, true), Matchmaker.bucketKey(1500, 250, true));
+        assertNotEquals(Matchmaker.bucketKey(1500, null, true), last.getBucket());
+        assertEquals(2, matchmaker.getWaitingCount(Matchmaker.bucketKey(1500, null, true)));
+
+        matchmaker.form(Matchmaker.bucketKey(1500, null, true));
+        matchmaker.form(last.getBucket());
+        assertTrue(tables.isEmpty());
+        assertEquals(4, matchmaker.getWaitingCount());
+    }
+
+    @Test
+    void testCancelledTicketIsSkipped() {
+        List<Matchmaker.Table> tables = new ArrayList<>();
+        Matchmaker matchmaker = new Matchmaker(0, tables::add);
+        List<WebSocket> conns = connections(5);
+
+        for (WebSocket ws : conns) {
+            matchmaker.enqueue(ws);
+        }
+        assertTrue(matchmaker.cancel(conns.get(1)));
+        assertFalse(matchmaker.cancel(conns.get(1)));
+        assertFalse(matchmaker.isWaiting(conns.get(1)));
+
+        matchmaker.form(Matchmaker.DEFAULT_BUCKET);
+        assertEquals(1, tables.size());
+        assertFalse(tables.get(0).getPlayers().contains(conns.get(1)));
+        assertEquals(0, matchmaker.getWaitingCount());
+        assertEquals(1, matchmaker.getCancelledCount());
+    }
+
+    @Test
+    void testSweepFillsSeatsWithBotsAfterWaitLimit() {
+        AtomicLong clock = new AtomicLong();
+        List<Matchmaker.Table> tables = new ArrayList<>();
+        Matchmaker matchmaker = new Matchmaker(1_000, tables::add, clock::get);
+        List<WebSocket> conns = connections(3);
+
+        matchmaker.enqueue(conns.get(0));
+        matchmaker.enqueue(conns.get(1));
+        matchmaker.enqueue(conns.get(2), null, null, false);
+
+        clock.set(TimeUnit.MILLISECONDS.toNanos(999));
+        assertEquals(0, matchmaker.sweep());
+
+        clock.set(TimeUnit.MILLISECONDS.toNanos(1_500));
+        assertEquals(1, matchmaker.sweep());
+        Matchmaker.Table table = tables.get(0);
+        assertEquals(2, table.getBotCount());
+        assertEquals(conns.subList(0, 2), table.getPlayers().subList(0, 2));
+        assertTrue(table.getPlayers().get(2) instanceof BotConnection);
+        assertTrue(table.getPlayers().get(3) instanceof BotConnection);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1_500), table.getWaitNanos());
+
+        // 不允許機器人的玩家繼續等待
+        assertTrue(matchmaker.isWaiting(conns.get(2)));
+        assertEquals(1, matchmaker.getBotTableCount());
+        assertEquals(2, matchmaker.getBotSeatCount());
+        assertEquals(1_500.0, matchmaker.getAverageFormationMillis(), 0.001);
+        assertEquals(1_500.0, matchmaker.getMaxFormationMillis(), 0.001);
+    }
+
+    @Test
+    void testConcurrentJoinsSeatEveryPlayerExactlyOnce() throws Exception {
+        int threads = 8;
+        int perThread = 500;
+        List<Matchmaker.Table> tables = Collections.synchronizedList(new ArrayList<>());
+        Matchmaker matchmaker = new Matchmaker(0, tables::add);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        Matchmaker.Ticket ticket = matchmaker.enqueue(mock(WebSocket.class));
+                        matchmaker.form(ticket.getBucket());
+                    }
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int total = threads * perThread;
+        assertEquals(total / Matchmaker.TABLE_SIZE, tables.size());
+        Set<WebSocket> seated = new HashSet<>();
+        for (Matchmaker.Table table : tables) {
+            assertEquals(Matchmaker.TABLE_SIZE, table.getPlayers().size());
+            seated.addAll(table.getPlayers());
+        }
+        assertEquals(total, seated.size());
+        assertEquals(0, matchmaker.getWaitingCount());
+    }
+
+    @Test
+    void testConcurrentNoBotJoinsFormEveryFullTable() throws Exception {
+        int threads = 8;
+        List<Matchmaker.Table> tables = Collections.synchronizedList(new ArrayList<>());
+        Matchmaker matchmaker = new Matchmaker(0, tables::add);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    Matchmaker.Ticket ticket = matchmaker.enqueue(mock(WebSocket.class), null, null, false);
+                    matchmaker.form(ticket.getBucket());
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 不允許機器人的 bucket 沒有 sweep 補救：每位玩家自己的 form 就要湊出所有牌桌
+        assertEquals(2, tables.size());
+        assertEquals(0, matchmaker.getWaitingCount());
+    }
+
+    @Test
+    void testSweepFormsFullNoBotTables() {
+        List<Matchmaker.Table> tables = new ArrayList<>();
+        Matchmaker matchmaker = new Matchmaker(0, tables::add);
+        for (WebSocket ws : connections(4)) {
+            matchmaker.enqueue(ws, null, null, false);
+        }
+
+        assertEquals(1, matchmaker.sweep());
+        assertEquals(0, tables.get(0).getBotCount());
+        assertEquals(0, matchmaker.getWaitingCount());
+    }
+
+    @Test
+    void testBotSeatsPlayWholeGameWithoutInput() {
+        List<WebSocket> players = List.of(new BotConnection("Bot-1"), new BotConnection("Bot-2"),
+                new BotConnection("Bot-3"), new BotConnection("Bot-4"));
+        Map<WebSocket, String> names = new HashMap<>();
+        for (WebSocket ws : players) {
+            names.put(ws, ((BotConnection) ws).getName());
+        }
+        WebSocketGameSession session = new WebSocketGameSession(players, names, Runnable::run);
+        session.setAnalysisPool(null);
+        for (int i = 0; i < players.size(); i++) {
+            session.setBot(i);
+        }
+        assertTrue(session.isBot(0));
+        assertTrue(session.getClaimPreferences(0).contains(ClaimPreference.ALWAYS_HU));
+
+        // 宣告由偏好代答、出牌自動打出，整局不需要任何客戶端訊息
+        session.tell(session::start);
+        assertTrue(session.isFinished());
+        assertTrue(session.getSavedRoundTrips() > 0);
+    }
+
+    @Test
+    void testInvalidSettingsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new Matchmaker(-1, t -> { }));
+        assertThrows(IllegalArgumentException.class, () -> new Matchmaker(0, null));
+        assertThrows(IllegalArgumentException.class, () -> new Matchmaker(0, t -> { }).enqueue(null));
+    }
+
+    private static List<WebSocket> connections(int count) {
+        List<WebSocket> conns = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            conns.add(mock(WebSocket.class));
+        }
+        return conns;
+    }
+}
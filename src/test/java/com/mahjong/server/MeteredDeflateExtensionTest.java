@@ -0,0 +1,201 @@
+package com.mahjong.server;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.TextFrame;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 測試可設定的 permessage-deflate：門檻、壓縮等級、字典保留、握手宣告與統計
+ */
+class MeteredDeflateExtensionTest {
+
+    private static final String STATE = "{\"command\":\"GAME_UPDATE\",\"data\":{\"action\":\"STATE_UPDATE\","
+            + "\"sea\":[\"M1\",\"M2\",\"M3\",\"P5\",\"S9\",\"EAST\",\"RED\",\"M1\",\"M2\",\"M3\",\"P5\",\"S9\"],"
+            + "\"handCounts\":[16,16,16,16],\"nicknames\":[\"Alice\",\"Bob\",\"Carol\",\"Dave\"]}}";
+
+    /**
+     * 把內容放在較大 buffer 的中間，模擬 pool 借出的 buffer
+     */
+    private static TextFrame frame(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(bytes.length + 100);
+        buf.position(40);
+        buf.put(bytes);
+        buf.flip();
+        buf.position(40);
+        TextFrame frame = new TextFrame();
+        frame.setPayload(buf);
+        return frame;
+    }
+
+    private static String text(TextFrame frame) {
+        return StandardCharsets.UTF_8.decode(frame.getPayloadData().duplicate()).toString();
+    }
+
+    @Test
+    void testEncode_RoundTripsThroughLibraryInflater() throws Exception {
+        MeteredDeflateExtension ext = new MeteredDeflateExtension(0, 9, false, false);
+        PerMessageDeflateExtension receiver = new PerMessageDeflateExtension();
+
+        for (int i = 0; i < 3; i++) {
+            TextFrame frame = frame(STATE);
+            ext.encodeFrame(frame);
+            assertTrue(frame.isRSV1());
+            receiver.decodeFrame(frame);
+            assertEquals(STATE, text(frame));
+        }
+
+        MeteredDeflateExtension.Stats stats = ext.getStats();
+        assertEquals(3, stats.getCompressedFrames());
+        assertEquals(3L * STATE.length(), stats.getBytesIn());
+        assertTrue(stats.getBytesSaved() > 0);
+        assertTrue(stats.getCompressionRatio() < 0.5, stats.toString());
+        assertTrue(stats.getDeflateNanos() > 0);
+    }
+
+    @Test
+    void testThreshold_SmallPayloadsSentUncompressed() {
+        MeteredDeflateExtension ext = new MeteredDeflateExtension(STATE.length() + 1, -1, false, false);
+        TextFrame frame = frame(STATE);
+        ext.encodeFrame(frame);
+
+        assertFalse(frame.isRSV1());
+        assertEquals(STATE, text(frame));
+        assertEquals(1, ext.getStats().getSkippedFrames());
+        assertEquals(0, ext.getStats().getCompressedFrames());
+    }
+
+    @Test
+    void testContextTakeover_RepeatedStateShrinks() {
+        MeteredDeflateExtension takeover = new MeteredDeflateExtension(0, -1, false, false);
+        MeteredDeflateExtension reset = new MeteredDeflateExtension(0, -1, true, false);
+        int[] takeoverSizes = new int[2];
+        int[] resetSizes = new int[2];
+        for (int i = 0; i < 2; i++) {
+            TextFrame a = frame(STATE);
+            takeover.encodeFrame(a);
+            takeoverSizes[i] = a.getPayloadData().remaining();
+            TextFrame b = frame(STATE);
+            reset.encodeFrame(b);
+            resetSizes[i] = b.getPayloadData().remaining();
+        }
+        // 保留字典時第二則只是對第一則的參照；每則重設時大小不變
+        assertTrue(takeoverSizes[1] < takeoverSizes[0] / 3, takeoverSizes[0] + " -> " + takeoverSizes[1]);
+        assertEquals(resetSizes[0], resetSizes[1]);
+    }
+
+    @Test
+    void testHandshake_AdvertisesConfiguredContextTakeover() {
+        MeteredDeflateExtension ext = new MeteredDeflateExtension();
+        assertEquals("permessage-deflate", ext.getProvidedExtensionAsServer());
+
+        MeteredDeflateExtension both = new MeteredDeflateExtension(0, 1, true, true);
+        assertEquals("permessage-deflate; server_no_context_takeover; client_no_context_takeover",
+                both.getProvidedExtensionAsServer());
+
+        // 客戶端要求時必須遵守
+        MeteredDeflateExtension negotiated = (MeteredDeflateExtension) ext.copyInstance();
+        assertTrue(negotiated.acceptProvidedExtensionAsServer("permessage-deflate; server_no_context_takeover"));
+        assertTrue(negotiated.isServerNoContextTakeover());
+        assertFalse(ext.isServerNoContextTakeover());
+        assertFalse(negotiated.acceptProvidedExtensionAsServer("x-webkit-deflate-frame"));
+    }
+
+    @Test
+    void testCopyInstance_KeepsSettingsAndSharesStats() {
+        MeteredDeflateExtension ext = new MeteredDeflateExtension(100, 3, true, false);
+        MeteredDeflateExtension copy = (MeteredDeflateExtension) ext.copyInstance();
+        assertNotSame(ext, copy);
+        assertEquals(100, copy.getThreshold());
+        assertEquals(3, copy.getLevel());
+        assertTrue(copy.isServerNoContextTakeover());
+        assertSame(ext.getStats(), copy.getStats());
+        assertNotSame(ext.getDeflater(), copy.getDeflater());
+    }
+
+    @Test
+    void testSettings_Validation() {
+        assertThrows(IllegalArgumentException.class, () -> new MeteredDeflateExtension(-1, -1, false, false));
+        assertThrows(IllegalArgumentException.class, () -> new MeteredDeflateExtension(0, 10, false, false));
+        assertThrows(IllegalArgumentException.class, () -> new MeteredDeflateExtension(0, -2, false, false));
+
+        Properties props = new Properties();
+        props.setProperty("mahjong.deflate.threshold", "512");
+        props.setProperty("mahjong.deflate.level", "1");
+        props.setProperty("mahjong.deflate.serverNoContextTakeover", "true");
+        MeteredDeflateExtension ext = MeteredDeflateExtension.fromProperties(props);
+        assertEquals(512, ext.getThreshold());
+        assertEquals(1, ext.getLevel());
+        assertTrue(ext.isServerNoContextTakeover());
+
+        props.setProperty("mahjong.deflate.level", "fast");
+        assertThrows(IllegalArgumentException.class, () -> MeteredDeflateExtension.fromProperties(props));
+        props.setProperty("mahjong.deflate.enabled", "false");
+        assertNull(MeteredDeflateExtension.fromProperties(props));
+    }
+
+    @Test
+    void testServer_CompressesForClientsThatOfferDeflate() throws Exception {
+        int port;
+        try (ServerSocket s = new ServerSocket(0)) {
+            port = s.getLocalPort();
+        }
+        MahjongWebSocketServer server = new MahjongWebSocketServer(port, new MeteredDeflateExtension(0, -1, false, false));
+        server.setReuseAddr(true);
+        server.start();
+
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        // 客戶端也壓縮（門檻 0），伺服器端才會有解壓縮的統計
+        MeteredDeflateExtension clientDeflate = new MeteredDeflateExtension(0, -1, false, false);
+        WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port),
+                new Draft_6455(List.of(clientDeflate))) {
+            @Override
+            public void onOpen(ServerHandshake handshake) {
+            }
+
+            @Override
+            public void onMessage(String message) {
+                received.add(message);
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+            }
+
+            @Override
+            public void onError(Exception ex) {
+            }
+        };
+        try {
+            assertTrue(client.connectBlocking(5, TimeUnit.SECONDS));
+            assertTrue(client.getConnection().getDraft().toString().contains("DeflateExtension"));
+
+            client.send("{\"command\":\"LOGIN\",\"data\":{\"nickname\":\"Zip\"}}");
+            String reply = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(reply);
+            assertTrue(reply.contains("LOGIN_SUCCESS") || reply.contains("joined"), reply);
+
+            MeteredDeflateExtension.Stats stats = server.getDeflateStats();
+            assertTrue(stats.getCompressedFrames() > 0);
+            assertTrue(stats.getInflatedFrames() > 0);
+        } finally {
+            client.closeBlocking();
+            server.stop(1000);
+        }
+    }
+}
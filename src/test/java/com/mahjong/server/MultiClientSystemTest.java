@@ -395,9 +395,9 @@ class MultiClientSystemTest {
         doAnswer(invocation -> {
             String json = invocation.getArgument(0);
             try {
-                Packet packet = mapper.readValue(json, Packet.class);
-                playerMessages.get(socket).add(packet);
-                messageCounts.get(socket).incrementAndGet();
+                List<Packet> packets = TestPackets.readPackets(json);
+                playerMessages.get(socket).addAll(packets);
+                messageCounts.get(socket).addAndGet(packets.size());
             } catch (Exception e) {
                 // 忽略解析錯誤
             }
@@ -0,0 +1,145 @@
+package com.mahjong.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mahjong.model.BinaryPacketCodec;
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.java_websocket.protocols.Protocol;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 測試每個事件的輸出合併：單則照原樣、JSON 合併成陣列、二進位直接串接、事件外立即送出
+ */
+class OutboundBatcherTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final OutboundBatcher batcher = new OutboundBatcher(new PacketWriter(mapper), new ByteBufferPool(16, 64, 1024));
+
+    private static Packet message(String text) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("message", text);
+        return new Packet(Command.GAME_UPDATE, data);
+    }
+
+    private static WebSocket binarySocket(List<Packet> received) {
+        WebSocket ws = mock(WebSocket.class);
+        when(ws.getProtocol()).thenReturn(new Protocol(BinaryPacketCodec.SUBPROTOCOL));
+        // buffer 送出後會歸還給 pool，要在送出當下解碼
+        doAnswer(inv -> received.addAll(BinaryPacketCodec.decodeAll((ByteBuffer) inv.getArgument(0))))
+                .when(ws).send(any(ByteBuffer.class));
+        return ws;
+    }
+
+    @Test
+    void testOutsideEvent_SendsImmediately() throws Exception {
+        WebSocket ws = mock(WebSocket.class);
+        batcher.send(ws, message("a"));
+        verify(ws).send(mapper.writeValueAsString(message("a")));
+        assertEquals(1, batcher.getFrameCount());
+    }
+
+    @Test
+    void testSingleMessage_SentAsIs() throws Exception {
+        WebSocket ws = mock(WebSocket.class);
+        batcher.begin();
+        batcher.send(ws, message("a"));
+        verify(ws, never()).send(anyString());
+        batcher.flush();
+        verify(ws).send(mapper.writeValueAsString(message("a")));
+    }
+
+    @Test
+    void testJsonMessages_FlushedAsOneArray() throws Exception {
+        WebSocket ws = mock(WebSocket.class);
+        batcher.begin();
+        batcher.send(ws, message("a"));
+        batcher.send(ws, message("b"));
+        ByteBuffer frame = ByteBuffer.wrap(mapper.writeValueAsBytes(message("c")));
+        batcher.sendFrame(ws, frame, false, OutboundQueues.Kind.CHAT, false);
+        batcher.flush();
+
+        ArgumentCaptor<String> sent = ArgumentCaptor.forClass(String.class);
+        verify(ws, times(1)).send(sent.capture());
+        JsonNode array = mapper.readTree(sent.getValue());
+        assertTrue(array.isArray());
+        assertEquals(3, array.size());
+        assertEquals("a", array.get(0).get("data").get("message").asText());
+        assertEquals("c", array.get(2).get("data").get("message").asText());
+        assertEquals(3, batcher.getMessageCount());
+        assertEquals(1, batcher.getFrameCount());
+    }
+
+    @Test
+    void testBinaryMessages_Concatenated() throws Exception {
+        List<Packet> received = new ArrayList<>();
+        WebSocket ws = binarySocket(received);
+        batcher.begin();
+        batcher.send(ws, message("a"));
+        batcher.send(ws, new Packet(Command.GAME_START, null));
+        batcher.flush();
+
+        verify(ws, times(1)).send(any(ByteBuffer.class));
+        assertEquals(2, received.size());
+        assertEquals("a", received.get(0).getData().get("message"));
+        assertEquals(Command.GAME_START, received.get(1).getCommand());
+    }
+
+    @Test
+    void testSendAll_OneFramePerConnection() throws Exception {
+        List<Packet> received = new ArrayList<>();
+        WebSocket json = mock(WebSocket.class);
+        WebSocket bin = binarySocket(received);
+        batcher.begin();
+        batcher.sendAll(List.of(json, bin), message("a"));
+        batcher.sendAll(List.of(json, bin), message("b"));
+        batcher.flush();
+
+        verify(json, times(1)).send(anyString());
+        assertEquals(2, received.size());
+        assertEquals(4, batcher.getMessageCount());
+        assertEquals(2, batcher.getFrameCount());
+    }
+
+    @Test
+    void testLargeBatch_GrowsPastPooledCapacity() throws Exception {
+        WebSocket ws = mock(WebSocket.class);
+        batcher.begin();
+        for (int i = 0; i < 100; i++) {
+            batcher.send(ws, message("message " + i));
+        }
+        batcher.flush();
+
+        ArgumentCaptor<String> sent = ArgumentCaptor.forClass(String.class);
+        verify(ws).send(sent.capture());
+        assertEquals(100, mapper.readTree(sent.getValue().getBytes(StandardCharsets.UTF_8)).size());
+    }
+
+    @Test
+    void testSessionEvent_FewerFramesThanMessages() {
+        List<WebSocket> players = TestSessions.players();
+        WebSocketGameSession session = TestSessions.session(players);
+        session.tell(session::start);
+
+        // GAME_START 與狀態在同一個事件中送出，每個玩家只收到一個訊框
+        for (WebSocket ws : players) {
+            verify(ws, times(1)).send(anyString());
+        }
+        assertEquals(4, session.getOutboundFrameCount());
+        assertTrue(session.getOutboundMessageCount() > session.getOutboundFrameCount());
+    }
+}
@@ -0,0 +1,227 @@
+package com.mahjong.server;
+
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.framing.CloseFrame;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 測試每個連線的輸出佇列：高低水位、壅塞時取代舊狀態 / 丟棄聊天、超過上限斷線
+ */
+class OutboundQueuesTest {
+
+    private static final int HIGH = 1000;
+    private static final int LOW = 200;
+    private static final int LIMIT = 2000;
+
+    // 模擬函式庫尚未寫出的 bytes
+    private final Map<WebSocket, Long> backlog = new HashMap<>();
+    private final OutboundQueues queues = new OutboundQueues(HIGH, LOW, LIMIT, ws -> backlog.getOrDefault(ws, 0L));
+
+    private static ByteBuffer frame(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 送出一則訊框並讓函式庫積壓達到高水位，佇列進入壅塞
+     */
+    private OutboundQueues.ConnectionQueue congest(WebSocket ws) {
+        OutboundQueues.ConnectionQueue q = queues.queueFor(ws);
+        backlog.put(ws, (long) HIGH);
+        q.offer(frame("first"), false, OutboundQueues.Kind.NORMAL, false);
+        assertTrue(q.isCongested());
+        return q;
+    }
+
+    @Test
+    void testBelowHighWatermark_SendsDirectly() {
+        WebSocket ws = mock(WebSocket.class);
+        OutboundQueues.ConnectionQueue q = queues.queueFor(ws);
+        q.offer(frame("a"), false, OutboundQueues.Kind.NORMAL, false);
+        q.offer(frame("b"), false, OutboundQueues.Kind.CHAT, false);
+
+        verify(ws).send("a");
+        verify(ws).send("b");
+        assertEquals(0, q.getDepth());
+        assertFalse(q.isCongested());
+    }
+
+    @Test
+    void testCongested_QueuesNormalAndDropsChat() {
+        WebSocket ws = mock(WebSocket.class);
+        OutboundQueues.ConnectionQueue q = congest(ws);
+
+        q.offer(frame("action"), false, OutboundQueues.Kind.NORMAL, false);
+        q.offer(frame("chat"), false, OutboundQueues.Kind.CHAT, false);
+
+        verify(ws, times(1)).send(anyString());
+        assertEquals(1, q.getDepth());
+        assertEquals(1, queues.getDroppedCount());
+        assertEquals(HIGH + "action".length(), q.getBufferedBytes());
+    }
+
+    @Test
+    void testCongested_SnapshotReplacesQueuedStates() {
+        WebSocket ws = mock(WebSocket.class);
+        OutboundQueues.ConnectionQueue q = congest(ws);
+
+        q.offer(frame("delta1"), false, OutboundQueues.Kind.STATE, false);
+        q.offer(frame("request"), false, OutboundQueues.Kind.NORMAL, false);
+        q.offer(frame("delta2"), false, OutboundQueues.Kind.STATE, false);
+        q.offer(frame("snapshot"), false, OutboundQueues.Kind.STATE, true);
+        assertEquals(2, q.getDepth());
+        assertEquals(2, queues.getCollapsedCount());
+
+        // 降到低水位以下才恢復，依原順序送出
+        backlog.put(ws, (long) LOW + 1);
+        queues.drainAll();
+        assertEquals(2, q.getDepth());
+        backlog.put(ws, (long) LOW);
+        queues.drainAll();
+        assertEquals(0, q.getDepth());
+        assertFalse(q.isCongested());
+
+        var order = inOrder(ws);
+        order.verify(ws).send("first");
+        order.verify(ws).send("request");
+        order.verify(ws).send("snapshot");
+        verify(ws, never()).send("delta1");
+        verify(ws, never()).send("delta2");
+    }
+
+    @Test
+    void testDrain_StopsAgainAtHighWatermark() {
+        WebSocket ws = mock(WebSocket.class);
+        OutboundQueues.ConnectionQueue q = congest(ws);
+        q.offer(frame("a"), false, OutboundQueues.Kind.NORMAL, false);
+        q.offer(frame("b"), false, OutboundQueues.Kind.NORMAL, false);
+
+        // 每送出一則，函式庫的積壓回到高水位
+        backlog.put(ws, 0L);
+        doAnswer(inv -> backlog.put(ws, (long) HIGH)).when(ws).send("a");
+        q.drain();
+
+        verify(ws).send("a");
+        verify(ws, never()).send("b");
+        assertTrue(q.isCongested());
+        assertEquals(1, q.getDepth());
+        assertEquals(2, queues.getCongestionCount());
+    }
+
+    @Test
+    void testOverLimit_Disconnects() {
+        WebSocket ws = mock(WebSocket.class);
+        OutboundQueues.ConnectionQueue q = congest(ws);
+        String big = "x".repeat(LIMIT - HIGH);
+        q.offer(frame(big), false, OutboundQueues.Kind.NORMAL, false);
+        verify(ws, never()).closeConnection(anyInt(), anyString());
+
+        q.offer(frame("one more"), false, OutboundQueues.Kind.NORMAL, false);
+        verify(ws).closeConnection(eq(CloseFrame.TRY_AGAIN_LATER), anyString());
+        assertTrue(q.isClosed());
+        assertEquals(0, q.getDepth());
+        assertNull(queues.get(ws));
+        assertEquals(1, queues.getDisconnectCount());
+
+        // 關閉後不再送出
+        q.offer(frame("late"), false, OutboundQueues.Kind.NORMAL, false);
+        verify(ws, never()).send("late");
+    }
+
+    @Test
+    void testClosedConnection_NoQueueAndSilentDrop() {
+        WebSocket closed = mock(WebSocket.class);
+        when(closed.isClosed()).thenReturn(true);
+        assertNull(queues.queueFor(closed));
+        assertEquals(0, queues.size());
+
+        // 檢查之後才關閉：寫入失敗時靜默丟棄並移除佇列
+        WebSocket gone = mock(WebSocket.class);
+        doThrow(new WebsocketNotConnectedException()).when(gone).send(anyString());
+        OutboundQueues.ConnectionQueue q = queues.queueFor(gone);
+        assertDoesNotThrow(() -> q.offer(frame("state"), false, OutboundQueues.Kind.STATE, true));
+        assertTrue(q.isClosed());
+        assertNull(queues.get(gone));
+        assertDoesNotThrow(() -> q.offer(frame("more"), false, OutboundQueues.Kind.NORMAL, false));
+        verify(gone, times(1)).send(anyString());
+        assertEquals(0, queues.size());
+    }
+
+    @Test
+    void testKind_Classification() {
+        Map<String, Object> chat = new HashMap<>();
+        chat.put("message", "[Game] Player 1 PONG!");
+        assertEquals(OutboundQueues.Kind.CHAT, OutboundQueues.Kind.of(new Packet(Command.GAME_UPDATE, chat)));
+
+        Map<String, Object> state = new HashMap<>();
+        state.put("action", TableStateTracker.DELTA);
+        assertEquals(OutboundQueues.Kind.STATE, OutboundQueues.Kind.of(new Packet(Command.GAME_UPDATE, state)));
+
+        assertEquals(OutboundQueues.Kind.NORMAL, OutboundQueues.Kind.of(new Packet(Command.ACTION_REQUEST, chat)));
+        assertEquals(OutboundQueues.Kind.NORMAL, OutboundQueues.Kind.of(new Packet(Command.GAME_START, null)));
+
+        assertEquals(OutboundQueues.Kind.STATE, OutboundQueues.Kind.CHAT.merge(OutboundQueues.Kind.STATE));
+        assertEquals(OutboundQueues.Kind.NORMAL, OutboundQueues.Kind.NORMAL.merge(OutboundQueues.Kind.CHAT));
+    }
+
+    @Test
+    void testSettings_Validation() {
+        assertThrows(IllegalArgumentException.class, () -> new OutboundQueues(100, 100, 200));
+        assertThrows(IllegalArgumentException.class, () -> new OutboundQueues(100, 10, 50));
+        assertThrows(IllegalArgumentException.class, () -> new OutboundQueues(100, -1, 200));
+
+        Properties props = new Properties();
+        props.setProperty("mahjong.outbound.high", "4096");
+        props.setProperty("mahjong.outbound.low", "1024");
+        OutboundQueues q = OutboundQueues.fromProperties(props);
+        assertEquals(4096, q.getHighWatermark());
+        assertEquals(1024, q.getLowWatermark());
+        assertEquals(OutboundQueues.DEFAULT_DISCONNECT_LIMIT, q.getDisconnectLimit());
+    }
+
+    @Test
+    void testSession_CongestedSeatGetsCollapsedSnapshots() throws Exception {
+        List<WebSocket> players = TestSessions.players();
+        WebSocketGameSession session = TestSessions.session(players);
+        session.setOutboundQueues(queues);
+        session.tell(session::start);
+        WebSocket slow = players.get(0);
+
+        // 座位 0 的函式庫積壓達到高水位：下一個訊框送出後進入壅塞
+        backlog.put(slow, (long) HIGH);
+        session.submit(0, new Packet(Command.RESYNC, new HashMap<>()));
+        assertTrue(queues.isCongested(slow));
+        assertEquals(0, session.getOutboundQueueDepth());
+
+        // 狀態沒有變化時其他座位不會收到；壅塞的座位每次都改送完整狀態，且只保留最新一份
+        Method broadcastState = WebSocketGameSession.class.getDeclaredMethod("broadcastState");
+        broadcastState.setAccessible(true);
+        for (int i = 0; i < 3; i++) {
+            session.tell(() -> {
+                try {
+                    broadcastState.invoke(session);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        assertEquals(1, queues.getDepth(slow));
+        assertEquals(1, session.getOutboundQueueDepth());
+        assertEquals(2, queues.getCollapsedCount());
+        verify(players.get(1), times(1)).send(anyString());
+    }
+}
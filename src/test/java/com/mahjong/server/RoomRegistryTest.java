@@ -0,0 +1,173 @@
+package com.mahjong.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 測試 RoomRegistry 類別：路由、房間生命週期，以及伺服器同時開多桌
+ */
+class RoomRegistryTest {
+
+    private static List<WebSocket> sockets(int n) {
+        List<WebSocket> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            list.add(mock(WebSocket.class));
+        }
+        return list;
+    }
+
+    @Test
+    void testCreateRoom_RoutesEverySeat() {
+        RoomRegistry registry = new RoomRegistry();
+        List<WebSocket> players = sockets(4);
+        GameRoom room = registry.createRoom(players, new ConcurrentHashMap<>());
+
+        assertEquals(GameRoom.State.PLAYING, room.getState());
+        assertEquals(1, registry.getActiveRoomCount());
+        for (int i = 0; i < 4; i++) {
+            RoomRegistry.Seat seat = registry.route(players.get(i));
+            assertSame(room, seat.getRoom());
+            assertEquals(i, seat.getIndex());
+        }
+        assertNull(registry.route(mock(WebSocket.class)));
+        assertNull(registry.route(null));
+    }
+
+    @Test
+    void testCreateRoom_RejectsSeatedConnection() {
+        RoomRegistry registry = new RoomRegistry();
+        List<WebSocket> first = sockets(4);
+        registry.createRoom(first, new ConcurrentHashMap<>());
+
+        List<WebSocket> second = sockets(3);
+        second.add(first.get(2));
+        assertThrows(IllegalStateException.class, () -> registry.createRoom(second, new ConcurrentHashMap<>()));
+        assertNull(registry.route(second.get(0)), "Partially registered seats should be rolled back");
+        assertEquals(1, registry.getActiveRoomCount());
+    }
+
+    @Test
+    void testFinishRoom_ReclaimsRoutes() {
+        RoomRegistry registry = new RoomRegistry();
+        List<WebSocket> players = sockets(4);
+        GameRoom room = registry.createRoom(players, new ConcurrentHashMap<>());
+
+        registry.finishRoom(room.getId());
+        registry.finishRoom(room.getId()); // 重複呼叫無副作用
+
+        assertEquals(GameRoom.State.FINISHED, room.getState());
+        assertEquals(0, registry.getActiveRoomCount());
+        assertEquals(0, registry.getSeatedConnectionCount());
+        assertEquals(1, registry.getFinishedRoomCount());
+        assertNull(registry.getRoom(room.getId()));
+    }
+
+    @Test
+    void testDisconnect_LastSeatReclaimsRoom() {
+        RoomRegistry registry = new RoomRegistry();
+        List<WebSocket> players = sockets(4);
+        GameRoom room = registry.createRoom(players, new ConcurrentHashMap<>());
+
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(registry.disconnect(players.get(i)));
+        }
+        assertEquals(GameRoom.State.PLAYING, room.getState());
+        assertNull(registry.disconnect(players.get(0)), "Already disconnected");
+
+        registry.disconnect(players.get(3));
+        assertEquals(GameRoom.State.FINISHED, room.getState());
+        assertEquals(0, registry.getActiveRoomCount());
+    }
+
+    @Test
+    void testDisconnect_ReclaimedRoomStopsTimeoutsAndBots() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        TimingWheel wheel = new TimingWheel(100, clock::get);
+        RoomRegistry registry = new RoomRegistry();
+        registry.enableTimeouts(wheel, 1_000, 2_000);
+        List<WebSocket> players = sockets(4);
+        GameRoom room = registry.createRoom(players, new ConcurrentHashMap<>());
+        WebSocketGameSession session = room.getSession();
+        session.tell(session::start);
+        drain(session);
+        assertEquals(1, wheel.size(), "Dealer turn timeout should be armed");
+
+        for (WebSocket ws : players) {
+            registry.disconnect(ws);
+        }
+        drain(session);
+        assertEquals(GameRoom.State.FINISHED, room.getState());
+        assertTrue(session.isFinished());
+        assertEquals(0, wheel.size(), "Reclaimed room should not keep its timeout");
+
+        // 回收後即使座位交給機器人、時間過了很久，也不會再出牌
+        session.setBot(0);
+        clock.set(60_000);
+        wheel.advance();
+        drain(session);
+        List<?> sea = TestSessions.get(session, "sea");
+        assertTrue(sea.isEmpty());
+    }
+
+    /**
+     * 等 session 處理完目前排入的所有事件
+     */
+    private static void drain(WebSocketGameSession session) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        session.tell(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testServer_HostsMultipleTables() throws Exception {
+        MahjongWebSocketServer server = new MahjongWebSocketServer(0);
+        ObjectMapper mapper = new ObjectMapper();
+        List<WebSocket> players = sockets(8);
+        for (int i = 0; i < players.size(); i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("nickname", "P" + i);
+            server.onMessage(players.get(i), mapper.writeValueAsString(new Packet(Command.LOGIN, data)));
+        }
+
+        RoomRegistry registry = server.getRoomRegistry();
+        assertEquals(2, registry.getActiveRoomCount());
+        GameRoom first = registry.route(players.get(0)).getRoom();
+        GameRoom second = registry.route(players.get(4)).getRoom();
+        assertNotSame(first, second);
+        assertEquals(3, registry.route(players.get(7)).getIndex());
+
+        // 遊戲結束（胡牌）後房間被回收
+        java.lang.reflect.Method performHu = WebSocketGameSession.class.getDeclaredMethod("performHu", int.class);
+        performHu.setAccessible(true);
+        java.util.concurrent.CountDownLatch done = new java.util.concurrent.CountDownLatch(1);
+        first.getSession().tell(() -> {
+            try {
+                performHu.invoke(first.getSession(), 0);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, java.util.concurrent.TimeUnit.SECONDS));
+        assertTrue(first.getSession().isFinished());
+        assertEquals(GameRoom.State.FINISHED, first.getState());
+        assertEquals(1, registry.getActiveRoomCount());
+        assertNull(registry.route(players.get(0)));
+    }
+}
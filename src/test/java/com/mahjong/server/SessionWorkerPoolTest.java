@@ -0,0 +1,79 @@
+package com.mahjong.server;
+
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 測試 SessionWorkerPool：最少負載指派、房間固定在同一個 worker、統計
+ */
+class SessionWorkerPoolTest {
+
+    private static List<WebSocket> sockets() {
+        List<WebSocket> list = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            list.add(mock(WebSocket.class));
+        }
+        return list;
+    }
+
+    @Test
+    void testAssign_LeastLoaded() {
+        SessionWorkerPool pool = new SessionWorkerPool(3);
+        SessionWorkerPool.Worker a = pool.assign();
+        SessionWorkerPool.Worker b = pool.assign();
+        SessionWorkerPool.Worker c = pool.assign();
+        assertEquals(Set.of(0, 1, 2), Set.of(a.getIndex(), b.getIndex(), c.getIndex()));
+
+        pool.release(b);
+        assertSame(b, pool.assign(), "New rooms go to the least-loaded worker");
+        pool.release(null);
+        assertThrows(IllegalArgumentException.class, () -> new SessionWorkerPool(0));
+        pool.shutdown();
+    }
+
+    @Test
+    void testRoomsArePinnedAndReleased() throws Exception {
+        SessionWorkerPool pool = new SessionWorkerPool(2);
+        RoomRegistry registry = new RoomRegistry(pool);
+
+        GameRoom first = registry.createRoom(sockets(), new ConcurrentHashMap<>());
+        GameRoom second = registry.createRoom(sockets(), new ConcurrentHashMap<>());
+        assertNotSame(first.getWorker(), second.getWorker());
+        assertEquals(1, pool.getWorkers().get(0).getActiveRooms());
+        assertEquals(1, pool.getWorkers().get(1).getActiveRooms());
+
+        // 同一桌的事件都在同一條 worker 執行緒上
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            first.getSession().tell(() -> {
+                threads.add(Thread.currentThread().getName());
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Set.of("mahjong-worker-" + first.getWorker().getIndex()), threads);
+        // 統計在工作結束後才累加，稍等 worker 收尾
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (first.getWorker().getEventCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(first.getWorker().getEventCount() >= 1);
+
+        registry.finishRoom(first.getId());
+        assertEquals(0, first.getWorker().getActiveRooms());
+        GameRoom third = registry.createRoom(sockets(), new ConcurrentHashMap<>());
+        assertSame(first.getWorker(), third.getWorker());
+        pool.shutdown();
+    }
+}
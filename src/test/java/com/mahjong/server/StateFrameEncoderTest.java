@@ -0,0 +1,119 @@
+package com.mahjong.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.logic.Tile;
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 測試狀態訊息編碼：公開部分只編碼一次、手牌片段快取、輸出與 Jackson 序列化 Packet 相同
+ */
+class StateFrameEncoderTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private static PlayerHand hand(Tile... tiles) {
+        PlayerHand h = new PlayerHand();
+        for (Tile t : tiles) h.addTile(t);
+        return h;
+    }
+
+    private static String text(ByteBuffer buf) {
+        return StandardCharsets.UTF_8.decode(buf.duplicate()).toString();
+    }
+
+    @Test
+    void testEncode_MatchesJacksonPacket() throws Exception {
+        StateFrameEncoder encoder = new StateFrameEncoder(mapper, new ByteBufferPool(4, 64, 4096), 16);
+        Map<String, Object> pub = new HashMap<>();
+        pub.put("action", "STATE_DELTA");
+        pub.put("version", 7);
+        pub.put("seaAdd", List.of("P5"));
+        PlayerHand h = hand(Tile.M1, Tile.M1, Tile.RED);
+
+        ByteBuffer buf = encoder.encode(pub, 12, h);
+
+        Map<String, Object> expected = new HashMap<>(pub);
+        expected.put("myIndex", 12);
+        expected.put("myHand", h.getTilesStr());
+        JsonNode want = mapper.readTree(mapper.writeValueAsString(new Packet(Command.GAME_UPDATE, expected)));
+        assertEquals(want, mapper.readTree(text(buf)));
+        Packet decoded = mapper.readValue(text(buf), Packet.class);
+        assertEquals(Command.GAME_UPDATE, decoded.getCommand());
+    }
+
+    @Test
+    void testEncode_PublicPartOncePerVersionAndHandCachedUntilChange() throws Exception {
+        StateFrameEncoder encoder = new StateFrameEncoder(mapper, new ByteBufferPool(4, 64, 4096), 4);
+        Map<String, Object> pub = new HashMap<>();
+        pub.put("action", "STATE_DELTA");
+        PlayerHand[] hands = {hand(Tile.M1), hand(Tile.M2), hand(Tile.M3), hand(Tile.M4)};
+
+        for (int seat = 0; seat < 4; seat++) {
+            encoder.release(encoder.encode(pub, seat, hands[seat]));
+        }
+        assertEquals(1, encoder.getPublicEncodes());
+        assertEquals(4, encoder.getHandEncodes());
+
+        Map<String, Object> next = new HashMap<>(pub);
+        hands[2].addTile(Tile.RED);
+        for (int seat = 0; seat < 4; seat++) {
+            encoder.release(encoder.encode(next, seat, hands[seat]));
+        }
+        assertEquals(2, encoder.getPublicEncodes());
+        assertEquals(5, encoder.getHandEncodes(), "Only the changed hand is re-encoded");
+    }
+
+    @Test
+    void testEncode_WithoutSeatOrHand() throws Exception {
+        StateFrameEncoder encoder = new StateFrameEncoder(mapper, new ByteBufferPool(4, 64, 4096), 4);
+        Map<String, Object> pub = Map.of("action", "STATE_UPDATE");
+
+        JsonNode data = mapper.readTree(text(encoder.encode(pub, -1, null))).get("data");
+        assertEquals("STATE_UPDATE", data.get("action").asText());
+        assertFalse(data.has("myIndex"));
+        assertFalse(data.has("myHand"));
+    }
+
+    @Test
+    void testSendText_FallsBackToStringForOtherImplementations() {
+        WebSocket ws = mock(WebSocket.class);
+        PacketWriter.sendFrame(ws, ByteBuffer.wrap("{\"a\":1}".getBytes(StandardCharsets.UTF_8)), false);
+        verify(ws).send("{\"a\":1}");
+    }
+
+    @Test
+    void testPool_ReusesReleasedBuffers() {
+        ByteBufferPool pool = new ByteBufferPool(2, 64, 1024);
+        ByteBuffer a = pool.acquire(10);
+        a.put((byte) 1);
+        pool.release(a);
+        ByteBuffer b = pool.acquire(10);
+        assertSame(a, b);
+        assertEquals(0, b.position(), "Reused buffers are cleared");
+        assertEquals(1, pool.getAllocations());
+        assertEquals(1, pool.getReuses());
+
+        pool.release(pool.acquire(4096)); // 超過保留上限，不回收
+        assertEquals(0, pool.getPooledCount());
+    }
+
+    @Test
+    void testPool_RejectsInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(1, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(1, 100, 10));
+    }
+}
@@ -0,0 +1,220 @@
+package com.mahjong.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mahjong.logic.Meld;
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.logic.Tile;
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 測試版本化狀態：首次快照、之後只送差異、要求重新同步時送快照
+ */
+class TableStateTrackerTest {
+
+    private static List<PlayerHand> hands(int tilesEach) {
+        List<PlayerHand> hands = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            PlayerHand h = new PlayerHand();
+            for (int n = 0; n < tilesEach; n++) {
+                h.addTile(Tile.fromIndex((i * 7 + n) % 27));
+            }
+            hands.add(h);
+        }
+        return hands;
+    }
+
+    private static final List<String> NAMES = List.of("A", "B", "C", "D");
+
+    @Test
+    void testFirstBroadcast_IsSnapshot() {
+        TableStateTracker tracker = new TableStateTracker(4);
+        List<PlayerHand> hands = hands(16);
+        assertTrue(tracker.advance(new ArrayList<>(), hands, 0));
+
+        Map<String, Object> first = null;
+        for (int i = 0; i < 4; i++) {
+            assertTrue(tracker.needsSnapshot(i));
+            Map<String, Object> s = tracker.publicSnapshot(new ArrayList<>(), hands, 0, NAMES);
+            assertEquals("STATE_UPDATE", s.get("action"));
+            assertEquals(1, s.get("version"));
+            assertEquals(NAMES, s.get("nicknames"));
+            if (first == null) first = s;
+            assertSame(first, s, "One snapshot per version, shared by all seats");
+            tracker.markSynced(i);
+            assertFalse(tracker.needsSnapshot(i));
+        }
+    }
+
+    @Test
+    void testDiscard_SendsOnlySeaTileAndCount() {
+        TableStateTracker tracker = new TableStateTracker(4);
+        List<PlayerHand> hands = hands(16);
+        List<String> sea = new ArrayList<>(List.of("M1", "M2", "M3", "M4", "M5"));
+        tracker.advance(sea, hands, 2);
+        syncAll(tracker);
+
+        Tile discard = hands.get(2).getStandingTiles().get(0);
+        hands.get(2).removeTile(discard);
+        sea.add(discard.toString());
+        assertTrue(tracker.advance(sea, hands, 2));
+
+        assertFalse(tracker.needsSnapshot(0));
+        assertTrue(tracker.needsDelta(0));
+        Map<String, Object> other = tracker.publicDelta();
+        assertEquals("STATE_DELTA", other.get("action"));
+        assertEquals(1, other.get("base"));
+        assertEquals(2, other.get("version"));
+        assertEquals(List.of(discard.toString()), other.get("seaAdd"));
+        assertEquals(Map.of("2", 15), other.get("handCounts"));
+        assertFalse(other.containsKey("sea"));
+        assertFalse(other.containsKey("nicknames"));
+        assertFalse(other.containsKey("turnIndex"));
+        assertFalse(other.containsKey("myHand"), "Hands are never part of the shared delta");
+        assertFalse(tracker.handChanged(0));
+        assertTrue(tracker.handChanged(2));
+        assertSame(other, tracker.publicDelta());
+    }
+
+    @Test
+    void testPong_TakesFromSeaAndSendsSeatMelds() {
+        TableStateTracker tracker = new TableStateTracker(4);
+        List<PlayerHand> hands = hands(16);
+        List<String> sea = new ArrayList<>(List.of("M1", "RED"));
+        tracker.advance(sea, hands, 0);
+        syncAll(tracker);
+
+        sea.remove(sea.size() - 1);
+        hands.get(1).addMeld(Meld.createPong(Tile.RED));
+        assertTrue(tracker.advance(sea, hands, 1));
+
+        Map<String, Object> delta = tracker.publicDelta();
+        assertEquals(1, delta.get("seaSize"));
+        assertEquals(Map.of("1", hands.get(1).getMeldsStr()), delta.get("melds"));
+        assertEquals(1, delta.get("turnIndex"));
+    }
+
+    @Test
+    void testNoChange_SendsNothing() {
+        TableStateTracker tracker = new TableStateTracker(4);
+        List<PlayerHand> hands = hands(16);
+        List<String> sea = new ArrayList<>();
+        tracker.advance(sea, hands, 0);
+        syncAll(tracker);
+
+        assertFalse(tracker.advance(sea, hands, 0));
+        assertFalse(tracker.needsSnapshot(0));
+        assertFalse(tracker.needsDelta(0));
+        assertEquals(1, tracker.getVersion());
+    }
+
+    @Test
+    void testHandOnlyChange_DoesNotPushOtherSeatsToSnapshot() {
+        TableStateTracker tracker = new TableStateTracker(4);
+        List<PlayerHand> hands = hands(16);
+        List<String> sea = new ArrayList<>(List.of("M1"));
+        tracker.advance(sea, hands, 1);
+        syncAll(tracker);
+
+        // 換一張牌：張數與面子不變，只有自己的手牌不同
+        PlayerHand hand = hands.get(1);
+        hand.removeTile(hand.getStandingTiles().get(0));
+        hand.addTile(Tile.RED);
+        assertTrue(tracker.advance(sea, hands, 1));
+        assertEquals(1, tracker.getVersion(), "Public state did not change");
+        for (int i = 0; i < 4; i++) {
+            assertFalse(tracker.needsSnapshot(i));
+            assertEquals(i == 1, tracker.needsDelta(i));
+        }
+        Map<String, Object> own = tracker.publicDelta();
+        assertEquals(own.get("base"), own.get("version"));
+        assertTrue(tracker.handChanged(1));
+        tracker.markSynced(1);
+
+        // 下一次公開變化：所有座位照常收差異
+        sea.add("M2");
+        assertTrue(tracker.advance(sea, hands, 2));
+        for (int i = 0; i < 4; i++) {
+            assertFalse(tracker.needsSnapshot(i));
+            assertTrue(tracker.needsDelta(i));
+        }
+    }
+
+    @Test
+    void testSeatThatMissedAVersion_GetsSnapshot() {
+        TableStateTracker tracker = new TableStateTracker(4);
+        List<PlayerHand> hands = hands(16);
+        List<String> sea = new ArrayList<>();
+        tracker.advance(sea, hands, 0);
+        for (int i = 1; i < 4; i++) tracker.markSynced(i);
+
+        sea.add("M1");
+        tracker.advance(sea, hands, 1);
+        assertTrue(tracker.needsSnapshot(0), "Seat 0 never synced");
+        assertFalse(tracker.needsSnapshot(1));
+    }
+
+    private static void syncAll(TableStateTracker tracker) {
+        for (int i = 0; i < 4; i++) tracker.markSynced(i);
+    }
+
+    @Test
+    void testSession_DeltasAfterStartAndSnapshotOnResync() throws Exception {
+        List<WebSocket> players = TestSessions.players();
+        WebSocketGameSession session = TestSessions.session(players);
+        session.start();
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<JsonNode> seat1 = stateUpdates(mapper, players.get(1));
+        assertEquals(1, seat1.size(), "Start sends exactly one snapshot, the second broadcast has no changes");
+        assertEquals("STATE_UPDATE", seat1.get(0).get("action").asText());
+        int version = seat1.get(0).get("version").asInt();
+
+        // 莊家出牌：其他座位只收到差異
+        JsonNode dealer = stateUpdates(mapper, players.get(0)).get(0);
+        String tile = dealer.get("myHand").get(0).asText();
+        Map<String, Object> data = new HashMap<>();
+        data.put("tile", tile);
+        session.processPlayerAction(0, new Packet(Command.PLAY_CARD, data));
+
+        seat1 = stateUpdates(mapper, players.get(1));
+        JsonNode delta = seat1.get(1);
+        assertEquals("STATE_DELTA", delta.get("action").asText());
+        assertEquals(version, delta.get("base").asInt());
+        assertEquals(tile, delta.get("seaAdd").get(0).asText());
+        assertEquals(1, delta.get("myIndex").asInt());
+        assertFalse(delta.has("nicknames"));
+        assertFalse(delta.has("sea"));
+
+        session.processPlayerAction(1, new Packet(Command.RESYNC, new HashMap<>()));
+        seat1 = stateUpdates(mapper, players.get(1));
+        JsonNode resync = seat1.get(seat1.size() - 1);
+        assertEquals("STATE_UPDATE", resync.get("action").asText());
+        assertEquals(tile, resync.get("sea").get(0).asText());
+    }
+
+    private static List<JsonNode> stateUpdates(ObjectMapper mapper, WebSocket ws) throws Exception {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(ws, atLeastOnce()).send(captor.capture());
+        List<JsonNode> result = new ArrayList<>();
+        for (String json : captor.getAllValues()) {
+            JsonNode data = mapper.readTree(json).get("data");
+            if (data != null && data.has("version")) {
+                result.add(data);
+            }
+        }
+        return result;
+    }
+}
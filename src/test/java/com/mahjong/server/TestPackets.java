@@ -0,0 +1,35 @@
+package com.mahjong.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mahjong.model.Packet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 整合測試共用的封包解析工具
+ */
+final class TestPackets {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private TestPackets() {
+    }
+
+    /**
+     * 解析伺服器送出的文字訊框：同一事件的多則訊息會合併成 JSON 陣列
+     */
+    static List<Packet> readPackets(String json) throws Exception {
+        JsonNode node = MAPPER.readTree(json);
+        List<Packet> packets = new ArrayList<>();
+        if (node.isArray()) {
+            for (JsonNode element : node) {
+                packets.add(MAPPER.treeToValue(element, Packet.class));
+            }
+        } else {
+            packets.add(MAPPER.treeToValue(node, Packet.class));
+        }
+        return packets;
+    }
+}
@@ -0,0 +1,63 @@
+package com.mahjong.server;
+
+import org.java_websocket.WebSocket;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * 牌桌測試共用的 session 夾具：四個 mock 連線與讀寫 session 私有欄位
+ */
+final class TestSessions {
+
+    private TestSessions() {
+    }
+
+    /**
+     * @return 四個 mock 連線（需要特別行為時在建立 session 前再 stub）
+     */
+    static List<WebSocket> players() {
+        List<WebSocket> players = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            players.add(mock(WebSocket.class));
+        }
+        return players;
+    }
+
+    /**
+     * @return 暱稱 P0..P3
+     */
+    static Map<WebSocket, String> names(List<WebSocket> players) {
+        Map<WebSocket, String> names = new HashMap<>();
+        for (int i = 0; i < players.size(); i++) {
+            names.put(players.get(i), "P" + i);
+        }
+        return names;
+    }
+
+    /**
+     * 在呼叫端執行 mailbox 的 session：tell / submit 之後結果立即可見。
+     * 不做背景手牌分析，避免分析結果從其他執行緒排入 mailbox（需要時再 setAnalysisPool）
+     */
+    static WebSocketGameSession session(List<WebSocket> players) {
+        WebSocketGameSession session = new WebSocketGameSession(players, names(players), Runnable::run);
+        session.setAnalysisPool(null);
+        return session;
+    }
+
+    static Field field(String name) throws NoSuchFieldException {
+        Field f = WebSocketGameSession.class.getDeclaredField(name);
+        f.setAccessible(true);
+        return f;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T get(WebSocketGameSession session, String name) throws ReflectiveOperationException {
+        return (T) field(name).get(session);
+    }
+}
@@ -0,0 +1,76 @@
+package com.mahjong.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 測試 TimingWheel：跨層級的到期時間、精確 tick、取消
+ */
+class TimingWheelTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private void advanceTo(TimingWheel wheel, long ms) {
+        clock.set(ms);
+        wheel.advance();
+    }
+
+    @Test
+    void testSchedule_FiresAtDeadlineAcrossLevels() {
+        TimingWheel wheel = new TimingWheel(10, clock::get);
+        long[] delays = {10, 55, 640, 41_000, 2_700_000, 200_000_000};
+        long[] firedAt = new long[delays.length];
+        for (int i = 0; i < delays.length; i++) {
+            int idx = i;
+            wheel.schedule(delays[i], () -> firedAt[idx] = clock.get());
+        }
+        assertEquals(delays.length, wheel.size());
+
+        for (long ms = 0; ms <= 200_000_000; ms += ms < 3_000_000 ? 10 : 100_000) {
+            advanceTo(wheel, ms);
+        }
+        for (int i = 0; i < delays.length; i++) {
+            long tick = (delays[i] + 9) / 10 * 10;
+            assertTrue(firedAt[i] >= tick, "Timer " + i + " fired early at " + firedAt[i]);
+            assertTrue(firedAt[i] < tick + 100_000, "Timer " + i + " fired late at " + firedAt[i]);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testSchedule_ExactTicks() {
+        TimingWheel wheel = new TimingWheel(1, clock::get);
+        List<Long> fired = new ArrayList<>();
+        for (long d : new long[]{1, 63, 64, 65, 4095, 4096, 4097}) {
+            wheel.schedule(d, () -> fired.add(clock.get()));
+        }
+        for (long ms = 1; ms <= 5000; ms++) {
+            advanceTo(wheel, ms);
+        }
+        assertEquals(List.of(1L, 63L, 64L, 65L, 4095L, 4096L, 4097L), fired);
+    }
+
+    @Test
+    void testCancel() {
+        TimingWheel wheel = new TimingWheel(10, clock::get);
+        int[] fired = new int[1];
+        TimingWheel.Timeout t = wheel.schedule(100, () -> fired[0]++);
+        wheel.schedule(100, () -> fired[0] += 10);
+
+        assertTrue(t.isPending());
+        assertTrue(wheel.cancel(t));
+        assertFalse(wheel.cancel(t));
+        assertFalse(wheel.cancel(null));
+        assertFalse(t.isPending());
+
+        advanceTo(wheel, 1000);
+        assertEquals(10, fired[0]);
+        assertThrows(IllegalArgumentException.class, () -> wheel.schedule(1, null));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel(0));
+    }
+}
@@ -0,0 +1,130 @@
+package com.mahjong.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * 測試主題訂閱：訊息只送給訂閱者、斷線與牌桌結束時清除訂閱、伺服器訊息依大廳 / 牌桌分流
+ */
+class TopicRegistryTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TopicRegistry topics = new TopicRegistry(new PacketWriter(mapper));
+
+    private static Packet message(String text) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("message", text);
+        return new Packet(Command.GAME_UPDATE, data);
+    }
+
+    private static WebSocket socket(int port) {
+        WebSocket ws = mock(WebSocket.class);
+        when(ws.getRemoteSocketAddress()).thenReturn(new InetSocketAddress("127.0.0.1", port));
+        return ws;
+    }
+
+    private void login(MahjongWebSocketServer server, WebSocket ws, String nickname) throws Exception {
+        Map<String, Object> data = new HashMap<>();
+        data.put("nickname", nickname);
+        server.onMessage(ws, mapper.writeValueAsString(new Packet(Command.LOGIN, data)));
+    }
+
+    @Test
+    void testPublish_OnlySubscribersReceive() throws Exception {
+        WebSocket a = mock(WebSocket.class);
+        WebSocket b = mock(WebSocket.class);
+        WebSocket c = mock(WebSocket.class);
+        topics.subscribe(TopicRegistry.room(1), a);
+        topics.subscribe(TopicRegistry.room(1), b);
+        topics.subscribe(TopicRegistry.room(2), c);
+
+        assertEquals(2, topics.publish(TopicRegistry.room(1), message("hi")));
+        String json = mapper.writeValueAsString(message("hi"));
+        verify(a).send(json);
+        verify(b).send(json);
+        verify(c, never()).send(anyString());
+
+        assertEquals(1, topics.publish(TopicRegistry.room(1), message("hi"), a));
+        verify(a, times(1)).send(json);
+        verify(b, times(2)).send(json);
+
+        assertEquals(0, topics.publish("nobody", message("hi")));
+        assertEquals(3, topics.getPublishedCount());
+        assertEquals(3, topics.getDeliveredCount());
+    }
+
+    @Test
+    void testUnsubscribeAll_RemovesEveryTopic() {
+        WebSocket a = mock(WebSocket.class);
+        topics.subscribe(TopicRegistry.LOBBY, a);
+        topics.subscribe(TopicRegistry.spectators(3), a);
+        assertEquals(2, topics.getTopics(a).size());
+
+        topics.unsubscribeAll(a);
+        assertTrue(topics.getTopics(a).isEmpty());
+        assertEquals(0, topics.getSubscriberCount(TopicRegistry.LOBBY));
+        assertEquals(0, topics.getSubscriberCount(TopicRegistry.spectators(3)));
+    }
+
+    @Test
+    void testRemoveTopic_ClearsSubscriptions() {
+        WebSocket a = mock(WebSocket.class);
+        topics.subscribe(TopicRegistry.room(5), a);
+        topics.subscribe(TopicRegistry.LOBBY, a);
+
+        topics.removeTopic(TopicRegistry.room(5));
+        assertTrue(topics.getSubscribers(TopicRegistry.room(5)).isEmpty());
+        assertEquals(List.of(TopicRegistry.LOBBY), new ArrayList<>(topics.getTopics(a)));
+    }
+
+    @Test
+    void testServer_LobbyAndRoomMessagesAreSeparated() throws Exception {
+        MahjongWebSocketServer server = new MahjongWebSocketServer(8890);
+        List<WebSocket> seated = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            WebSocket ws = socket(20000 + i);
+            seated.add(ws);
+            server.onOpen(ws, null);
+            login(server, ws, "P" + i);
+        }
+        TopicRegistry registry = server.getTopics();
+        assertEquals(0, registry.getSubscriberCount(TopicRegistry.LOBBY));
+        String roomTopic = registry.getTopics(seated.get(0)).iterator().next();
+        assertEquals(4, registry.getSubscriberCount(roomTopic));
+
+        WebSocket waiting = socket(20010);
+        WebSocket newcomer = socket(20011);
+        server.onOpen(waiting, null);
+        server.onOpen(newcomer, null);
+        login(server, waiting, "Waiting");
+        login(server, newcomer, "Newcomer");
+
+        // 大廳的加入訊息只送給大廳中的其他玩家
+        verify(waiting).send(argThat((String s) -> s.contains("Newcomer joined")));
+        verify(newcomer, never()).send(argThat((String s) -> s.contains("Newcomer joined")));
+        for (WebSocket ws : seated) {
+            verify(ws, never()).send(argThat((String s) -> s.contains("Newcomer joined")));
+        }
+
+        // 牌桌上的玩家離開只通知同桌，大廳收不到
+        server.onClose(seated.get(0), 1000, "bye", true);
+        verify(seated.get(1), timeout(1000)).send(argThat((String s) -> s.contains("P0 has left")));
+        verify(waiting, never()).send(argThat((String s) -> s.contains("has left")));
+        assertEquals(3, registry.getSubscriberCount(roomTopic));
+        assertTrue(registry.getTopics(seated.get(0)).isEmpty());
+    }
+}
@@ -168,9 +168,9 @@ class WebSocketAPIBlackBoxTest {
             server.onMessage(sockets[i], json);
         }
 
-        // 驗證：所有玩家都應該收到訊息（包括遊戲開始）
+        // 驗證：所有玩家都應該收到訊息（包括遊戲開始；開局在牌桌的 worker 上非同步執行）
         for (WebSocket socket : sockets) {
-            verify(socket, atLeast(2)).send(anyString()); // 至少 LOGIN_SUCCESS 和 GAME_START
+            verify(socket, timeout(2000).atLeast(2)).send(anyString()); // 至少 LOGIN_SUCCESS 和 GAME_START
         }
     }
 
@@ -76,19 +76,8 @@ class WebSocketGameSessionCoverageTest {
         List<PlayerHand> hands = (List<PlayerHand>) handsField.get(session);
         
         PlayerHand hand = hands.get(playerIndex);
-        // 清除手牌（通過反射直接訪問）
-        Field standingTilesField = PlayerHand.class.getDeclaredField("standingTiles");
-        standingTilesField.setAccessible(true);
-        @SuppressWarnings("unchecked")
-        List<Tile> standingTiles = (List<Tile>) standingTilesField.get(hand);
-        standingTiles.clear();
-        
-        // 清除所有面子（如果有）
-        Field openMeldsField = PlayerHand.class.getDeclaredField("openMelds");
-        openMeldsField.setAccessible(true);
-        @SuppressWarnings("unchecked")
-        List<com.mahjong.logic.Meld> openMelds = (List<com.mahjong.logic.Meld>) openMeldsField.get(hand);
-        openMelds.clear();
+        // 清除手牌與所有面子（如果有）
+        hand.clear();
         
         for (Tile tile : tiles) {
             hand.addTile(tile);
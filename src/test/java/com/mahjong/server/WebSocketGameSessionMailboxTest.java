@@ -0,0 +1,100 @@
+package com.mahjong.server;
+
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 測試 WebSocketGameSession 的 actor mailbox：事件依序、不並行、例外不影響後續事件
+ */
+class WebSocketGameSessionMailboxTest {
+
+    private static WebSocketGameSession newSession() {
+        List<WebSocket> players = TestSessions.players();
+        return new WebSocketGameSession(players, TestSessions.names(players));
+    }
+
+    @Test
+    void testTell_SerializesEventsFromManyThreads() throws Exception {
+        WebSocketGameSession session = newSession();
+        int threads = 8;
+        int perThread = 500;
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        int[] counter = new int[1]; // 不加鎖，只靠 mailbox 保證序列化
+        CountDownLatch done = new CountDownLatch(threads * perThread);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    session.tell(() -> {
+                        if (active.incrementAndGet() > 1) overlaps.incrementAndGet();
+                        counter[0]++;
+                        active.decrementAndGet();
+                        done.countDown();
+                    });
+                }
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertEquals(0, overlaps.get(), "Events of one session must never run concurrently");
+        assertEquals(threads * perThread, counter[0]);
+    }
+
+    @Test
+    void testTell_KeepsOrderAndSurvivesFailures() throws Exception {
+        WebSocketGameSession session = newSession();
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        session.tell(() -> order.add(1));
+        session.tell(() -> {
+            throw new IllegalStateException("boom");
+        });
+        session.tell(() -> order.add(2));
+        session.tell(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2), order);
+    }
+
+    @Test
+    void testSubmit_RunsPlayerActionOnMailbox() throws Exception {
+        // 直接在呼叫端執行的 executor：submit 之後結果立即可見
+        List<WebSocket> players = TestSessions.players();
+        WebSocketGameSession session = TestSessions.session(players);
+        session.tell(session::start);
+        clearInvocations(players.get(0));
+
+        String tile = firstTile(session);
+        Map<String, Object> data = new HashMap<>();
+        data.put("tile", tile);
+        session.submit(0, new Packet(Command.PLAY_CARD, data));
+
+        verify(players.get(0), atLeastOnce()).send(anyString());
+    }
+
+    private static String firstTile(WebSocketGameSession session) throws Exception {
+        List<PlayerHand> hands = TestSessions.get(session, "hands");
+        return hands.get(0).getStandingTiles().get(0).toString();
+    }
+}
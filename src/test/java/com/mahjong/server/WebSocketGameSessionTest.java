@@ -1,6 +1,7 @@
 package com.mahjong.server;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mahjong.logic.MahjongRuleEngine;
 import com.mahjong.logic.PlayerHand;
 import com.mahjong.logic.Tile;
 import com.mahjong.model.Command;
@@ -11,12 +12,15 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static com.mahjong.server.TestSessions.field;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -364,5 +368,50 @@ class WebSocketGameSessionTest {
             session.processPlayerAction(mockWebSocket1, playCard);
         });
     }
-}
 
+    /**
+     * 明槓後的補牌從牌尾補（drawReplacementTile），不從牌頭摸
+     */
+    @Test
+    void testExposedKongDrawsReplacementFromTail() throws Exception {
+        session.start();
+        MahjongRuleEngine engine = (MahjongRuleEngine) field("engine").get(session);
+        int head = engineInt(engine, "head");
+        int tail = engineInt(engine, "tail");
+        byte[] wall = (byte[]) engineField("wall").get(engine);
+        Tile expected = Tile.fromIndex(wall[tail - 1]);
+
+        @SuppressWarnings("unchecked")
+        List<PlayerHand> hands = (List<PlayerHand>) field("hands").get(session);
+        PlayerHand hand = hands.get(1);
+        hand.clear();
+        for (Tile t : new Tile[]{Tile.M1, Tile.M1, Tile.M1, Tile.P1, Tile.P4, Tile.P7, Tile.S2, Tile.S5,
+                Tile.S8, Tile.EAST, Tile.SOUTH, Tile.WEST, Tile.NORTH}) {
+            hand.addTile(t);
+        }
+        field("pendingDiscardTile").set(session, Tile.M1);
+        @SuppressWarnings("unchecked")
+        List<String> sea = (List<String>) field("sea").get(session);
+        sea.add("M1");
+
+        Method performKong = WebSocketGameSession.class.getDeclaredMethod("performKong", int.class);
+        performKong.setAccessible(true);
+        performKong.invoke(session, 1);
+
+        assertEquals(head, engineInt(engine, "head"), "Normal draws must not be consumed");
+        assertEquals(tail - 1, engineInt(engine, "tail"));
+        assertEquals(expected, field("lastDrawnTile").get(session));
+        assertEquals(1, field("currentPlayerIndex").get(session));
+        assertEquals(1, hand.getMeldCount());
+    }
+
+    private static Field engineField(String name) throws NoSuchFieldException {
+        Field f = MahjongRuleEngine.class.getDeclaredField(name);
+        f.setAccessible(true);
+        return f;
+    }
+
+    private static int engineInt(MahjongRuleEngine engine, String name) throws Exception {
+        return engineField(name).getInt(engine);
+    }
+}
@@ -0,0 +1,110 @@
+package com.mahjong.server;
+
+import com.mahjong.logic.PlayerHand;
+import com.mahjong.logic.Tile;
+import com.mahjong.model.Command;
+import com.mahjong.model.Packet;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 測試 WebSocketGameSession 的宣告 / 出牌逾時（以手動推進的 TimingWheel 驅動）
+ */
+class WebSocketGameSessionTimeoutTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private void advanceTo(TimingWheel wheel, long ms) {
+        clock.set(ms);
+        wheel.advance();
+    }
+
+    private WebSocketGameSession newSession(TimingWheel wheel) {
+        WebSocketGameSession session = TestSessions.session(TestSessions.players());
+        session.enableTimeouts(wheel, 1_000, 2_000);
+        return session;
+    }
+
+    @Test
+    void testTurnTimeout_AutoDiscardsDrawnTile() throws Exception {
+        TimingWheel wheel = new TimingWheel(100, clock::get);
+        WebSocketGameSession session = newSession(wheel);
+        session.tell(session::start);
+
+        List<PlayerHand> hands = TestSessions.get(session, "hands");
+        List<String> sea = TestSessions.get(session, "sea");
+        assertEquals(17, hands.get(0).getTileCount());
+        assertEquals(1, wheel.size(), "Dealer turn timeout should be armed");
+
+        advanceTo(wheel, 1_900);
+        assertTrue(sea.isEmpty(), "Not expired yet");
+
+        advanceTo(wheel, 2_000);
+        assertEquals(1, sea.size(), "Dealer should auto-discard");
+        assertEquals(16, hands.get(0).getTileCount());
+    }
+
+    @Test
+    void testClaimTimeout_AutoSkips() throws Exception {
+        TimingWheel wheel = new TimingWheel(100, clock::get);
+        WebSocketGameSession session = newSession(wheel);
+        session.tell(session::start);
+
+        // 莊家打出 RED，只有玩家 2 可以碰；玩家 1 / 3 的手牌無法吃碰，也無法自摸或暗槓
+        List<PlayerHand> hands = TestSessions.get(session, "hands");
+        Tile discard = Tile.RED;
+        Tile[] scattered = {Tile.P1, Tile.P3, Tile.P5, Tile.P7, Tile.P9, Tile.S1, Tile.S3, Tile.S5,
+                Tile.S7, Tile.S9, Tile.M1, Tile.M3, Tile.M5, Tile.M7, Tile.M9, Tile.EAST};
+        session.tell(() -> {
+            hands.get(0).addTile(Tile.RED);
+            for (int seat = 1; seat < 4; seat += 2) {
+                hands.get(seat).clear();
+                for (Tile t : scattered) hands.get(seat).addTile(t);
+            }
+            PlayerHand h = hands.get(2);
+            h.clear();
+            h.addTile(discard);
+            h.addTile(discard);
+            for (Tile t : new Tile[]{Tile.EAST, Tile.SOUTH, Tile.WEST, Tile.NORTH}) {
+                h.addTile(t);
+            }
+        });
+        Map<String, Object> data = new HashMap<>();
+        data.put("tile", discard.toString());
+        session.submit(0, new Packet(Command.PLAY_CARD, data));
+
+        boolean waiting = TestSessions.get(session, "waitingForAction");
+        assertTrue(waiting, "Player 2 should be asked to claim");
+
+        advanceTo(wheel, 1_000);
+        waiting = TestSessions.get(session, "waitingForAction");
+        assertFalse(waiting, "Claim window should auto-SKIP");
+        int current = TestSessions.get(session, "currentPlayerIndex");
+        assertEquals(1, current, "Turn passes to the next player after the skip");
+    }
+
+    @Test
+    void testGameOver_CancelsTimeout() throws Exception {
+        TimingWheel wheel = new TimingWheel(100, clock::get);
+        WebSocketGameSession session = newSession(wheel);
+        session.tell(session::start);
+        session.tell(() -> {
+            try {
+                Method hu = WebSocketGameSession.class.getDeclaredMethod("performHu", int.class);
+                hu.setAccessible(true);
+                hu.invoke(session, 0);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(session.isFinished());
+        assertEquals(0, wheel.size());
+    }
+}
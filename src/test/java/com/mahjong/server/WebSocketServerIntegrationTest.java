@@ -425,9 +425,10 @@ class WebSocketServerIntegrationTest {
     private boolean hasCommand(List<String> messages, Command command) {
         try {
             for (String message : messages) {
-                Packet packet = mapper.readValue(message, Packet.class);
-                if (packet.getCommand() == command) {
-                    return true;
+                for (Packet packet : TestPackets.readPackets(message)) {
+                    if (packet.getCommand() == command) {
+                        return true;
+                    }
                 }
             }
         } catch (Exception e) {
@@ -443,9 +444,10 @@ class WebSocketServerIntegrationTest {
         int count = 0;
         try {
             for (String message : messages) {
-                Packet packet = mapper.readValue(message, Packet.class);
-                if (packet.getCommand() == command) {
-                    count++;
+                for (Packet packet : TestPackets.readPackets(message)) {
+                    if (packet.getCommand() == command) {
+                        count++;
+                    }
                 }
             }
         } catch (Exception e) {